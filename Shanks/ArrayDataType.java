@@ -1,32 +1,367 @@
 package Shanks;
-import java.util.ArrayList;
-import java.util.List;
 
-public class ArrayDataType<T extends InterpreterDataType> extends InterpreterDataType {
+/**
+ * A Shank array. Each element type has its own subclass that keeps the elements unboxed in a
+ * primitive Java array sized from the declared index range, so an array of a million integers
+ * is one int[] rather than a million IntegerDataType objects. Elements are only boxed when an
+ * engine asks for one as an InterpreterDataType.
+ */
+public abstract class ArrayDataType extends InterpreterDataType {
 
-	private List<T> store;
+	// Ranges at least this long are sorted with Arrays.parallelSort
+	protected static final int PARALLEL_SORT_LENGTH = 1 << 16;
 
-	public ArrayDataType(List<T> store) {
-		this.store = store;
+	// Integer and real arrays at least this long are kept off the heap unless the run says otherwise
+	public static final int DEFAULT_OFF_HEAP_LENGTH = 1 << 24;
+	private static int offHeapLength = DEFAULT_OFF_HEAP_LENGTH;
+
+	// Index of the first element; Shank arrays are indexed from their declared lower bound
+	protected final int lowerBound;
+	protected final int length;
+
+	// The arrays sharing this one's storage, or null if it has the storage to itself
+	private Sharers sharers;
+
+	protected ArrayDataType(int lowerBound, int length) {
+		this.lowerBound = lowerBound;
+		this.length = length;
+	}
+
+	/**
+	 * Creates the array a variable declares, with storage for its whole index range.
+	 * Arrays declared without a range have no elements.
+	 * @param variable The variable, of type "array of T"
+	 * @return The new array, every element holding its type's default value
+	 */
+	public static ArrayDataType create(VariableNode variable) {
+		String elementType = elementTypeOf(variable.getType().toLowerCase());
+		if (variable.getArrayFrom() == null || variable.getArrayTo() == null) {
+			return create(elementType, 0, -1);
+		}
+
+		// Integers declared with a range reject values outside it, and are stored in bytes or
+		// shorts when the range is small enough
+		RangeCheck elements = RangeCheck.ofElements(variable);
+		if (elements != null) {
+			int length = lengthOf(variable.getArrayFrom(), variable.getArrayTo());
+			if (ByteIntegerArrayDataType.fits(elements)) {
+				return new ByteIntegerArrayDataType(variable.getArrayFrom(), length, elements);
+			} else if (ShortIntegerArrayDataType.fits(elements)) {
+				return new ShortIntegerArrayDataType(variable.getArrayFrom(), length, elements);
+			} else if (length >= offHeapLength) {
+				return new OffHeapIntegerArrayDataType(variable.getArrayFrom(), length, elements);
+			}
+			return new IntegerArrayDataType(variable.getArrayFrom(), length, elements);
+		}
+		return create(elementType, variable.getArrayFrom(), variable.getArrayTo());
+	}
+
+	/**
+	 * Creates an array indexed from from to to, inclusive
+	 * @param elementType The element type, such as "integer"
+	 * @param from The first index
+	 * @param to The last index; one less than from for an empty array
+	 * @return The new array
+	 */
+	public static ArrayDataType create(String elementType, int from, int to) {
+		int length = lengthOf(from, to);
+		switch (elementType) {
+			case "integer":
+				return length >= offHeapLength ? new OffHeapIntegerArrayDataType(from, length, null) : new IntegerArrayDataType(from, length);
+			case "real":
+				return length >= offHeapLength ? new OffHeapRealArrayDataType(from, length) : new RealArrayDataType(from, length);
+			case "character": return new CharacterArrayDataType(from, length);
+			case "boolean": return new BooleanArrayDataType(from, length);
+			case "string": return new StringArrayDataType(from, length);
+			default: throw new RuntimeException("Unsupported array element type: " + elementType);
+		}
+	}
+
+	/**
+	 * Counts the elements of an index range
+	 * @param from The first index
+	 * @param to The last index; one less than from for an empty array
+	 * @return The number of elements
+	 */
+	private static int lengthOf(int from, int to) {
+		long size = (long) to - from + 1;
+		if (size < 0 || size > Integer.MAX_VALUE - 8) {
+			throw new RuntimeException("Array range " + from + " to " + to + " is not a valid size");
+		}
+		return (int) size;
+	}
+
+	/**
+	 * Sets how long an integer or real array must be before it is kept off the heap, in a direct
+	 * buffer the garbage collector doesn't scan
+	 * @param length The number of elements; 0 keeps them all off the heap, null restores the default
+	 */
+	public static void setOffHeapLength(Integer length) {
+		offHeapLength = length == null ? DEFAULT_OFF_HEAP_LENGTH : length;
+	}
+
+	/**
+	 * Gets the element type of an array type
+	 * @param type The array type, "array of T"
+	 * @return T
+	 */
+	public static String elementTypeOf(String type) {
+		return type.substring("array of ".length());
+	}
+
+	/**
+	 * @return The element type, such as "integer"
+	 */
+	public abstract String getElementType();
+
+	public int getLowerBound() {
+		return lowerBound;
+	}
+
+	public int getUpperBound() {
+		return lowerBound + length - 1;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Gets an element boxed into a fresh variable
+	 * @param index The element's index
+	 * @return A variable holding the element's value
+	 */
+	public abstract InterpreterDataType get(int index);
+
+	/**
+	 * Sets an element from a variable of the element type
+	 * @param index The element's index
+	 * @param value The value
+	 */
+	public abstract void set(int index, InterpreterDataType value);
+
+	/**
+	 * Copies the array, for passing it by value. The copy shares this array's storage until
+	 * either of them is written to, so passing an array that is only read costs nothing.
+	 * @return An array with the same bounds and elements
+	 */
+	public ArrayDataType copy() {
+		if (sharers == null) {
+			sharers = new Sharers();
+		}
+		sharers.count++;
+		ArrayDataType copy = share();
+		copy.sharers = sharers;
+		return copy;
+	}
+
+	/**
+	 * Gives up this array's share of its storage. Engines call this on the copies they made for
+	 * a call once it returns, so the caller's array doesn't copy itself on its next write.
+	 * The array must not be used afterwards.
+	 */
+	public void release() {
+		if (sharers != null) {
+			sharers.count--;
+			sharers = null;
+		}
+	}
+
+	/**
+	 * Makes sure the storage belongs to this array alone before it is written to
+	 */
+	protected final void beforeWrite() {
+		if (sharers != null) {
+			if (sharers.count > 1) {
+				sharers.count--;
+				detach();
+			}
+			sharers = null;
+		}
+	}
+
+	/**
+	 * @return A new array with the same bounds, using this array's storage
+	 */
+	protected abstract ArrayDataType share();
+
+	/**
+	 * Replaces the storage with a copy of it
+	 */
+	protected abstract void detach();
+
+	/**
+	 * Sets elements from to to, inclusive, to a value
+	 * @param from The first index
+	 * @param to The last index
+	 * @param value The value, of the element type
+	 */
+	public abstract void fill(int from, int to, InterpreterDataType value);
+
+	/**
+	 * Copies elements from another array of the same element type, or from elsewhere in
+	 * this one; overlapping ranges are copied as if through a temporary
+	 * @param source The array to copy from
+	 * @param sourceFrom The index of the first element to copy
+	 * @param targetFrom The index in this array to copy it to
+	 * @param count The number of elements
+	 */
+	public void copyFrom(ArrayDataType source, int sourceFrom, int targetFrom, int count) {
+		if (count < 0) {
+			throw new RuntimeException("ArrayCopy: can't copy " + count + " elements");
+		}
+		int sourceStart = source.checkRange("ArrayCopy", sourceFrom, sourceFrom + count - 1);
+		int targetStart = checkRange("ArrayCopy", targetFrom, targetFrom + count - 1);
+		if (!source.getElementType().equals(getElementType())) {
+			throw new RuntimeException("ArrayCopy: the arrays' element types don't match");
+		}
+		beforeWrite();
+		Object from = source.storage();
+		Object to = storage();
+		if (from != null && to != null) {
+			System.arraycopy(from, sourceStart, to, targetStart, count);
+		} else {
+			copyElements(source, sourceStart, targetStart, count);
+		}
+	}
+
+	/**
+	 * Copies elements one at a time, for when either array is kept off the heap. Goes backwards
+	 * when moving elements up within one array, so nothing is overwritten before it is copied.
+	 * @param source The array to copy from, of the same element type
+	 * @param sourceStart The position of the first element to copy
+	 * @param targetStart The position in this array to copy it to
+	 * @param count The number of elements
+	 */
+	protected void copyElements(ArrayDataType source, int sourceStart, int targetStart, int count) {
+		if (source == this && sourceStart < targetStart) {
+			for (int i = count - 1; i >= 0; i--) {
+				set(lowerBound + targetStart + i, source.get(source.lowerBound + sourceStart + i));
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				set(lowerBound + targetStart + i, source.get(source.lowerBound + sourceStart + i));
+			}
+		}
+	}
+
+	/**
+	 * Adds up elements from to to, inclusive; integers wrap around like Shank's +
+	 * @param from The first index
+	 * @param to The last index
+	 * @param result Integer or real to put the sum in, matching the element type
+	 */
+	public void sum(int from, int to, InterpreterDataType result) {
+		checkRange("ArraySum", from, to);
+		throw notNumbers("ArraySum", result);
+	}
+
+	/**
+	 * Finds the smallest or largest of elements from to to, inclusive
+	 * @param builtIn The name of the built-in asking, for error messages
+	 * @param from The first index
+	 * @param to The last index
+	 * @param largest Whether to find the largest rather than the smallest
+	 * @param result Integer or real to put the element in, matching the element type
+	 */
+	public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+		checkNonEmptyRange(builtIn, from, to);
+		throw notNumbers(builtIn, result);
 	}
-	
-	// Add a default constructor
-	public ArrayDataType() {
-		this.store = new ArrayList<>();
+
+	/**
+	 * Finds the first element from from to to, inclusive, equal to a value
+	 * @param from The first index
+	 * @param to The last index
+	 * @param value The value, of the element type
+	 * @return The index of the element, or from - 1 if there is none
+	 */
+	public abstract int indexOf(int from, int to, InterpreterDataType value);
+
+	/**
+	 * Sorts elements from to to, inclusive, into ascending order
+	 * @param from The first index
+	 * @param to The last index
+	 */
+	public abstract void sort(int from, int to);
+
+	/**
+	 * @return The primitive array holding the elements, for System.arraycopy, or null if they
+	 * are kept off the heap
+	 */
+	protected abstract Object storage();
+
+	/**
+	 * Finds an element's position in the storage
+	 * @param index The element's index
+	 * @return The position
+	 */
+	protected final int offset(int index) {
+		int offset = index - lowerBound;
+		// One unsigned compare covers both ends of the range
+		if (Integer.compareUnsigned(offset, length) >= 0) {
+			throw new RuntimeException("Array index " + index + " is out of bounds (" + lowerBound +
+			                           " to " + getUpperBound() + ")");
+		}
+		return offset;
+	}
+
+	/**
+	 * Checks that a range of indexes lies within the array; to may be one less than from
+	 * for an empty range
+	 * @param builtIn The name of the built-in asking, for error messages
+	 * @param from The first index
+	 * @param to The last index
+	 * @return The position of from in the storage
+	 */
+	protected final int checkRange(String builtIn, int from, int to) {
+		if (from > to + 1 || from < lowerBound || to > getUpperBound()) {
+			throw new RuntimeException(builtIn + ": range " + from + " to " + to +
+			                           " is not within the array (" + lowerBound + " to " + getUpperBound() + ")");
+		}
+		return from - lowerBound;
 	}
 
-	public List<T> getStore() {
-		return store;
+	protected final int checkNonEmptyRange(String builtIn, int from, int to) {
+		int start = checkRange(builtIn, from, to);
+		if (from > to) {
+			throw new RuntimeException(builtIn + ": the range " + from + " to " + to + " is empty");
+		}
+		return start;
+	}
+
+	protected static RuntimeException notNumbers(String builtIn, InterpreterDataType result) {
+		if (result instanceof IntegerDataType) {
+			return new RuntimeException(builtIn + ": the array's elements are not integers");
+		} else if (result instanceof RealDataType) {
+			return new RuntimeException(builtIn + ": the array's elements are not reals");
+		}
+		return new RuntimeException(builtIn + ": the result must be an integer or a real");
+	}
+
+	protected static RuntimeException wrongValue(String builtIn) {
+		return new RuntimeException(builtIn + ": the value type doesn't match the array's elements");
 	}
 
 	@Override
 	public String ToString() {
-		return "ArrayDataType [value=" + store + "]";
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(get(lowerBound + i).ToString());
+		}
+		return sb.append("]").toString();
 	}
 
 	@Override
 	public void FromString(String input) {
-		// This is a placeholder - proper implementation would depend on how you want to parse strings into array elements
-		// store.add((T) input); // This cast is unsafe and will likely cause ClassCastException
+		throw new RuntimeException("An array can't be read from text; read its elements one at a time");
+	}
+
+	// Counts the arrays using one block of storage
+	private static final class Sharers {
+		int count = 1;
 	}
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package Shanks;
 public class AssignmentNode extends StatementNode {
     private VariableReferenceNode target;
     private Node value;
+    private RangeCheck rangeCheck; // Set by RangeAnalysis; null when no check is needed
     
     public AssignmentNode(VariableReferenceNode target, Node value) {
         this.target = target;
@@ -17,6 +18,14 @@ public class AssignmentNode extends StatementNode {
         return value;
     }
     
+    public RangeCheck getRangeCheck() {
+        return rangeCheck;
+    }
+    
+    public void setRangeCheck(RangeCheck rangeCheck) {
+        this.rangeCheck = rangeCheck;
+    }
+    
     @Override
     public String toString() {
         return target + " := " + value;
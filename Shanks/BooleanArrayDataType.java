@@ -0,0 +1,159 @@
+package Shanks;
+
+/**
+ * An array of booleans, packed 64 to a long
+ */
+public class BooleanArrayDataType extends ArrayDataType {
+    private long[] bits;
+    
+    public BooleanArrayDataType(int lowerBound, int length) {
+        super(lowerBound, length);
+        this.bits = new long[(length + 63) >>> 6];
+    }
+    
+    private BooleanArrayDataType(int lowerBound, int length, long[] bits) {
+        super(lowerBound, length);
+        this.bits = bits;
+    }
+    
+    @Override
+    public String getElementType() {
+        return "boolean";
+    }
+    
+    public boolean getBoolean(int index) {
+        return bit(offset(index));
+    }
+    
+    public void setBoolean(int index, boolean value) {
+        beforeWrite();
+        setBit(offset(index), value);
+    }
+    
+    private void setBit(int offset, boolean value) {
+        if (value) {
+            bits[offset >>> 6] |= 1L << offset;
+        } else {
+            bits[offset >>> 6] &= ~(1L << offset);
+        }
+    }
+    
+    private boolean bit(int offset) {
+        return (bits[offset >>> 6] & (1L << offset)) != 0;
+    }
+    
+    @Override
+    public InterpreterDataType get(int index) {
+        return new BooleanDataType(getBoolean(index));
+    }
+    
+    @Override
+    public void set(int index, InterpreterDataType value) {
+        if (!(value instanceof BooleanDataType)) {
+            throw new RuntimeException("Type mismatch in assignment");
+        }
+        setBoolean(index, ((BooleanDataType) value).getValue());
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new BooleanArrayDataType(lowerBound, length, bits);
+    }
+    
+    @Override
+    protected void detach() {
+        bits = bits.clone();
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof BooleanDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        beforeWrite();
+        setBits(start, to - lowerBound + 1, ((BooleanDataType) value).getValue());
+    }
+    
+    /**
+     * Sets the bits from start up to end, a word at a time where the range covers whole words
+     * @param start The first bit
+     * @param end One past the last bit
+     * @param value The value to set them to
+     */
+    private void setBits(int start, int end, boolean value) {
+        int i = start;
+        while (i < end && (i & 63) != 0) {
+            setBit(i++, value);
+        }
+        while (end - i >= 64) {
+            bits[i >>> 6] = value ? -1L : 0L;
+            i += 64;
+        }
+        while (i < end) {
+            setBit(i++, value);
+        }
+    }
+    
+    @Override
+    public void copyFrom(ArrayDataType source, int sourceFrom, int targetFrom, int count) {
+        if (count < 0) {
+            throw new RuntimeException("ArrayCopy: can't copy " + count + " elements");
+        }
+        int sourceStart = source.checkRange("ArrayCopy", sourceFrom, sourceFrom + count - 1);
+        int targetStart = checkRange("ArrayCopy", targetFrom, targetFrom + count - 1);
+        if (!(source instanceof BooleanArrayDataType)) {
+            throw new RuntimeException("ArrayCopy: the arrays' element types don't match");
+        }
+        
+        beforeWrite();
+        
+        // Bits don't line up with words, so go one at a time, backwards when moving up within one array
+        BooleanArrayDataType other = (BooleanArrayDataType) source;
+        if (other == this && sourceStart < targetStart) {
+            for (int i = count - 1; i >= 0; i--) {
+                setBit(targetStart + i, other.bit(sourceStart + i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                setBit(targetStart + i, other.bit(sourceStart + i));
+            }
+        }
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof BooleanDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        boolean wanted = ((BooleanDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (bit(i) == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        // false sorts before true, so counting the falses is enough
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        int falses = 0;
+        for (int i = start; i < end; i++) {
+            if (!bit(i)) {
+                falses++;
+            }
+        }
+        setBits(start, start + falses, false);
+        setBits(start + falses, end, true);
+    }
+    
+    @Override
+    protected Object storage() {
+        return bits;
+    }
+}
\ No newline at end of file
@@ -13,6 +13,10 @@ public class BooleanCompareNode extends Node {
     private ComparisonOperator operator;
     private Node leftSide;
     private Node rightSide;
+    // Type of both operands as proven by SemanticAnalysis, or null when they differ
+    private String operandType;
+    // Set by the Interpreter's specializing mode from the operand types it sees
+    private Specialization specialization = Specialization.UNINITIALIZED;
     
     public BooleanCompareNode(ComparisonOperator operator, Node leftSide, Node rightSide) {
         this.operator = operator;
@@ -32,6 +36,23 @@ public class BooleanCompareNode extends Node {
         return rightSide;
     }
     
+    public String getOperandType() {
+        return operandType;
+    }
+    
+    public void setOperandType(String operandType) {
+        // Interned so the Interpreter's checks on every evaluation succeed on the identity test
+        this.operandType = operandType == null ? null : operandType.intern();
+    }
+    
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+    
+    public void setSpecialization(Specialization specialization) {
+        this.specialization = specialization;
+    }
+    
     @Override
     public String toString() {
         String opString;
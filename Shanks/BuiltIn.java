@@ -0,0 +1,44 @@
+package Shanks;
+
+/**
+ * A function implemented in Java. The standard built-ins and any extra ones listed for
+ * ServiceLoader are collected by the BuiltInRegistry; each call is checked against the
+ * built-in's signature once, when the SlotResolver links it, and then calls execute directly.
+ *
+ * Extra built-ins need a public no-argument constructor and a line with their class name in
+ * META-INF/services/Shanks.BuiltIn on the class path.
+ */
+public interface BuiltIn {
+    /**
+     * @return The name Shank code calls the built-in by; like every function name, its case doesn't matter
+     */
+    String getName();
+    
+    /**
+     * @return The number of parameters, or -1 if the built-in takes any number
+     */
+    int getParameterCount();
+    
+    /**
+     * @return A mask with bit i set when parameter i must be passed as var; bit 63 also
+     * covers every later parameter of a built-in that takes any number
+     */
+    long getVarMask();
+    
+    /**
+     * Runs the built-in. The arguments match the signature: var parameters are the
+     * caller's variables, the others are copies. A built-in may put a new array in place
+     * of a var array argument, and the caller's variable then holds that array.
+     * @param arguments The arguments
+     */
+    void execute(InterpreterDataType[] arguments);
+    
+    /**
+     * Checks whether a parameter must be passed as var
+     * @param index The parameter index
+     * @return True if the parameter is a var parameter
+     */
+    default boolean isVarParameter(int index) {
+        return (getVarMask() >>> Math.min(index, 63) & 1) != 0;
+    }
+}
\ No newline at end of file
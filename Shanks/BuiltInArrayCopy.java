@@ -0,0 +1,55 @@
+package Shanks;
+
+public class BuiltInArrayCopy implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "arraycopy";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 5;
+    }
+    
+    // Both arrays are var so neither is copied by the call
+    @Override
+    public long getVarMask() {
+        return 0b101;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the array to copy from (var parameter)
+        if (!(parameters[0] instanceof ArrayDataType)) {
+            throw new RuntimeException("First parameter of ArrayCopy must be an array");
+        }
+        ArrayDataType source = (ArrayDataType) parameters[0];
+        
+        // Second parameter is the first index to copy (read-only)
+        if (!(parameters[1] instanceof IntegerDataType)) {
+            throw new RuntimeException("Second parameter of ArrayCopy must be an integer");
+        }
+        int sourceFrom = ((IntegerDataType) parameters[1]).getValue();
+        
+        // Third parameter is the array to copy to (var parameter)
+        if (!(parameters[2] instanceof ArrayDataType)) {
+            throw new RuntimeException("Third parameter of ArrayCopy must be an array");
+        }
+        ArrayDataType target = (ArrayDataType) parameters[2];
+        
+        // Fourth parameter is the index to copy to (read-only)
+        if (!(parameters[3] instanceof IntegerDataType)) {
+            throw new RuntimeException("Fourth parameter of ArrayCopy must be an integer");
+        }
+        int targetFrom = ((IntegerDataType) parameters[3]).getValue();
+        
+        // Fifth parameter is the number of elements (read-only)
+        if (!(parameters[4] instanceof IntegerDataType)) {
+            throw new RuntimeException("Fifth parameter of ArrayCopy must be an integer");
+        }
+        int count = ((IntegerDataType) parameters[4]).getValue();
+        
+        target.copyFrom(source, sourceFrom, targetFrom, count);
+    }
+}
\ No newline at end of file
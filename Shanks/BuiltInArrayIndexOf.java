@@ -0,0 +1,52 @@
+package Shanks;
+
+public class BuiltInArrayIndexOf implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "arrayindexof";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 5;
+    }
+    
+    // The array is var so it isn't copied by the call; the index is the var result
+    @Override
+    public long getVarMask() {
+        return 0b10001;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the array (var parameter)
+        if (!(parameters[0] instanceof ArrayDataType)) {
+            throw new RuntimeException("First parameter of ArrayIndexOf must be an array");
+        }
+        ArrayDataType array = (ArrayDataType) parameters[0];
+        
+        // Second parameter is the first index (read-only)
+        if (!(parameters[1] instanceof IntegerDataType)) {
+            throw new RuntimeException("Second parameter of ArrayIndexOf must be an integer");
+        }
+        int from = ((IntegerDataType) parameters[1]).getValue();
+        
+        // Third parameter is the last index (read-only)
+        if (!(parameters[2] instanceof IntegerDataType)) {
+            throw new RuntimeException("Third parameter of ArrayIndexOf must be an integer");
+        }
+        int to = ((IntegerDataType) parameters[2]).getValue();
+        
+        // Fourth parameter is the value to look for (read-only)
+        InterpreterDataType value = parameters[3];
+        
+        // Fifth parameter is the index found, or from - 1 (var parameter)
+        if (!(parameters[4] instanceof IntegerDataType)) {
+            throw new RuntimeException("Fifth parameter of ArrayIndexOf must be an integer");
+        }
+        IntegerDataType index = (IntegerDataType) parameters[4];
+        
+        index.setValue(array.indexOf(from, to, value));
+    }
+}
\ No newline at end of file
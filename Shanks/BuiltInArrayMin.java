@@ -0,0 +1,46 @@
+package Shanks;
+
+public class BuiltInArrayMin implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "arraymin";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 4;
+    }
+    
+    // The array is var so it isn't copied by the call; the minimum is the var result
+    @Override
+    public long getVarMask() {
+        return 0b1001;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the array (var parameter)
+        if (!(parameters[0] instanceof ArrayDataType)) {
+            throw new RuntimeException("First parameter of ArrayMin must be an array");
+        }
+        ArrayDataType array = (ArrayDataType) parameters[0];
+        
+        // Second parameter is the first index (read-only)
+        if (!(parameters[1] instanceof IntegerDataType)) {
+            throw new RuntimeException("Second parameter of ArrayMin must be an integer");
+        }
+        int from = ((IntegerDataType) parameters[1]).getValue();
+        
+        // Third parameter is the last index (read-only)
+        if (!(parameters[2] instanceof IntegerDataType)) {
+            throw new RuntimeException("Third parameter of ArrayMin must be an integer");
+        }
+        int to = ((IntegerDataType) parameters[2]).getValue();
+        
+        // Fourth parameter is the integer or real minimum (var parameter)
+        InterpreterDataType result = parameters[3];
+        
+        array.extreme("ArrayMin", from, to, false, result);
+    }
+}
\ No newline at end of file
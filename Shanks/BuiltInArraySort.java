@@ -0,0 +1,43 @@
+package Shanks;
+
+public class BuiltInArraySort implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "arraysort";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 3;
+    }
+    
+    // The array is var so it is sorted in place
+    @Override
+    public long getVarMask() {
+        return 0b1;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the array (var parameter)
+        if (!(parameters[0] instanceof ArrayDataType)) {
+            throw new RuntimeException("First parameter of ArraySort must be an array");
+        }
+        ArrayDataType array = (ArrayDataType) parameters[0];
+        
+        // Second parameter is the first index (read-only)
+        if (!(parameters[1] instanceof IntegerDataType)) {
+            throw new RuntimeException("Second parameter of ArraySort must be an integer");
+        }
+        int from = ((IntegerDataType) parameters[1]).getValue();
+        
+        // Third parameter is the last index (read-only)
+        if (!(parameters[2] instanceof IntegerDataType)) {
+            throw new RuntimeException("Third parameter of ArraySort must be an integer");
+        }
+        int to = ((IntegerDataType) parameters[2]).getValue();
+        
+        array.sort(from, to);
+    }
+}
\ No newline at end of file
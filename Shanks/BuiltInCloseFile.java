@@ -0,0 +1,29 @@
+package Shanks;
+
+public class BuiltInCloseFile implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "closefile";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 1;
+    }
+    
+    @Override
+    public long getVarMask() {
+        return 0;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // Parameter is the handle (read-only)
+        if (!(parameters[0] instanceof IntegerDataType)) {
+            throw new RuntimeException("Parameter of CloseFile must be an integer");
+        }
+        
+        OpenFiles.close(((IntegerDataType) parameters[0]).getValue());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package Shanks;
+import java.util.random.RandomGenerator;
+
+public class BuiltInFillRandom implements BuiltIn {
+    private final RandomGenerator random;
+    
+    public BuiltInFillRandom(RandomGenerator random) {
+        this.random = random;
+    }
+    
+    @Override
+    public String getName() {
+        return "fillrandom";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 1;
+    }
+    
+    // The only parameter is the var array to fill
+    @Override
+    public long getVarMask() {
+        return 0b1;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // Parameter is the array (var parameter)
+        if (!(parameters[0] instanceof RealArrayDataType)) {
+            throw new RuntimeException("Parameter of FillRandom must be an array of reals");
+        }
+        
+        // Set every element to a random number between 0 and 1, as GetRandom would one by one
+        ((RealArrayDataType) parameters[0]).fillRandom(random);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package Shanks;
+
+/**
+ * Stands in for a built-in among the program's functions, so calls to it resolve like
+ * calls to user-defined functions
+ */
+public class BuiltInFunction extends FunctionNode {
+    private BuiltIn builtIn;
+    
+    public BuiltInFunction(BuiltIn builtIn) {
+        super(builtIn.getName());
+        this.builtIn = builtIn;
+    }
+    
+    public BuiltIn getBuiltIn() {
+        return builtIn;
+    }
+}
\ No newline at end of file
@@ -1,25 +1,49 @@
 package Shanks;
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
-public class BuiltInGetRandom extends Shanks.FunctionNode {
-    private static final Random random = new Random();
+public class BuiltInGetRandom implements BuiltIn {
+    // Shared with FillRandom, and made fresh for every program run
+    private final RandomGenerator random;
     
-    public BuiltInGetRandom() {
-        super("getrandom");
+    public BuiltInGetRandom(RandomGenerator random) {
+        this.random = random;
+    }
+    
+    /**
+     * Creates the generator for one program run. Each run owns its generator and its seed, so
+     * runs sharing a JVM neither contend for one nor change each other's numbers, and a seeded
+     * run always draws the same numbers.
+     * @param seed The run's seed, or null to seed it differently every time
+     * @return The generator
+     */
+    public static RandomGenerator newGenerator(Long seed) {
+        return seed == null ? new SplittableRandom() : new SplittableRandom(seed);
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 1) {
-            throw new RuntimeException("GetRandom function requires exactly 1 parameter");
-        }
-        
+    public String getName() {
+        return "getrandom";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 1;
+    }
+    
+    // The only parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b1;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // Parameter is the result (var parameter)
-        if (!(parameters.get(0) instanceof RealDataType)) {
+        if (!(parameters[0] instanceof RealDataType)) {
             throw new RuntimeException("Parameter of GetRandom must be a real");
         }
-        RealDataType result = (RealDataType) parameters.get(0);
+        RealDataType result = (RealDataType) parameters[0];
         
         // Generate random number between 0 and 1
         result.setValue(random.nextFloat());
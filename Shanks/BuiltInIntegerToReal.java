@@ -1,30 +1,37 @@
 package Shanks;
-import java.util.List;
 
 
-public class BuiltInIntegerToReal extends Shanks.FunctionNode {
+public class BuiltInIntegerToReal implements BuiltIn {
     
-    public BuiltInIntegerToReal() {
-        super("integertoreal");
+    @Override
+    public String getName() {
+        return "integertoreal";
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 2) {
-            throw new RuntimeException("IntegerToReal function requires exactly 2 parameters");
-        }
-        
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // First parameter is the integer (read-only)
-        if (!(parameters.get(0) instanceof IntegerDataType)) {
+        if (!(parameters[0] instanceof IntegerDataType)) {
             throw new RuntimeException("First parameter of IntegerToReal must be an integer");
         }
-        IntegerDataType intValue = (IntegerDataType) parameters.get(0);
+        IntegerDataType intValue = (IntegerDataType) parameters[0];
         
         // Second parameter is the result real (var parameter)
-        if (!(parameters.get(1) instanceof RealDataType)) {
+        if (!(parameters[1] instanceof RealDataType)) {
             throw new RuntimeException("Second parameter of IntegerToReal must be a real");
         }
-        RealDataType realResult = (RealDataType) parameters.get(1);
+        RealDataType realResult = (RealDataType) parameters[1];
         
         // Convert integer to real
         realResult.setValue((float) intValue.getValue());
@@ -1,44 +1,50 @@
 package Shanks;
-import java.util.List;
 
-public class BuiltInLeft extends Shanks.FunctionNode {
+public class BuiltInLeft implements BuiltIn {
     
-    public BuiltInLeft() {
-        super("left");
+    @Override
+    public String getName() {
+        return "left";
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 3) {
-            throw new RuntimeException("Left function requires exactly 3 parameters");
-        }
-        
+    public int getParameterCount() {
+        return 3;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b100;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // First parameter is the source string (read-only)
-        if (!(parameters.get(0) instanceof StringDataType)) {
+        if (!(parameters[0] instanceof StringDataType)) {
             throw new RuntimeException("First parameter of Left must be a string");
         }
-        StringDataType source = (StringDataType) parameters.get(0);
+        StringDataType source = (StringDataType) parameters[0];
         
         // Second parameter is the length (read-only)
-        if (!(parameters.get(1) instanceof IntegerDataType)) {
+        if (!(parameters[1] instanceof IntegerDataType)) {
             throw new RuntimeException("Second parameter of Left must be an integer");
         }
-        IntegerDataType length = (IntegerDataType) parameters.get(1);
+        IntegerDataType length = (IntegerDataType) parameters[1];
         
         // Third parameter is the result (var parameter)
-        if (!(parameters.get(2) instanceof StringDataType)) {
+        if (!(parameters[2] instanceof StringDataType)) {
             throw new RuntimeException("Third parameter of Left must be a string");
         }
-        StringDataType result = (StringDataType) parameters.get(2);
+        StringDataType result = (StringDataType) parameters[2];
         
-        // Get the left substring
-        String sourceStr = source.getValue();
+        // Slice the left part out of the source without copying it
         int lengthVal = length.getValue();
         
         if (lengthVal <= 0) {
             result.setValue("");
         } else {
-            result.setValue(sourceStr.substring(0, Math.min(lengthVal, sourceStr.length())));
+            result.setSlice(source, 0, Math.min(lengthVal, source.length()));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package Shanks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class BuiltInMapArray implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "maparray";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The array is var, as it is replaced by one over the file
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the file name (read-only)
+        if (!(parameters[0] instanceof StringDataType)) {
+            throw new RuntimeException("First parameter of MapArray must be a string");
+        }
+        String name = ((StringDataType) parameters[0]).getValue();
+        
+        // Second parameter is the integer or real array (var parameter)
+        if (!(parameters[1] instanceof IntegerArrayDataType) && !(parameters[1] instanceof RealArrayDataType)) {
+            throw new RuntimeException("Second parameter of MapArray must be an array of integers or reals");
+        }
+        ArrayDataType array = (ArrayDataType) parameters[1];
+        
+        // Each element is 4 little-endian bytes, so the file is the same on every machine
+        long size = (long) array.length() * 4;
+        if (size > Integer.MAX_VALUE) {
+            throw new RuntimeException("MapArray: an array of " + array.length() + " elements is too large to map");
+        }
+        
+        // The file is created or grown to fit the array; the mapping outlives the channel
+        try (FileChannel channel = FileChannel.open(Paths.get(name), StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (array instanceof IntegerArrayDataType) {
+                // The mapped array keeps the declared element range
+                parameters[1] = new OffHeapIntegerArrayDataType(array.getLowerBound(), file,
+                                                                ((IntegerArrayDataType) array).getElementRange());
+            } else {
+                parameters[1] = new OffHeapRealArrayDataType(array.getLowerBound(), file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("MapArray: can't map " + name + ": " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package Shanks;
+
+public class BuiltInOpenFile implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "openfile";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The last parameter is the var handle
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the file name (read-only)
+        if (!(parameters[0] instanceof StringDataType)) {
+            throw new RuntimeException("First parameter of OpenFile must be a string");
+        }
+        StringDataType name = (StringDataType) parameters[0];
+        
+        // Second parameter is the handle (var parameter)
+        if (!(parameters[1] instanceof IntegerDataType)) {
+            throw new RuntimeException("Second parameter of OpenFile must be an integer");
+        }
+        IntegerDataType handle = (IntegerDataType) parameters[1];
+        
+        handle.setValue(OpenFiles.open(name.getValue()));
+    }
+}
\ No newline at end of file
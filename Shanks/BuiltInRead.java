@@ -1,23 +1,50 @@
 package Shanks;
-import java.util.List;
 import java.util.Scanner;
 
 
-public class BuiltInRead extends Shanks.FunctionNode {
+public class BuiltInRead implements BuiltIn {
     private static Scanner scanner = new Scanner(System.in);
+    // Set for batch input: no prompts, read through an InputSource instead of the Scanner
+    private static InputSource batchInput;
     
-    public BuiltInRead() {
-        super("read");
+    @Override
+    public String getName() {
+        return "read";
     }
     
+    // Takes any number of parameters
     @Override
-    public boolean isVariadic() {
-        return true;
+    public int getParameterCount() {
+        return -1;
     }
     
+    // Every parameter is a var parameter
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
+    public long getVarMask() {
+        return -1L;
+    }
+    
+    public static InputSource getBatchInput() {
+        return batchInput;
+    }
+    
+    public static void setBatchInput(InputSource input) {
+        batchInput = input;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // Make earlier output visible before waiting for input
+        BuiltInWrite.getSink().beforeRead();
+        
         // All parameters must be var parameters
+        if (batchInput != null) {
+            for (InterpreterDataType param : parameters) {
+                batchInput.readInto(param);
+            }
+            return;
+        }
+        
         for (InterpreterDataType param : parameters) {
             System.out.print("Enter value: ");
             String input = scanner.nextLine();
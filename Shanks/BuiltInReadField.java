@@ -0,0 +1,43 @@
+package Shanks;
+
+public class BuiltInReadField implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "readfield";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 3;
+    }
+    
+    // The text and whether there was any are var results
+    @Override
+    public long getVarMask() {
+        return 0b110;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        // First parameter is the handle (read-only)
+        if (!(parameters[0] instanceof IntegerDataType)) {
+            throw new RuntimeException("First parameter of ReadField must be an integer");
+        }
+        InputSource file = OpenFiles.get(((IntegerDataType) parameters[0]).getValue(), "ReadField");
+        
+        // Second parameter is the field (var parameter)
+        if (!(parameters[1] instanceof StringDataType)) {
+            throw new RuntimeException("Second parameter of ReadField must be a string");
+        }
+        StringDataType text = (StringDataType) parameters[1];
+        
+        // Third parameter is false once the file has no more (var parameter)
+        if (!(parameters[2] instanceof BooleanDataType)) {
+            throw new RuntimeException("Third parameter of ReadField must be a boolean");
+        }
+        BooleanDataType found = (BooleanDataType) parameters[2];
+        
+        found.setValue(file.readField(text));
+    }
+}
\ No newline at end of file
@@ -1,30 +1,37 @@
 package Shanks;
-import java.util.List;
 
 
-public class BuiltInRealToInteger extends Shanks.FunctionNode {
+public class BuiltInRealToInteger implements BuiltIn {
     
-    public BuiltInRealToInteger() {
-        super("realtointeger");
+    @Override
+    public String getName() {
+        return "realtointeger";
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 2) {
-            throw new RuntimeException("RealToInteger function requires exactly 2 parameters");
-        }
-        
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // First parameter is the real (read-only)
-        if (!(parameters.get(0) instanceof RealDataType)) {
+        if (!(parameters[0] instanceof RealDataType)) {
             throw new RuntimeException("First parameter of RealToInteger must be a real");
         }
-        RealDataType realValue = (RealDataType) parameters.get(0);
+        RealDataType realValue = (RealDataType) parameters[0];
         
         // Second parameter is the result integer (var parameter)
-        if (!(parameters.get(1) instanceof IntegerDataType)) {
+        if (!(parameters[1] instanceof IntegerDataType)) {
             throw new RuntimeException("Second parameter of RealToInteger must be an integer");
         }
-        IntegerDataType intResult = (IntegerDataType) parameters.get(1);
+        IntegerDataType intResult = (IntegerDataType) parameters[1];
         
         // Convert real to integer (truncate)
         intResult.setValue((int) realValue.getValue());
@@ -0,0 +1,71 @@
+package Shanks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.random.RandomGenerator;
+
+/**
+ * Collects the built-in functions: the standard ones, plus any extra ones found with
+ * ServiceLoader, so helpers can be added without changing the interpreter.
+ */
+public final class BuiltInRegistry {
+    private BuiltInRegistry() {
+    }
+    
+    /**
+     * Loads every built-in, with a random generator seeded differently every time
+     * @return Map of lower-case names to built-ins
+     */
+    public static Map<String, BuiltIn> load() {
+        return load(null);
+    }
+    
+    /**
+     * Loads every built-in
+     * @param seed The seed for GetRandom and FillRandom, or null to seed them differently every time
+     * @return Map of lower-case names to built-ins
+     */
+    public static Map<String, BuiltIn> load(Long seed) {
+        Map<String, BuiltIn> builtIns = new LinkedHashMap<>();
+        // GetRandom and FillRandom draw from the same generator
+        RandomGenerator random = BuiltInGetRandom.newGenerator(seed);
+        register(builtIns, new BuiltInRead());
+        register(builtIns, new BuiltInWrite());
+        register(builtIns, new BuiltInLeft());
+        register(builtIns, new BuiltInRight());
+        register(builtIns, new BuiltInSubstring());
+        register(builtIns, new BuiltInSquareRoot());
+        register(builtIns, new BuiltInGetRandom(random));
+        register(builtIns, new BuiltInFillRandom(random));
+        register(builtIns, new BuiltInIntegerToReal());
+        register(builtIns, new BuiltInRealToInteger());
+        register(builtIns, new BuiltInStart());
+        register(builtIns, new BuiltInEnd());
+        register(builtIns, new BuiltInOpenFile());
+        register(builtIns, new BuiltInReadLine());
+        register(builtIns, new BuiltInReadField());
+        register(builtIns, new BuiltInCloseFile());
+        register(builtIns, new BuiltInArrayFill());
+        register(builtIns, new BuiltInArrayCopy());
+        register(builtIns, new BuiltInArraySum());
+        register(builtIns, new BuiltInArrayMin());
+        register(builtIns, new BuiltInArrayMax());
+        register(builtIns, new BuiltInArrayIndexOf());
+        register(builtIns, new BuiltInArraySort());
+        register(builtIns, new BuiltInMapArray());
+        
+        for (BuiltIn builtIn : ServiceLoader.load(BuiltIn.class)) {
+            register(builtIns, builtIn);
+        }
+        return builtIns;
+    }
+    
+    private static void register(Map<String, BuiltIn> builtIns, BuiltIn builtIn) {
+        String name = builtIn.getName().toLowerCase();
+        if (builtIns.containsKey(name)) {
+            throw new RuntimeException("Built-in function '" + name + "' is defined twice");
+        }
+        builtIns.put(name, builtIn);
+    }
+}
\ No newline at end of file
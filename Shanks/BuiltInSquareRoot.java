@@ -1,21 +1,28 @@
 package Shanks;
-import java.util.List;
 
 
-public class BuiltInSquareRoot extends Shanks.FunctionNode {
+public class BuiltInSquareRoot implements BuiltIn {
     
-    public BuiltInSquareRoot() {
-        super("squareroot");
+    @Override
+    public String getName() {
+        return "squareroot";
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 2) {
-            throw new RuntimeException("SquareRoot function requires exactly 2 parameters");
-        }
-        
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // First parameter is the number (read-only)
-        InterpreterDataType number = parameters.get(0);
+        InterpreterDataType number = parameters[0];
         float value;
         
         if (number instanceof IntegerDataType) {
@@ -27,10 +34,10 @@ public class BuiltInSquareRoot extends Shanks.FunctionNode {
         }
         
         // Second parameter is the result (var parameter)
-        if (!(parameters.get(1) instanceof RealDataType)) {
+        if (!(parameters[1] instanceof RealDataType)) {
             throw new RuntimeException("Second parameter of SquareRoot must be a real");
         }
-        RealDataType result = (RealDataType) parameters.get(1);
+        RealDataType result = (RealDataType) parameters[1];
         
         // Calculate square root
         if (value < 0) {
@@ -1,32 +1,38 @@
 package Shanks;
-import java.util.List;
 
-public class BuiltInStart extends Shanks.FunctionNode {
+public class BuiltInStart implements BuiltIn {
     
-    public BuiltInStart() {
-        super("start");
+    @Override
+    public String getName() {
+        return "start";
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 2) {
-            throw new RuntimeException("Start function requires exactly 2 parameters");
-        }
-        
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // First parameter is the string (read-only)
-        if (!(parameters.get(0) instanceof StringDataType)) {
+        if (!(parameters[0] instanceof StringDataType)) {
             throw new RuntimeException("First parameter of Start must be a string");
         }
-        StringDataType stringValue = (StringDataType) parameters.get(0);
+        StringDataType stringValue = (StringDataType) parameters[0];
         
         // Second parameter is the result integer (var parameter)
-        if (!(parameters.get(1) instanceof IntegerDataType)) {
+        if (!(parameters[1] instanceof IntegerDataType)) {
             throw new RuntimeException("Second parameter of Start must be an integer");
         }
-        IntegerDataType intResult = (IntegerDataType) parameters.get(1);
+        IntegerDataType intResult = (IntegerDataType) parameters[1];
         
         // Get the start index (1 for non-empty strings, 0 for empty)
-        String str = stringValue.getValue();
-        intResult.setValue(str.isEmpty() ? 0 : 1);
+        intResult.setValue(stringValue.length() == 0 ? 0 : 1);
     }
 }
\ No newline at end of file
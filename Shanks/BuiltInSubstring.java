@@ -1,57 +1,63 @@
 package Shanks;
-import java.util.List;
 
-public class BuiltInSubstring extends Shanks.FunctionNode {
+public class BuiltInSubstring implements BuiltIn {
     
-    public BuiltInSubstring() {
-        super("substring");
+    @Override
+    public String getName() {
+        return "substring";
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
-        if (parameters.size() != 4) {
-            throw new RuntimeException("Substring function requires exactly 4 parameters");
-        }
-        
+    public int getParameterCount() {
+        return 4;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b1000;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
         // First parameter is the source string (read-only)
-        if (!(parameters.get(0) instanceof StringDataType)) {
+        if (!(parameters[0] instanceof StringDataType)) {
             throw new RuntimeException("First parameter of Substring must be a string");
         }
-        StringDataType source = (StringDataType) parameters.get(0);
+        StringDataType source = (StringDataType) parameters[0];
         
         // Second parameter is the start index (read-only)
-        if (!(parameters.get(1) instanceof IntegerDataType)) {
+        if (!(parameters[1] instanceof IntegerDataType)) {
             throw new RuntimeException("Second parameter of Substring must be an integer");
         }
-        IntegerDataType start = (IntegerDataType) parameters.get(1);
+        IntegerDataType start = (IntegerDataType) parameters[1];
         
         // Third parameter is the length (read-only)
-        if (!(parameters.get(2) instanceof IntegerDataType)) {
+        if (!(parameters[2] instanceof IntegerDataType)) {
             throw new RuntimeException("Third parameter of Substring must be an integer");
         }
-        IntegerDataType length = (IntegerDataType) parameters.get(2);
+        IntegerDataType length = (IntegerDataType) parameters[2];
         
         // Fourth parameter is the result (var parameter)
-        if (!(parameters.get(3) instanceof StringDataType)) {
+        if (!(parameters[3] instanceof StringDataType)) {
             throw new RuntimeException("Fourth parameter of Substring must be a string");
         }
-        StringDataType result = (StringDataType) parameters.get(3);
+        StringDataType result = (StringDataType) parameters[3];
         
-        // Get the substring
-        String sourceStr = source.getValue();
+        // Slice the substring out of the source without copying it
         int startVal = start.getValue();
         int lengthVal = length.getValue();
         
-        if (startVal < 1 || startVal > sourceStr.length() || lengthVal <= 0) {
+        if (startVal < 1 || startVal > source.length() || lengthVal <= 0) {
             result.setValue("");
         } else {
             // Adjust for 1-based indexing
             startVal = startVal - 1;
             
             // Ensure we don't go past the end of the string
-            int endVal = Math.min(startVal + lengthVal, sourceStr.length());
+            int endVal = Math.min(startVal + lengthVal, source.length());
             
-            result.setValue(sourceStr.substring(startVal, endVal));
+            result.setSlice(source, startVal, endVal - startVal);
         }
     }
 }
\ No newline at end of file
@@ -1,22 +1,50 @@
 package Shanks;
-import java.util.List;
 
-public class BuiltInWrite extends Shanks.FunctionNode {
+public class BuiltInWrite implements BuiltIn {
+    // Where written values go; buffered, and flushed by Shank when the program ends
+    private static OutputSink sink = OutputSink.stdout();
     
-    public BuiltInWrite() {
-        super("write");
+    @Override
+    public String getName() {
+        return "write";
+    }
+    
+    // Takes any number of parameters
+    @Override
+    public int getParameterCount() {
+        return -1;
     }
     
     @Override
-    public boolean isVariadic() {
-        return true;
+    public long getVarMask() {
+        return 0;
+    }
+    
+    public static OutputSink getSink() {
+        return sink;
+    }
+    
+    public static void setSink(OutputSink newSink) {
+        sink = newSink;
     }
     
     @Override
-    public void execute(List<InterpreterDataType> parameters) {
+    public void execute(InterpreterDataType[] parameters) {
         for (InterpreterDataType param : parameters) {
-            System.out.print(param.ToString() + " ");
+            // Numbers and characters go straight into the buffer, without a String
+            if (param instanceof StringDataType) {
+                ((StringDataType) param).writeTo(sink);
+            } else if (param instanceof IntegerDataType) {
+                sink.writeInteger(((IntegerDataType) param).getValue());
+            } else if (param instanceof RealDataType) {
+                sink.writeReal(((RealDataType) param).getValue());
+            } else if (param instanceof CharacterDataType) {
+                sink.write(((CharacterDataType) param).getValue());
+            } else {
+                sink.write(param.ToString());
+            }
+            sink.write(' ');
         }
-        System.out.println();
+        sink.newLine();
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package Shanks;
+import java.util.Arrays;
+
+/**
+ * An array of integers whose declared element range fits in a byte, such as
+ * "array from 1 to 1000 of integer from 0 to 255", stored in a byte[] at a quarter of the
+ * memory. Ranges reaching past 127 are stored unsigned. Storing a value outside the range is
+ * an error, so nothing is ever cut short.
+ */
+public class ByteIntegerArrayDataType extends IntegerArrayDataType {
+    private byte[] values;
+    // Whether bytes hold 0 to 255 rather than -128 to 127
+    private final boolean unsigned;
+    
+    public ByteIntegerArrayDataType(int lowerBound, int length, RangeCheck range) {
+        this(lowerBound, length, range, new byte[length]);
+    }
+    
+    private ByteIntegerArrayDataType(int lowerBound, int length, RangeCheck range, byte[] values) {
+        super(lowerBound, length, null, range);
+        this.values = values;
+        this.unsigned = range.getTo() > Byte.MAX_VALUE;
+    }
+    
+    /**
+     * Checks whether a byte can hold every value of a range, as well as the 0 every element starts as
+     * @param range The declared element range
+     * @return True if it can
+     */
+    public static boolean fits(RangeCheck range) {
+        int low = Math.min(range.getFrom(), 0);
+        int high = Math.max(range.getTo(), 0);
+        return low >= Byte.MIN_VALUE && high <= Byte.MAX_VALUE || low >= 0 && high <= 0xFF;
+    }
+    
+    private int decode(byte value) {
+        return unsigned ? value & 0xFF : value;
+    }
+    
+    @Override
+    public int getInt(int index) {
+        return decode(values[offset(index)]);
+    }
+    
+    @Override
+    public void setInt(int index, int value) {
+        range.checkInt(value);
+        beforeWrite();
+        values[offset(index)] = (byte) value;
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new ByteIntegerArrayDataType(lowerBound, length, range, values);
+    }
+    
+    @Override
+    protected void detach() {
+        values = values.clone();
+    }
+    
+    @Override
+    protected void copyElements(ArrayDataType source, int sourceStart, int targetStart, int count) {
+        // Bytes that mean the same values, from a range inside this one, can be copied as they are
+        if (source instanceof ByteIntegerArrayDataType) {
+            ByteIntegerArrayDataType other = (ByteIntegerArrayDataType) source;
+            if (other.unsigned == unsigned && range.contains(other.range.getFrom(), other.range.getTo())) {
+                System.arraycopy(other.values, sourceStart, values, targetStart, count);
+                return;
+            }
+        }
+        super.copyElements(source, sourceStart, targetStart, count);
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        range.checkInt(((IntegerDataType) value).getValue());
+        beforeWrite();
+        Arrays.fill(values, start, to - lowerBound + 1, (byte) ((IntegerDataType) value).getValue());
+    }
+    
+    @Override
+    public void sum(int from, int to, InterpreterDataType result) {
+        int start = checkRange("ArraySum", from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers("ArraySum", result);
+        }
+        int total = 0;
+        for (int i = start; i <= to - lowerBound; i++) {
+            total += decode(values[i]);
+        }
+        ((IntegerDataType) result).setValue(total);
+    }
+    
+    @Override
+    public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+        int start = checkNonEmptyRange(builtIn, from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers(builtIn, result);
+        }
+        int best = decode(values[start]);
+        for (int i = start + 1; i <= to - lowerBound; i++) {
+            best = largest ? Math.max(best, decode(values[i])) : Math.min(best, decode(values[i]));
+        }
+        ((IntegerDataType) result).setValue(best);
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        int wanted = ((IntegerDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (decode(values[i]) == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        // There are only 256 possible values, so count them and write them back in order
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        int[] counts = new int[256];
+        for (int i = start; i < end; i++) {
+            counts[decode(values[i]) - (unsigned ? 0 : Byte.MIN_VALUE)]++;
+        }
+        int position = start;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            Arrays.fill(values, position, position + counts[bucket], (byte) (bucket + (unsigned ? 0 : Byte.MIN_VALUE)));
+            position += counts[bucket];
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        return null;
+    }
+}
\ No newline at end of file
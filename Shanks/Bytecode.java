@@ -0,0 +1,204 @@
+package Shanks;
+
+/**
+ * Instruction set for the VirtualMachine. Each instruction is an opcode followed by its
+ * operands in the same int array. Integers, reals (as raw float bits), booleans (0/1) and
+ * characters live on the int stack; strings and variable references live on the object stack.
+ * A string on the object stack is a StringDataType that is only read: SLOAD pushes the
+ * variable itself, and SSTORE and BOXS copy the value out rather than keeping the reference.
+ */
+public final class Bytecode {
+    // Constants: ICONST value, RCONST floatBits, SCONST poolIndex
+    public static final int ICONST = 0;
+    public static final int RCONST = 1;
+    public static final int SCONST = 2;
+    
+    // Loads from a frame slot: xLOAD slot
+    public static final int ILOAD = 3;
+    public static final int RLOAD = 4;
+    public static final int BLOAD = 5;
+    public static final int CLOAD = 6;
+    public static final int SLOAD = 7;
+    
+    // Stores into the variable in a frame slot, updating it in place: xSTORE slot
+    public static final int ISTORE = 8;
+    public static final int RSTORE = 9;
+    public static final int BSTORE = 10;
+    public static final int CSTORE = 11;
+    public static final int SSTORE = 12;
+    
+    // References: REF slot pushes the variable itself, OSTORE slot puts one in the slot, COPY copies the top one.
+    // NEWARRAY slot poolIndex puts a new array in the slot, sized as the pooled VariableNode declares.
+    public static final int REF = 13;
+    public static final int OSTORE = 14;
+    public static final int COPY = 15;
+    public static final int NEWARRAY = 16;
+    
+    // Boxing a stack value into a fresh variable for a by-value argument
+    public static final int BOXI = 17;
+    public static final int BOXR = 18;
+    public static final int BOXB = 19;
+    public static final int BOXC = 20;
+    public static final int BOXS = 21;
+    
+    // Arithmetic
+    public static final int IADD = 22;
+    public static final int ISUB = 23;
+    public static final int IMUL = 24;
+    public static final int IDIV = 25;
+    public static final int IMOD = 26;
+    public static final int RADD = 27;
+    public static final int RSUB = 28;
+    public static final int RMUL = 29;
+    public static final int RDIV = 30;
+    public static final int SCONCAT = 31;
+    
+    // Comparisons, pushing 0 or 1
+    public static final int IEQ = 32;
+    public static final int INE = 33;
+    public static final int ILT = 34;
+    public static final int ILE = 35;
+    public static final int IGT = 36;
+    public static final int IGE = 37;
+    public static final int REQ = 38;
+    public static final int RNE = 39;
+    public static final int RLT = 40;
+    public static final int RLE = 41;
+    public static final int RGT = 42;
+    public static final int RGE = 43;
+    public static final int SEQ = 44;
+    public static final int SNE = 45;
+    
+    // Control flow: JMP target, JMPF target, JMPT target
+    public static final int JMP = 46;
+    public static final int JMPF = 47;
+    public static final int JMPT = 48;
+    
+    // For loops keep end, step and counter on the int stack: FORPREP slot, FORLOOP slot bodyStart
+    public static final int FORPREP = 49;
+    public static final int FORLOOP = 50;
+    
+    // Calls: CALL poolIndex, BUILTIN poolIndex (the pool entry is a CallSite)
+    public static final int CALL = 51;
+    public static final int BUILTIN = 52;
+    
+    // FAIL poolIndex throws the pooled message; RETURN ends the function
+    public static final int FAIL = 53;
+    public static final int RETURN = 54;
+    
+    // Superinstructions fusing the most common statement shapes:
+    // IINC slot delta for i := i + 1, xADDTO slot for x := x + expr
+    public static final int IINC = 55;
+    public static final int IADDTO = 56;
+    public static final int RADDTO = 57;
+    
+    // Integer compare-and-jump: JIxx target pops two ints and jumps if the comparison holds
+    public static final int JIEQ = 58;
+    public static final int JINE = 59;
+    public static final int JILT = 60;
+    public static final int JILE = 61;
+    public static final int JIGT = 62;
+    public static final int JIGE = 63;
+    
+    // A for loop body's only assignment fused with FORLOOP: the store's operands, then slot bodyStart
+    public static final int FORISTORE = 64;
+    public static final int FORRSTORE = 65;
+    public static final int FORIADDTO = 66;
+    public static final int FORRADDTO = 67;
+    public static final int FORIINC = 68;
+    
+    // TAILCALL poolIndex calls a function in tail position, handing it the caller's frame
+    public static final int TAILCALL = 69;
+    
+    // Array elements, indexed by the int on top of the stack: xALOAD slot pops the index and
+    // pushes the element; xASTORE slot pops the value, then the index, and stores the element
+    public static final int IALOAD = 70;
+    public static final int RALOAD = 71;
+    public static final int BALOAD = 72;
+    public static final int CALOAD = 73;
+    public static final int SALOAD = 74;
+    public static final int IASTORE = 75;
+    public static final int RASTORE = 76;
+    public static final int BASTORE = 77;
+    public static final int CASTORE = 78;
+    public static final int SASTORE = 79;
+    
+    // Var array element arguments: ELEMBOX slot pushes a box holding the element at the index on
+    // top of the int stack, leaving the index there; PICK n pushes the object n below the top again;
+    // ELEMSTORE slot pops a box and its index after the call and stores the box's value back
+    public static final int ELEMBOX = 80;
+    public static final int PICK = 81;
+    public static final int ELEMSTORE = 82;
+    
+    // CHECK slot poolIndex checks a range-constrained variable against the pooled RangeCheck
+    public static final int CHECK = 83;
+    
+    private static final String[] NAMES = {
+        "ICONST", "RCONST", "SCONST",
+        "ILOAD", "RLOAD", "BLOAD", "CLOAD", "SLOAD",
+        "ISTORE", "RSTORE", "BSTORE", "CSTORE", "SSTORE",
+        "REF", "OSTORE", "COPY", "NEWARRAY",
+        "BOXI", "BOXR", "BOXB", "BOXC", "BOXS",
+        "IADD", "ISUB", "IMUL", "IDIV", "IMOD",
+        "RADD", "RSUB", "RMUL", "RDIV", "SCONCAT",
+        "IEQ", "INE", "ILT", "ILE", "IGT", "IGE",
+        "REQ", "RNE", "RLT", "RLE", "RGT", "RGE",
+        "SEQ", "SNE",
+        "JMP", "JMPF", "JMPT",
+        "FORPREP", "FORLOOP",
+        "CALL", "BUILTIN",
+        "FAIL", "RETURN",
+        "IINC", "IADDTO", "RADDTO",
+        "JIEQ", "JINE", "JILT", "JILE", "JIGT", "JIGE",
+        "FORISTORE", "FORRSTORE", "FORIADDTO", "FORRADDTO", "FORIINC",
+        "TAILCALL",
+        "IALOAD", "RALOAD", "BALOAD", "CALOAD", "SALOAD",
+        "IASTORE", "RASTORE", "BASTORE", "CASTORE", "SASTORE",
+        "ELEMBOX", "PICK", "ELEMSTORE",
+        "CHECK"
+    };
+    
+    private static final int[] OPERAND_COUNTS = {
+        1, 1, 1,
+        1, 1, 1, 1, 1,
+        1, 1, 1, 1, 1,
+        1, 1, 0, 2,
+        0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0,
+        0, 0,
+        1, 1, 1,
+        1, 2,
+        1, 1,
+        1, 0,
+        2, 1, 1,
+        1, 1, 1, 1, 1, 1,
+        3, 3, 3, 3, 4,
+        1,
+        1, 1, 1, 1, 1,
+        1, 1, 1, 1, 1,
+        1, 1, 1,
+        2
+    };
+    
+    private Bytecode() {
+    }
+    
+    public static String getName(int opcode) {
+        return NAMES[opcode];
+    }
+    
+    public static int getOperandCount(int opcode) {
+        return OPERAND_COUNTS[opcode];
+    }
+    
+    public static int getOpcodeCount() {
+        return NAMES.length;
+    }
+    
+    public static boolean isSuperinstruction(int opcode) {
+        return opcode >= IINC && opcode <= FORIINC;
+    }
+}
\ No newline at end of file
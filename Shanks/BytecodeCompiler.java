@@ -0,0 +1,757 @@
+package Shanks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles resolved functions into the int-array bytecode run by the VirtualMachine.
+ * Types come from the declared slot types, so every instruction is already specialized
+ * (ILOAD vs RLOAD, IADD vs RADD, and so on). The most common statement shapes are
+ * fused into superinstructions: increments, x := x + expr, integer conditions that
+ * jump, and for loops whose body is a single assignment. Calls in tail position
+ * become TAILCALL, which reuses the caller's frame instead of nesting.
+ */
+public class BytecodeCompiler {
+    private Map<String, FunctionNode> functions;
+    private Map<FunctionNode, BytecodeFunction> compiled;
+    
+    // Code buffer and constant pool of the function being compiled
+    private int[] code;
+    private int length;
+    private int lastInstruction;
+    private List<Object> pool;
+    private String[] slotTypes;
+    // Whether the function being compiled may hand its frame to a call in tail position
+    private boolean tailCallsAllowed;
+    
+    /**
+     * Creates a compiler for a program whose slots have already been resolved
+     * @param functions Map of lower-case function names to functions, as built by the Interpreter
+     */
+    public BytecodeCompiler(Map<String, FunctionNode> functions) {
+        this.functions = functions;
+        this.compiled = new HashMap<>();
+    }
+    
+    /**
+     * Compiles every user-defined function and returns the entry point
+     * @return The compiled "main" function
+     */
+    public BytecodeFunction compileProgram() {
+        FunctionNode mainFunction = functions.get("main");
+        if (mainFunction == null) {
+            throw new RuntimeException("No 'main' function found");
+        }
+        
+        // Create all function shells first so calls (including recursive ones) can link to them
+        for (FunctionNode function : functions.values()) {
+            if (!(function instanceof BuiltInFunction)) {
+                compiled.put(function, new BytecodeFunction(function));
+            }
+        }
+        
+        for (BytecodeFunction function : compiled.values()) {
+            compileFunction(function);
+        }
+        
+        return compiled.get(mainFunction);
+    }
+    
+    /**
+     * Gets every compiled function, for listing
+     * @return The compiled functions
+     */
+    public List<BytecodeFunction> getCompiledFunctions() {
+        return new ArrayList<>(compiled.values());
+    }
+    
+    /**
+     * Compiles the prologue and statements of a function
+     * @param target The function shell to fill in
+     */
+    private void compileFunction(BytecodeFunction target) {
+        FunctionNode function = target.getFunction();
+        code = new int[64];
+        length = 0;
+        pool = new ArrayList<>();
+        slotTypes = function.getSlotTypes();
+        
+        // Our caller copies var arrays back out of our frame when we return, and releases the
+        // copies it made of arrays passed by value, so a function with array parameters must
+        // keep its frame until then
+        tailCallsAllowed = true;
+        for (int i = 0; i < function.getParameters().size(); i++) {
+            if (slotTypes[i].startsWith("array")) {
+                tailCallsAllowed = false;
+            }
+        }
+        
+        // Prologue: constants get their declared value, locals their type's default, each in a
+        // fresh variable that later stores update in place
+        int slot = function.getParameters().size();
+        for (VariableNode constant : function.getConstants()) {
+            compileExpression(constant.getValue());
+            emitBox(SlotResolver.typeOf(constant.getValue(), slotTypes));
+            emit(Bytecode.OSTORE, slot++);
+        }
+        for (VariableNode variable : function.getVariables()) {
+            emitDefault(variable, slot++);
+        }
+        
+        compileBlock(function.getStatements(), true);
+        emit(Bytecode.RETURN);
+        
+        target.setCode(Arrays.copyOf(code, length), pool.toArray());
+    }
+    
+    /**
+     * Compiles a block of statements
+     * @param statements The statements to compile
+     */
+    private void compileBlock(List<StatementNode> statements) {
+        compileBlock(statements, false);
+    }
+    
+    /**
+     * Compiles a block of statements
+     * @param statements The statements to compile
+     * @param tail Whether the block is the last thing its function runs
+     */
+    private void compileBlock(List<StatementNode> statements, boolean tail) {
+        for (int i = 0; i < statements.size(); i++) {
+            compileStatement(statements.get(i), tail && i == statements.size() - 1);
+        }
+    }
+    
+    /**
+     * Compiles a single statement
+     * @param statement The statement to compile
+     * @param tail Whether the statement is the last thing its function runs
+     */
+    private void compileStatement(StatementNode statement, boolean tail) {
+        if (statement instanceof AssignmentNode) {
+            AssignmentNode node = (AssignmentNode) statement;
+            compileAssignment(node);
+            if (node.getRangeCheck() != null) {
+                emit(Bytecode.CHECK, node.getTarget().getSlot(), addToPool(node.getRangeCheck()));
+            }
+        } else if (statement instanceof IfNode) {
+            compileIf((IfNode) statement, tail);
+        } else if (statement instanceof WhileNode) {
+            // Test at the bottom so each iteration takes a single jump
+            WhileNode node = (WhileNode) statement;
+            int jumpToTest = emitJump(Bytecode.JMP);
+            int bodyStart = length;
+            compileBlock(node.getStatements());
+            patch(jumpToTest);
+            int jumpToBody = compileBranch(node.getCondition(), true);
+            code[jumpToBody] = bodyStart;
+        } else if (statement instanceof RepeatNode) {
+            RepeatNode node = (RepeatNode) statement;
+            int bodyStart = length;
+            compileBlock(node.getStatements());
+            int jumpToBody = compileBranch(node.getCondition(), false);
+            code[jumpToBody] = bodyStart;
+        } else if (statement instanceof ForNode) {
+            compileFor((ForNode) statement);
+        } else if (statement instanceof FunctionCallNode) {
+            compileCall((FunctionCallNode) statement, tail);
+        } else {
+            throw new RuntimeException("Unsupported statement type: " + statement.getClass().getName());
+        }
+    }
+    
+    /**
+     * Compiles an assignment, using IINC for i := i + constant and xADDTO for x := x + expr
+     * @param node The assignment node
+     */
+    private void compileAssignment(AssignmentNode node) {
+        if (node.getTarget().getIndexExpression() != null) {
+            compileElementAssignment(node);
+            return;
+        }
+        
+        int slot = node.getTarget().getSlot();
+        String type = slotTypes[slot];
+        Node value = node.getValue();
+        if (!type.equals(SlotResolver.typeOf(value, slotTypes))) {
+            emitFail("Type mismatch in assignment");
+            return;
+        }
+        
+        if (value instanceof MathOpNode && (type.equals("integer") || type.equals("real"))) {
+            MathOpNode mathOp = (MathOpNode) value;
+            MathOpNode.Operation operation = mathOp.getOperation();
+            if (isVariable(mathOp.getLeft(), slot) && node.getTarget().getIndexExpression() == null) {
+                if (type.equals("integer") && mathOp.getRight() instanceof IntegerNode &&
+                    (operation == MathOpNode.Operation.ADD || operation == MathOpNode.Operation.SUBTRACT)) {
+                    int delta = ((IntegerNode) mathOp.getRight()).getValue();
+                    emit(Bytecode.IINC, slot, operation == MathOpNode.Operation.ADD ? delta : -delta);
+                    return;
+                } else if (operation == MathOpNode.Operation.ADD) {
+                    compileExpression(mathOp.getRight());
+                    emit(type.equals("integer") ? Bytecode.IADDTO : Bytecode.RADDTO, slot);
+                    return;
+                }
+            }
+        }
+        
+        compileExpression(value);
+        if (type.startsWith("array")) {
+            // Arrays are assigned a copy, which shares the original's storage until one is written to
+            emit(Bytecode.COPY);
+        }
+        emitStore(slot);
+    }
+    
+    /**
+     * Compiles an assignment to an array element: the index, then the value, then xASTORE
+     * @param node The assignment node
+     */
+    private void compileElementAssignment(AssignmentNode node) {
+        VariableReferenceNode target = node.getTarget();
+        if (!isValidElement(target)) {
+            return;
+        }
+        String type = SlotResolver.typeOf(target, slotTypes);
+        if (!type.equals(SlotResolver.typeOf(node.getValue(), slotTypes))) {
+            emitFail("Type mismatch in assignment");
+            return;
+        }
+        
+        compileExpression(target.getIndexExpression());
+        compileExpression(node.getValue());
+        switch (type) {
+            case "integer": emit(Bytecode.IASTORE, target.getSlot()); break;
+            case "real": emit(Bytecode.RASTORE, target.getSlot()); break;
+            case "boolean": emit(Bytecode.BASTORE, target.getSlot()); break;
+            case "character": emit(Bytecode.CASTORE, target.getSlot()); break;
+            default: emit(Bytecode.SASTORE, target.getSlot()); break;
+        }
+    }
+    
+    /**
+     * Checks an indexed reference, emitting the error it fails with at run time if it is not valid
+     * @param node The indexed reference
+     * @return True if the reference is valid
+     */
+    private boolean isValidElement(VariableReferenceNode node) {
+        if (!slotTypes[node.getSlot()].startsWith("array of ")) {
+            emitFail("Variable " + node.getName() + " is not an array");
+            return false;
+        }
+        if (!SlotResolver.typeOf(node.getIndexExpression(), slotTypes).equals("integer")) {
+            emitFail("Array index must be an integer");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Checks whether an expression is a plain read of the given slot
+     * @param node The expression node
+     * @param slot The slot
+     * @return True if the node reads the slot without an index
+     */
+    private boolean isVariable(Node node, int slot) {
+        return node instanceof VariableReferenceNode &&
+               ((VariableReferenceNode) node).getSlot() == slot &&
+               ((VariableReferenceNode) node).getIndexExpression() == null;
+    }
+    
+    /**
+     * Compiles an if/elsif/else chain
+     * @param node The first if node of the chain
+     * @param tail Whether the chain is the last thing its function runs
+     */
+    private void compileIf(IfNode node, boolean tail) {
+        List<Integer> jumpsToEnd = new ArrayList<>();
+        
+        IfNode current = node;
+        while (current != null && current.getCondition() != null) {
+            int jumpToNext = compileBranch(current.getCondition(), false);
+            compileBlock(current.getStatements(), tail);
+            current = current.getNextIf();
+            if (current != null) {
+                jumpsToEnd.add(emitJump(Bytecode.JMP));
+            }
+            patch(jumpToNext);
+        }
+        
+        if (current != null) {
+            compileBlock(current.getStatements(), tail);
+        }
+        
+        for (int jump : jumpsToEnd) {
+            patch(jump);
+        }
+    }
+    
+    /**
+     * Compiles a for loop. The loop always runs at least once, counting up or down
+     * depending on whether the start is below the end, like the Interpreter.
+     * @param node The for node
+     */
+    private void compileFor(ForNode node) {
+        if (!SlotResolver.typeOf(node.getFromExpr(), slotTypes).equals("integer") ||
+            !SlotResolver.typeOf(node.getToExpr(), slotTypes).equals("integer")) {
+            emitFail("For loop range must be integers");
+            return;
+        }
+        
+        int slot = node.getVariable().getSlot();
+        compileExpression(node.getFromExpr());
+        compileExpression(node.getToExpr());
+        emit(Bytecode.FORPREP, slot);
+        int bodyStart = length;
+        if (node.getRangeCheck() != null) {
+            // The counter wasn't proven to stay in range, so check it each time round
+            emit(Bytecode.CHECK, slot, addToPool(node.getRangeCheck()));
+        }
+        compileBlock(node.getStatements());
+        
+        // A single assignment's store is fused with the loop-back; its code has no jumps into it
+        if (node.getStatements().size() == 1 && node.getStatements().get(0) instanceof AssignmentNode) {
+            int fused;
+            switch (code[lastInstruction]) {
+                case Bytecode.ISTORE: fused = Bytecode.FORISTORE; break;
+                case Bytecode.RSTORE: fused = Bytecode.FORRSTORE; break;
+                case Bytecode.IADDTO: fused = Bytecode.FORIADDTO; break;
+                case Bytecode.RADDTO: fused = Bytecode.FORRADDTO; break;
+                case Bytecode.IINC: fused = Bytecode.FORIINC; break;
+                default: fused = -1; break;
+            }
+            if (fused >= 0) {
+                int[] operands = Arrays.copyOfRange(code, lastInstruction + 1, length);
+                length = lastInstruction;
+                if (operands.length == 2) {
+                    emit(fused, operands[0], operands[1], slot, bodyStart);
+                } else {
+                    emit(fused, operands[0], slot, bodyStart);
+                }
+                return;
+            }
+        }
+        emit(Bytecode.FORLOOP, slot, bodyStart);
+    }
+    
+    /**
+     * Compiles a function call. Arguments are pushed on the object stack as variables:
+     * var arguments as the caller's variable, value arguments boxed into a fresh one.
+     * Var array elements are boxed by ELEMBOX before the arguments, with their indexes left
+     * on the int stack, so ELEMSTORE can store each box back once the call returns.
+     * @param node The function call node
+     * @param tail Whether the call is the last thing its function runs
+     */
+    private void compileCall(FunctionCallNode node, boolean tail) {
+        FunctionNode function = node.getFunction();
+        List<ParameterNode> callParameters = node.getParameters();
+        List<VariableNode> functionParameters = function.getParameters();
+        boolean builtIn = function instanceof BuiltInFunction;
+        
+        if (!builtIn && callParameters.size() != functionParameters.size()) {
+            emitFail("Function " + function.getName() + " expects " +
+                     functionParameters.size() + " parameters, but got " +
+                     callParameters.size());
+            return;
+        }
+        
+        int[] copyBackSlots = new int[callParameters.size()];
+        boolean copiesBack = false;
+        List<Integer> copiedArrays = new ArrayList<>();
+        boolean checksRanges = callParameters.stream().anyMatch(callParam -> callParam.getRangeCheck() != null);
+        
+        // Box the var array elements that are stored back, keeping them below the arguments
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < callParameters.size(); i++) {
+            VariableReferenceNode reference = callParameters.get(i).getVariableReference();
+            if (callParameters.get(i).isVar() && reference.getIndexExpression() != null &&
+                (builtIn || functionParameters.get(i).isVar())) {
+                if (!isValidElement(reference)) {
+                    return;
+                }
+                compileExpression(reference.getIndexExpression());
+                emit(Bytecode.ELEMBOX, reference.getSlot());
+                elements.add(i);
+            }
+        }
+        
+        for (int i = 0; i < callParameters.size(); i++) {
+            ParameterNode callParam = callParameters.get(i);
+            copyBackSlots[i] = -1;
+            
+            if (elements.contains(i)) {
+                // The box is elements.size() - k below the arguments pushed so far
+                emit(Bytecode.PICK, elements.size() - elements.indexOf(i) - 1 + i);
+            } else if (callParam.isVar() && callParam.getVariableReference().getIndexExpression() != null) {
+                // Elements passed to a value parameter are just read
+                compileExpression(callParam.getVariableReference());
+                emitBox(SlotResolver.typeOf(callParam.getVariableReference(), slotTypes));
+            } else if (callParam.isVar() && !builtIn && !functionParameters.get(i).isVar()) {
+                // A parameter that isn't var gets a copy, so the callee's writes stay its own
+                String type = slotTypes[callParam.getVariableReference().getSlot()];
+                compileExpression(callParam.getVariableReference());
+                emitBox(type);
+                if (type.startsWith("array")) {
+                    copiedArrays.add(i);
+                }
+            } else if (callParam.isVar()) {
+                int slot = callParam.getVariableReference().getSlot();
+                emit(Bytecode.REF, slot);
+                // Scalars are updated in place, so only arrays (assigned by replacement) need copying back
+                if ((builtIn || functionParameters.get(i).isVar()) && slotTypes[slot].startsWith("array")) {
+                    copyBackSlots[i] = slot;
+                    copiesBack = true;
+                }
+            } else {
+                String type = SlotResolver.typeOf(callParam.getExpression(), slotTypes);
+                compileExpression(callParam.getExpression());
+                emitBox(type);
+                if (type.startsWith("array")) {
+                    copiedArrays.add(i);
+                }
+            }
+        }
+        
+        int[] copies = copiedArrays.isEmpty() ? null : copiedArrays.stream().mapToInt(Integer::intValue).toArray();
+        if (builtIn) {
+            emit(Bytecode.BUILTIN, addToPool(new BytecodeFunction.CallSite(
+                node.getBuiltIn(), callParameters.size(), copiesBack ? copyBackSlots : null, copies)));
+        } else {
+            BytecodeFunction.CallSite callSite = new BytecodeFunction.CallSite(
+                compiled.get(function), callParameters.size(), copiesBack ? copyBackSlots : null, copies);
+            // Var arguments are passed as the variables themselves, so they stay valid after our
+            // frame is handed over; only array copy-back needs the frame to survive the call
+            boolean tailCall = tail && tailCallsAllowed && !copiesBack && elements.isEmpty() && !checksRanges;
+            emit(tailCall ? Bytecode.TAILCALL : Bytecode.CALL, addToPool(callSite));
+        }
+        
+        for (int k = elements.size() - 1; k >= 0; k--) {
+            emit(Bytecode.ELEMSTORE, callParameters.get(elements.get(k)).getVariableReference().getSlot());
+        }
+        
+        // Check the range-constrained variables the callee may have stored into
+        if (checksRanges) {
+            for (ParameterNode callParam : callParameters) {
+                if (callParam.getRangeCheck() != null) {
+                    emit(Bytecode.CHECK, callParam.getVariableReference().getSlot(), addToPool(callParam.getRangeCheck()));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Compiles a condition followed by a jump, fusing integer comparisons into a single
+     * compare-and-jump instruction
+     * @param node The condition node
+     * @param jumpIfTrue Whether to jump when the condition holds rather than when it fails
+     * @return The position of the jump's target operand, to be filled in by the caller
+     */
+    private int compileBranch(Node node, boolean jumpIfTrue) {
+        if (node instanceof BooleanCompareNode) {
+            BooleanCompareNode compare = (BooleanCompareNode) node;
+            if (SlotResolver.typeOf(compare.getLeftSide(), slotTypes).equals("integer") &&
+                SlotResolver.typeOf(compare.getRightSide(), slotTypes).equals("integer")) {
+                BooleanCompareNode.ComparisonOperator operator = compare.getOperator();
+                compileExpression(compare.getLeftSide());
+                compileExpression(compare.getRightSide());
+                return emitJump(compareOpcode(jumpIfTrue ? operator : negate(operator), Bytecode.JIEQ));
+            }
+        }
+        
+        compileCondition(node);
+        return emitJump(jumpIfTrue ? Bytecode.JMPT : Bytecode.JMPF);
+    }
+    
+    /**
+     * Gets the operator that holds exactly when the given one does not. This is only
+     * used for integers, where there is no NaN to break it.
+     * @param operator The comparison operator
+     * @return The opposite operator
+     */
+    private BooleanCompareNode.ComparisonOperator negate(BooleanCompareNode.ComparisonOperator operator) {
+        switch (operator) {
+            case EQUAL: return BooleanCompareNode.ComparisonOperator.NOT_EQUAL;
+            case NOT_EQUAL: return BooleanCompareNode.ComparisonOperator.EQUAL;
+            case LESS_THAN: return BooleanCompareNode.ComparisonOperator.GREATER_EQUAL;
+            case LESS_EQUAL: return BooleanCompareNode.ComparisonOperator.GREATER_THAN;
+            case GREATER_THAN: return BooleanCompareNode.ComparisonOperator.LESS_EQUAL;
+            case GREATER_EQUAL: return BooleanCompareNode.ComparisonOperator.LESS_THAN;
+            default: throw new RuntimeException("Unsupported comparison: " + operator);
+        }
+    }
+    
+    /**
+     * Compiles a condition, leaving 0 or 1 on the int stack
+     * @param node The condition node
+     */
+    private void compileCondition(Node node) {
+        if (!(node instanceof BooleanCompareNode)) {
+            compileExpression(node);
+            return;
+        }
+        
+        BooleanCompareNode compare = (BooleanCompareNode) node;
+        String leftType = SlotResolver.typeOf(compare.getLeftSide(), slotTypes);
+        String rightType = SlotResolver.typeOf(compare.getRightSide(), slotTypes);
+        
+        if (!leftType.equals(rightType)) {
+            emitFail("Unsupported operand types for comparison");
+            return;
+        }
+        
+        int opcode;
+        switch (leftType) {
+            case "integer":
+            case "boolean":
+                opcode = compareOpcode(compare.getOperator(), Bytecode.IEQ);
+                if (leftType.equals("boolean") && opcode != Bytecode.IEQ && opcode != Bytecode.INE) {
+                    emitFail("Only equality comparisons are supported for booleans");
+                    return;
+                }
+                break;
+            case "real":
+                opcode = compareOpcode(compare.getOperator(), Bytecode.REQ);
+                break;
+            case "string":
+                opcode = compareOpcode(compare.getOperator(), Bytecode.SEQ);
+                if (opcode != Bytecode.SEQ && opcode != Bytecode.SNE) {
+                    emitFail("Only equality comparisons are supported for strings");
+                    return;
+                }
+                break;
+            default:
+                emitFail("Unsupported operand types for comparison");
+                return;
+        }
+        
+        compileExpression(compare.getLeftSide());
+        compileExpression(compare.getRightSide());
+        emit(opcode);
+    }
+    
+    /**
+     * Maps a comparison operator onto the opcode family starting at the given EQ opcode
+     * (EQ, NE, LT, LE, GT, GE are consecutive)
+     * @param operator The comparison operator
+     * @param equalOpcode The EQ opcode of the family
+     * @return The opcode
+     */
+    private int compareOpcode(BooleanCompareNode.ComparisonOperator operator, int equalOpcode) {
+        switch (operator) {
+            case EQUAL: return equalOpcode;
+            case NOT_EQUAL: return equalOpcode + 1;
+            case LESS_THAN: return equalOpcode + 2;
+            case LESS_EQUAL: return equalOpcode + 3;
+            case GREATER_THAN: return equalOpcode + 4;
+            case GREATER_EQUAL: return equalOpcode + 5;
+            default: throw new RuntimeException("Unsupported comparison: " + operator);
+        }
+    }
+    
+    /**
+     * Compiles an expression, leaving its value on the stack for its type
+     * @param node The expression node
+     */
+    private void compileExpression(Node node) {
+        if (node instanceof VariableReferenceNode && ((VariableReferenceNode) node).getIndexExpression() != null) {
+            compileElementRead((VariableReferenceNode) node);
+        } else if (node instanceof VariableReferenceNode) {
+            int slot = ((VariableReferenceNode) node).getSlot();
+            switch (slotTypes[slot]) {
+                case "integer": emit(Bytecode.ILOAD, slot); break;
+                case "real": emit(Bytecode.RLOAD, slot); break;
+                case "boolean": emit(Bytecode.BLOAD, slot); break;
+                case "character": emit(Bytecode.CLOAD, slot); break;
+                case "string": emit(Bytecode.SLOAD, slot); break;
+                default: emit(Bytecode.REF, slot); break;
+            }
+        } else if (node instanceof IntegerNode) {
+            emit(Bytecode.ICONST, ((IntegerNode) node).getValue());
+        } else if (node instanceof RealNode) {
+            emit(Bytecode.RCONST, Float.floatToRawIntBits(((RealNode) node).getValue()));
+        } else if (node instanceof StringNode) {
+            emit(Bytecode.SCONST, addToPool(new StringDataType(((StringNode) node).getValue())));
+        } else if (node instanceof BooleanNode) {
+            emit(Bytecode.ICONST, ((BooleanNode) node).getValue() ? 1 : 0);
+        } else if (node instanceof CharacterNode) {
+            emit(Bytecode.ICONST, ((CharacterNode) node).getValue());
+        } else if (node instanceof MathOpNode) {
+            compileMathOp((MathOpNode) node);
+        } else if (node instanceof BooleanCompareNode) {
+            compileCondition(node);
+        } else if (node instanceof FunctionCallNode) {
+            // Function calls do not return values yet
+            compileCall((FunctionCallNode) node, false);
+            emitFail("Function " + ((FunctionCallNode) node).getName() + " does not return a value");
+        } else {
+            throw new RuntimeException("Unsupported expression type: " + node.getClass().getName());
+        }
+    }
+    
+    /**
+     * Compiles a read of an array element: the index, then xALOAD
+     * @param node The indexed reference
+     */
+    private void compileElementRead(VariableReferenceNode node) {
+        if (!isValidElement(node)) {
+            return;
+        }
+        compileExpression(node.getIndexExpression());
+        switch (SlotResolver.typeOf(node, slotTypes)) {
+            case "integer": emit(Bytecode.IALOAD, node.getSlot()); break;
+            case "real": emit(Bytecode.RALOAD, node.getSlot()); break;
+            case "boolean": emit(Bytecode.BALOAD, node.getSlot()); break;
+            case "character": emit(Bytecode.CALOAD, node.getSlot()); break;
+            default: emit(Bytecode.SALOAD, node.getSlot()); break;
+        }
+    }
+    
+    /**
+     * Compiles a math operation into the instruction for its operand types
+     * @param node The math operation node
+     */
+    private void compileMathOp(MathOpNode node) {
+        String leftType = SlotResolver.typeOf(node.getLeft(), slotTypes);
+        String rightType = SlotResolver.typeOf(node.getRight(), slotTypes);
+        
+        if (!leftType.equals(rightType)) {
+            emitFail("Type mismatch in math operation");
+            return;
+        }
+        
+        int opcode;
+        switch (leftType) {
+            case "integer":
+                switch (node.getOperation()) {
+                    case ADD: opcode = Bytecode.IADD; break;
+                    case SUBTRACT: opcode = Bytecode.ISUB; break;
+                    case MULTIPLY: opcode = Bytecode.IMUL; break;
+                    case DIVIDE: opcode = Bytecode.IDIV; break;
+                    default: opcode = Bytecode.IMOD; break;
+                }
+                break;
+            case "real":
+                switch (node.getOperation()) {
+                    case ADD: opcode = Bytecode.RADD; break;
+                    case SUBTRACT: opcode = Bytecode.RSUB; break;
+                    case MULTIPLY: opcode = Bytecode.RMUL; break;
+                    case DIVIDE: opcode = Bytecode.RDIV; break;
+                    default:
+                        emitFail("Unsupported real operation: " + node.getOperation());
+                        return;
+                }
+                break;
+            case "string":
+                if (node.getOperation() != MathOpNode.Operation.ADD) {
+                    emitFail("Only addition is supported for strings");
+                    return;
+                }
+                opcode = Bytecode.SCONCAT;
+                break;
+            default:
+                emitFail("Unsupported operand types for math operation");
+                return;
+        }
+        
+        compileExpression(node.getLeft());
+        compileExpression(node.getRight());
+        emit(opcode);
+    }
+    
+    /**
+     * Emits the store instruction for a slot's declared type
+     * @param slot The slot to store into
+     */
+    private void emitStore(int slot) {
+        switch (slotTypes[slot]) {
+            case "integer": emit(Bytecode.ISTORE, slot); break;
+            case "real": emit(Bytecode.RSTORE, slot); break;
+            case "boolean": emit(Bytecode.BSTORE, slot); break;
+            case "character": emit(Bytecode.CSTORE, slot); break;
+            case "string": emit(Bytecode.SSTORE, slot); break;
+            default: emit(Bytecode.OSTORE, slot); break;
+        }
+    }
+    
+    /**
+     * Emits the instructions that give a local variable its type's default value
+     * @param variable The variable's declaration
+     * @param slot The slot to initialize
+     */
+    private void emitDefault(VariableNode variable, int slot) {
+        String type = slotTypes[slot];
+        switch (type) {
+            case "integer":
+            case "boolean":
+            case "character":
+                emit(Bytecode.ICONST, 0);
+                break;
+            case "real":
+                emit(Bytecode.RCONST, Float.floatToRawIntBits(0.0f));
+                break;
+            case "string":
+                emit(Bytecode.SCONST, addToPool(new StringDataType()));
+                break;
+            default:
+                if (!type.startsWith("array")) {
+                    throw new RuntimeException("Unsupported variable type: " + type);
+                }
+                emit(Bytecode.NEWARRAY, slot, addToPool(variable));
+                return;
+        }
+        emitBox(type);
+        emit(Bytecode.OSTORE, slot);
+    }
+    
+    /**
+     * Emits the instruction that boxes a value of the given type into a fresh variable
+     * @param type The type of the value on the stack
+     */
+    private void emitBox(String type) {
+        switch (type) {
+            case "integer": emit(Bytecode.BOXI); break;
+            case "real": emit(Bytecode.BOXR); break;
+            case "boolean": emit(Bytecode.BOXB); break;
+            case "character": emit(Bytecode.BOXC); break;
+            case "string": emit(Bytecode.BOXS); break;
+            default: emit(Bytecode.COPY); break;
+        }
+    }
+    
+    private void emitFail(String message) {
+        emit(Bytecode.FAIL, addToPool(message));
+    }
+    
+    /**
+     * Emits a forward jump whose target is filled in later by patch
+     * @param opcode The jump opcode
+     * @return The position of the operand to patch
+     */
+    private int emitJump(int opcode) {
+        emit(opcode, -1);
+        return length - 1;
+    }
+    
+    private void patch(int operandPosition) {
+        code[operandPosition] = length;
+    }
+    
+    private int addToPool(Object constant) {
+        pool.add(constant);
+        return pool.size() - 1;
+    }
+    
+    private void emit(int... words) {
+        lastInstruction = length;
+        if (length + words.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+        }
+        for (int word : words) {
+            code[length++] = word;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package Shanks;
+
+/**
+ * A user-defined function compiled to bytecode. The code starts with a prologue that
+ * initializes the constant and local variable slots; the parameter slots are filled by
+ * the caller.
+ */
+public class BytecodeFunction {
+    private FunctionNode function;
+    private int[] code;
+    private Object[] pool;
+    
+    public BytecodeFunction(FunctionNode function) {
+        this.function = function;
+    }
+    
+    public FunctionNode getFunction() {
+        return function;
+    }
+    
+    public String getName() {
+        return function.getName();
+    }
+    
+    public int getSlotCount() {
+        return function.getSlotCount();
+    }
+    
+    public int[] getCode() {
+        return code;
+    }
+    
+    public Object[] getPool() {
+        return pool;
+    }
+    
+    public void setCode(int[] code, Object[] pool) {
+        this.code = code;
+        this.pool = pool;
+    }
+    
+    /**
+     * Lists the instructions one per line, for debugging
+     * @return The disassembled code
+     */
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("bytecode ").append(getName()).append("\n");
+        
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            sb.append(String.format("%5d  %s", pc, Bytecode.getName(opcode)));
+            for (int i = 1; i <= Bytecode.getOperandCount(opcode); i++) {
+                sb.append(" ").append(code[pc + i]);
+            }
+            if (opcode == Bytecode.SCONST || opcode == Bytecode.CALL || opcode == Bytecode.TAILCALL ||
+                opcode == Bytecode.BUILTIN || opcode == Bytecode.FAIL) {
+                Object constant = pool[code[pc + 1]];
+                sb.append("  ; ").append(constant instanceof StringDataType ? ((StringDataType) constant).getValue() : constant);
+            } else if (opcode == Bytecode.NEWARRAY || opcode == Bytecode.CHECK) {
+                sb.append("  ; ").append(pool[code[pc + 2]]);
+            }
+            sb.append("\n");
+            pc += 1 + Bytecode.getOperandCount(opcode);
+        }
+        
+        return sb.toString();
+    }
+    
+    // Operands of a CALL or BUILTIN instruction
+    public static class CallSite {
+        private BuiltIn builtIn;
+        private BytecodeFunction target;
+        private int argumentCount;
+        private int[] copyBackSlots;
+        private int[] copiedArrays;
+        
+        public CallSite(BuiltIn builtIn, int argumentCount, int[] copyBackSlots, int[] copiedArrays) {
+            this.builtIn = builtIn;
+            this.argumentCount = argumentCount;
+            this.copyBackSlots = copyBackSlots;
+            this.copiedArrays = copiedArrays;
+        }
+        
+        public CallSite(BytecodeFunction target, int argumentCount, int[] copyBackSlots, int[] copiedArrays) {
+            this.target = target;
+            this.argumentCount = argumentCount;
+            this.copyBackSlots = copyBackSlots;
+            this.copiedArrays = copiedArrays;
+        }
+        
+        public BuiltIn getBuiltIn() {
+            return builtIn;
+        }
+        
+        public BytecodeFunction getTarget() {
+            return target;
+        }
+        
+        public int getArgumentCount() {
+            return argumentCount;
+        }
+        
+        // Caller slot to copy each var parameter back into, or -1; null when there are none
+        public int[] getCopyBackSlots() {
+            return copyBackSlots;
+        }
+        
+        // Arguments that are copies of arrays passed by value, released once the call returns; null when there are none
+        public int[] getCopiedArrays() {
+            return copiedArrays;
+        }
+        
+        @Override
+        public String toString() {
+            return (builtIn != null ? builtIn.getName() : target.getName()) + "/" + argumentCount;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package Shanks;
+import java.util.Arrays;
+
+/**
+ * An array of characters, stored in a char[]
+ */
+public class CharacterArrayDataType extends ArrayDataType {
+    private char[] values;
+    
+    public CharacterArrayDataType(int lowerBound, int length) {
+        super(lowerBound, length);
+        this.values = new char[length];
+    }
+    
+    private CharacterArrayDataType(int lowerBound, int length, char[] values) {
+        super(lowerBound, length);
+        this.values = values;
+    }
+    
+    @Override
+    public String getElementType() {
+        return "character";
+    }
+    
+    public char getChar(int index) {
+        return values[offset(index)];
+    }
+    
+    public void setChar(int index, char value) {
+        beforeWrite();
+        values[offset(index)] = value;
+    }
+    
+    @Override
+    public InterpreterDataType get(int index) {
+        return new CharacterDataType(getChar(index));
+    }
+    
+    @Override
+    public void set(int index, InterpreterDataType value) {
+        if (!(value instanceof CharacterDataType)) {
+            throw new RuntimeException("Type mismatch in assignment");
+        }
+        setChar(index, ((CharacterDataType) value).getValue());
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new CharacterArrayDataType(lowerBound, length, values);
+    }
+    
+    @Override
+    protected void detach() {
+        values = values.clone();
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof CharacterDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        beforeWrite();
+        Arrays.fill(values, start, to - lowerBound + 1, ((CharacterDataType) value).getValue());
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof CharacterDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        char wanted = ((CharacterDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (values[i] == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        if (end - start >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(values, start, end);
+        } else {
+            Arrays.sort(values, start, end);
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        return values;
+    }
+}
\ No newline at end of file
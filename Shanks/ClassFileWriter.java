@@ -0,0 +1,407 @@
+package Shanks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer for JVM class files, just enough for the JvmCompiler: a constant pool,
+ * one class with a no-argument constructor calling its superclass, and methods assembled
+ * from raw opcodes with forward and backward jump labels.
+ *
+ * Classes are written as version 49 so no StackMapTable is needed; the JVM verifies them
+ * with the type-inferencing verifier.
+ */
+public class ClassFileWriter {
+    // JVM opcodes used by the JvmCompiler
+    public static final int ICONST_M1 = 0x02;
+    public static final int ICONST_0 = 0x03;
+    public static final int FCONST_0 = 0x0b;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC = 0x12;
+    public static final int LDC_W = 0x13;
+    public static final int ILOAD = 0x15;
+    public static final int FLOAD = 0x17;
+    public static final int ALOAD = 0x19;
+    public static final int AALOAD = 0x32;
+    public static final int ISTORE = 0x36;
+    public static final int FSTORE = 0x38;
+    public static final int AASTORE = 0x53;
+    public static final int DUP = 0x59;
+    public static final int IADD = 0x60;
+    public static final int FADD = 0x62;
+    public static final int ISUB = 0x64;
+    public static final int FSUB = 0x66;
+    public static final int IMUL = 0x68;
+    public static final int FMUL = 0x6a;
+    public static final int IDIV = 0x6c;
+    public static final int FDIV = 0x6e;
+    public static final int IREM = 0x70;
+    public static final int FCMPL = 0x95;
+    public static final int FCMPG = 0x96;
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9a;
+    public static final int IFLT = 0x9b;
+    public static final int IFGE = 0x9c;
+    public static final int IFGT = 0x9d;
+    public static final int IFLE = 0x9e;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+    public static final int RETURN = 0xb1;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int NEW = 0xbb;
+    public static final int ATHROW = 0xbf;
+    public static final int CHECKCAST = 0xc0;
+    
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    
+    private String className;
+    private String superName;
+    private ByteBuffer constantPool;
+    private int constantCount;
+    private Map<String, Integer> constants;
+    private List<byte[]> methods;
+    
+    // Code of the method being assembled
+    private ByteBuffer code;
+    private int[] labelPositions;
+    private int labelCount;
+    private List<int[]> jumps;
+    
+    /**
+     * Starts a new public final class
+     * @param className The internal name of the class, e.g. "Shanks/JitCode$1"
+     * @param superName The internal name of the superclass
+     */
+    public ClassFileWriter(String className, String superName) {
+        this.className = className;
+        this.superName = superName;
+        this.constantPool = new ByteBuffer();
+        this.constantCount = 1;
+        this.constants = new HashMap<>();
+        this.methods = new ArrayList<>();
+        
+        // Every class needs a constructor; ours just calls the superclass one
+        beginMethod();
+        emitVar(ALOAD, 0);
+        emitMethodCall(INVOKESPECIAL, superName, "<init>", "()V");
+        emit(RETURN);
+        endMethod(ACC_PUBLIC, "<init>", "()V", 1, 1);
+    }
+    
+    /**
+     * Starts assembling a new method body
+     */
+    public void beginMethod() {
+        code = new ByteBuffer();
+        labelPositions = new int[16];
+        labelCount = 0;
+        jumps = new ArrayList<>();
+    }
+    
+    /**
+     * Finishes the current method, resolving all jumps
+     * @param access The method's access flags
+     * @param name The method name
+     * @param descriptor The method descriptor
+     * @param maxStack The maximum operand stack depth
+     * @param maxLocals The number of local variable slots
+     */
+    public void endMethod(int access, String name, String descriptor, int maxStack, int maxLocals) {
+        byte[] bytes = code.toByteArray();
+        for (int[] jump : jumps) {
+            int offset = labelPositions[jump[1]] - jump[0];
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Method " + name + " is too large to compile");
+            }
+            bytes[jump[0] + 1] = (byte) (offset >> 8);
+            bytes[jump[0] + 2] = (byte) offset;
+        }
+        
+        ByteBuffer method = new ByteBuffer();
+        method.u2(access);
+        method.u2(utf8(name));
+        method.u2(utf8(descriptor));
+        method.u2(1);
+        method.u2(utf8("Code"));
+        method.u4(12 + bytes.length);
+        method.u2(maxStack);
+        method.u2(maxLocals);
+        method.u4(bytes.length);
+        method.bytes(bytes);
+        method.u2(0);
+        method.u2(0);
+        methods.add(method.toByteArray());
+    }
+    
+    public void endMethod(String name, String descriptor, int maxStack, int maxLocals) {
+        endMethod(ACC_PUBLIC, name, descriptor, maxStack, maxLocals);
+    }
+    
+    /**
+     * Produces the finished class file
+     * @return The class file bytes
+     */
+    public byte[] toByteArray() {
+        int thisClass = classConstant(className);
+        int superClass = classConstant(superName);
+        
+        ByteBuffer out = new ByteBuffer();
+        out.u4(0xCAFEBABE);
+        out.u2(0);
+        out.u2(49);
+        out.u2(constantCount);
+        out.bytes(constantPool.toByteArray());
+        out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(0);
+        out.u2(0);
+        out.u2(methods.size());
+        for (byte[] method : methods) {
+            out.bytes(method);
+        }
+        out.u2(0);
+        return out.toByteArray();
+    }
+    
+    // Code emission
+    
+    public void emit(int opcode) {
+        code.u1(opcode);
+    }
+    
+    /**
+     * Emits a load or store of a local variable, using the wide form when needed
+     * @param opcode ILOAD, FLOAD, ALOAD, ISTORE or FSTORE
+     * @param index The local variable index
+     */
+    public void emitVar(int opcode, int index) {
+        if (index > 255) {
+            code.u1(0xc4);
+            code.u1(opcode);
+            code.u2(index);
+        } else {
+            code.u1(opcode);
+            code.u1(index);
+        }
+    }
+    
+    /**
+     * Pushes an int constant with the shortest instruction that holds it
+     * @param value The value to push
+     */
+    public void emitInt(int value) {
+        if (value >= -1 && value <= 5) {
+            code.u1(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.u1(BIPUSH);
+            code.u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.u1(SIPUSH);
+            code.u2(value);
+        } else {
+            emitConstant(constant("I" + value, 3, value));
+        }
+    }
+    
+    /**
+     * Pushes a float constant
+     * @param value The value to push
+     */
+    public void emitFloat(float value) {
+        if (Float.floatToRawIntBits(value) == 0 || value == 1.0f || value == 2.0f) {
+            code.u1(FCONST_0 + (int) value);
+        } else {
+            emitConstant(constant("F" + Float.floatToRawIntBits(value), 4, Float.floatToRawIntBits(value)));
+        }
+    }
+    
+    /**
+     * Pushes a string constant
+     * @param value The value to push
+     */
+    public void emitString(String value) {
+        String key = "S" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int utf8Index = utf8(value);
+            index = constantCount++;
+            constantPool.u1(8);
+            constantPool.u2(utf8Index);
+            constants.put(key, index);
+        }
+        emitConstant(index);
+    }
+    
+    private void emitConstant(int index) {
+        if (index <= 255) {
+            code.u1(LDC);
+            code.u1(index);
+        } else {
+            code.u1(LDC_W);
+            code.u2(index);
+        }
+    }
+    
+    /**
+     * Emits NEW, CHECKCAST or another instruction that takes a class operand
+     * @param opcode The opcode
+     * @param internalName The internal class name
+     */
+    public void emitType(int opcode, String internalName) {
+        code.u1(opcode);
+        code.u2(classConstant(internalName));
+    }
+    
+    /**
+     * Emits a method invocation
+     * @param opcode INVOKEVIRTUAL or INVOKESPECIAL
+     * @param owner The internal name of the class declaring the method
+     * @param name The method name
+     * @param descriptor The method descriptor
+     */
+    public void emitMethodCall(int opcode, String owner, String name, String descriptor) {
+        String key = "M" + owner + "." + name + descriptor;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int classIndex = classConstant(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            index = constantCount++;
+            constantPool.u1(10);
+            constantPool.u2(classIndex);
+            constantPool.u2(nameAndType);
+            constants.put(key, index);
+        }
+        code.u1(opcode);
+        code.u2(index);
+    }
+    
+    // Labels and jumps
+    
+    public int newLabel() {
+        if (labelCount == labelPositions.length) {
+            labelPositions = Arrays.copyOf(labelPositions, labelCount * 2);
+        }
+        labelPositions[labelCount] = -1;
+        return labelCount++;
+    }
+    
+    public void placeLabel(int label) {
+        labelPositions[label] = code.size();
+    }
+    
+    /**
+     * Emits a jump to a label, which may be placed before or after this point
+     * @param opcode GOTO or one of the IF opcodes
+     * @param label The target label
+     */
+    public void emitJump(int opcode, int label) {
+        jumps.add(new int[] { code.size(), label });
+        code.u1(opcode);
+        code.u2(0);
+    }
+    
+    // Constant pool
+    
+    private int utf8(String value) {
+        String key = "U" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            byte[] bytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            index = constantCount++;
+            constantPool.u1(1);
+            constantPool.u2(bytes.length);
+            constantPool.bytes(bytes);
+            constants.put(key, index);
+        }
+        return index;
+    }
+    
+    private int classConstant(String internalName) {
+        String key = "C" + internalName;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int nameIndex = utf8(internalName);
+            index = constantCount++;
+            constantPool.u1(7);
+            constantPool.u2(nameIndex);
+            constants.put(key, index);
+        }
+        return index;
+    }
+    
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + ":" + descriptor;
+        Integer index = constants.get(key);
+        if (index == null) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            index = constantCount++;
+            constantPool.u1(12);
+            constantPool.u2(nameIndex);
+            constantPool.u2(descriptorIndex);
+            constants.put(key, index);
+        }
+        return index;
+    }
+    
+    private int constant(String key, int tag, int value) {
+        Integer index = constants.get(key);
+        if (index == null) {
+            index = constantCount++;
+            constantPool.u1(tag);
+            constantPool.u4(value);
+            constants.put(key, index);
+        }
+        return index;
+    }
+    
+    // Growable big-endian byte buffer
+    private static class ByteBuffer {
+        private byte[] data = new byte[256];
+        private int size;
+        
+        void u1(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = (byte) value;
+        }
+        
+        void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+        
+        void u4(int value) {
+            u2(value >> 16);
+            u2(value);
+        }
+        
+        void bytes(byte[] values) {
+            for (byte value : values) {
+                u1(value);
+            }
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
\ No newline at end of file
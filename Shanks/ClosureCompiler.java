@@ -0,0 +1,1908 @@
+package Shanks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a resolved program into a tree of executable objects, one per statement and
+ * expression. Every decision the tree-walking Interpreter makes on each visit (which node
+ * type, which operand types, which operation) is made once here, so running the result is
+ * a chain of small monomorphic virtual calls.
+ */
+public class ClosureCompiler {
+    private Map<String, FunctionNode> functions;
+    private Map<FunctionNode, CompiledFunction> compiled;
+    private boolean jit;
+    private String functionName;
+    
+    /**
+     * Creates a compiler for a program whose slots have already been resolved
+     * @param functions Map of lower-case function names to functions, as built by the Interpreter
+     */
+    public ClosureCompiler(Map<String, FunctionNode> functions) {
+        this(functions, false);
+    }
+    
+    /**
+     * Creates a compiler for a program whose slots have already been resolved
+     * @param functions Map of lower-case function names to functions, as built by the Interpreter
+     * @param jit True to compile hot loops and functions to JVM bytecode with the JvmCompiler
+     */
+    public ClosureCompiler(Map<String, FunctionNode> functions, boolean jit) {
+        this.functions = functions;
+        this.compiled = new HashMap<>();
+        this.jit = jit;
+    }
+    
+    /**
+     * Compiles every user-defined function and returns the entry point
+     * @return The compiled "main" function
+     */
+    public CompiledFunction compileProgram() {
+        FunctionNode mainFunction = functions.get("main");
+        if (mainFunction == null) {
+            throw new RuntimeException("No 'main' function found");
+        }
+        
+        // Create all function shells first so calls (including recursive ones) can link to them
+        for (FunctionNode function : functions.values()) {
+            if (!isBuiltIn(function)) {
+                compiled.put(function, new CompiledFunction(function));
+            }
+        }
+        
+        for (CompiledFunction function : compiled.values()) {
+            compileFunction(function);
+        }
+        
+        return compiled.get(mainFunction);
+    }
+    
+    /**
+     * Checks whether a function is implemented in Java rather than in Shank
+     * @param function The function to check
+     * @return True if the function is built in
+     */
+    private boolean isBuiltIn(FunctionNode function) {
+        return function instanceof BuiltInFunction;
+    }
+    
+    /**
+     * Compiles the constants, locals and statements of a function
+     * @param target The function shell to fill in
+     */
+    private void compileFunction(CompiledFunction target) {
+        FunctionNode function = target.function;
+        String[] slotTypes = function.getSlotTypes();
+        functionName = function.getName();
+        
+        CompiledExpression[] constants = new CompiledExpression[function.getConstants().size()];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = compileExpression(function.getConstants().get(i).getValue(), slotTypes);
+        }
+        
+        CompiledExpression[] locals = new CompiledExpression[function.getVariables().size()];
+        for (int i = 0; i < locals.length; i++) {
+            locals[i] = compileDefault(function.getVariables().get(i));
+        }
+        
+        target.constants = constants;
+        target.locals = locals;
+        target.body = compileBlock(function.getStatements(), slotTypes);
+        target.jitCandidate = jit && JvmCompiler.canCompile(function.getStatements(), slotTypes);
+    }
+    
+    /**
+     * Chooses how a local variable gets its default value, so building a frame makes no
+     * decisions about types
+     * @param variable The local variable
+     * @return An expression that creates a new default value each time
+     */
+    private static CompiledExpression compileDefault(VariableNode variable) {
+        String type = variable.getType().toLowerCase();
+        switch (type) {
+            case "integer":
+                return new NewInteger();
+            case "real":
+                return new NewReal();
+            case "string":
+                return new NewString();
+            case "character":
+                return new NewCharacter();
+            case "boolean":
+                return new NewBoolean();
+            default:
+                if (type.startsWith("array")) {
+                    return new NewArray(variable);
+                }
+                return new FailValue("Unsupported variable type: " + type);
+        }
+    }
+    
+    /**
+     * Compiles a block of statements
+     * @param statements The statements to compile
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled block
+     */
+    private CompiledStatement compileBlock(List<StatementNode> statements, String[] slotTypes) {
+        CompiledStatement[] compiledStatements = new CompiledStatement[statements.size()];
+        for (int i = 0; i < compiledStatements.length; i++) {
+            compiledStatements[i] = compileStatement(statements.get(i), slotTypes);
+        }
+        
+        if (compiledStatements.length == 1) {
+            return compiledStatements[0];
+        }
+        return new Block(compiledStatements);
+    }
+    
+    /**
+     * Compiles a single statement
+     * @param statement The statement to compile
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled statement
+     */
+    private CompiledStatement compileStatement(StatementNode statement, String[] slotTypes) {
+        if (statement instanceof AssignmentNode) {
+            AssignmentNode node = (AssignmentNode) statement;
+            if (node.getRangeCheck() != null) {
+                return new Checked(compileAssignment(node, slotTypes), new int[] {node.getTarget().getSlot()},
+                                   new RangeCheck[] {node.getRangeCheck()});
+            }
+            return compileAssignment(node, slotTypes);
+        } else if (statement instanceof IfNode) {
+            return compileIf((IfNode) statement, slotTypes);
+        } else if (statement instanceof WhileNode) {
+            WhileNode node = (WhileNode) statement;
+            if (jit && JvmCompiler.canCompile(node, slotTypes)) {
+                return new HotWhile(compileCondition(node.getCondition(), slotTypes), compileBlock(node.getStatements(), slotTypes),
+                                    functionName, node, slotTypes);
+            }
+            return new While(compileCondition(node.getCondition(), slotTypes), compileBlock(node.getStatements(), slotTypes));
+        } else if (statement instanceof RepeatNode) {
+            RepeatNode node = (RepeatNode) statement;
+            if (jit && JvmCompiler.canCompile(node, slotTypes)) {
+                return new HotRepeat(compileCondition(node.getCondition(), slotTypes), compileBlock(node.getStatements(), slotTypes),
+                                     functionName, node, slotTypes);
+            }
+            return new Repeat(compileCondition(node.getCondition(), slotTypes), compileBlock(node.getStatements(), slotTypes));
+        } else if (statement instanceof ForNode) {
+            return compileFor((ForNode) statement, slotTypes);
+        } else if (statement instanceof FunctionCallNode) {
+            return compileCall((FunctionCallNode) statement, slotTypes);
+        } else {
+            throw new RuntimeException("Unsupported statement type: " + statement.getClass().getName());
+        }
+    }
+    
+    /**
+     * Compiles an assignment. The type check the Interpreter does on every assignment is done
+     * here once, from the declared types.
+     * @param node The assignment node
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled assignment
+     */
+    private CompiledStatement compileAssignment(AssignmentNode node, String[] slotTypes) {
+        VariableReferenceNode target = node.getTarget();
+        int slot = target.getSlot();
+        CompiledExpression value = compileExpression(node.getValue(), slotTypes);
+        
+        if (target.getIndexExpression() != null) {
+            return compileElementAssignment(target, value, node.getValue(), slotTypes);
+        }
+        
+        if (!slotTypes[slot].equals(SlotResolver.typeOf(node.getValue(), slotTypes))) {
+            return new Fail("Type mismatch in assignment");
+        }
+        
+        // Scalars are updated in place, so var parameters aliasing the variable see the change
+        switch (slotTypes[slot]) {
+            case "integer": return new IntAssign(slot, value);
+            case "real": return new RealAssign(slot, value);
+            case "boolean": return new BooleanAssign(slot, value);
+            case "character": return new CharacterAssign(slot, value);
+            case "string": return new StringAssign(slot, value);
+            default: return new Assign(slot, new CopyOf(value));
+        }
+    }
+    
+    /**
+     * Compiles an assignment to an array element. Integer and real elements are stored
+     * into the primitive array without being boxed.
+     * @param target The indexed reference assigned to
+     * @param value The compiled value
+     * @param valueNode The value expression
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled assignment
+     */
+    private CompiledStatement compileElementAssignment(VariableReferenceNode target, CompiledExpression value,
+                                                       Node valueNode, String[] slotTypes) {
+        String error = elementError(target, slotTypes);
+        if (error != null) {
+            return new Fail(error);
+        }
+        String elementType = SlotResolver.typeOf(target, slotTypes);
+        if (!elementType.equals(SlotResolver.typeOf(valueNode, slotTypes))) {
+            return new Fail("Type mismatch in assignment");
+        }
+        
+        int slot = target.getSlot();
+        CompiledExpression index = compileExpression(target.getIndexExpression(), slotTypes);
+        switch (elementType) {
+            case "integer": return new IntElementAssign(slot, index, value);
+            case "real": return new RealElementAssign(slot, index, value);
+            default: return new ElementAssign(slot, index, value);
+        }
+    }
+    
+    /**
+     * Checks an indexed reference, the way the Interpreter does when it runs
+     * @param node The indexed reference
+     * @param slotTypes The declared type of each frame slot
+     * @return The error the reference fails with, or null if it is valid
+     */
+    private String elementError(VariableReferenceNode node, String[] slotTypes) {
+        if (!slotTypes[node.getSlot()].startsWith("array of ")) {
+            return "Variable " + node.getName() + " is not an array";
+        }
+        if (!SlotResolver.typeOf(node.getIndexExpression(), slotTypes).equals("integer")) {
+            return "Array index must be an integer";
+        }
+        return null;
+    }
+    
+    /**
+     * Compiles an if/elsif/else chain into parallel arrays of conditions and blocks
+     * @param node The first if node of the chain
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled if statement
+     */
+    private CompiledStatement compileIf(IfNode node, String[] slotTypes) {
+        int count = 0;
+        for (IfNode current = node; current != null && current.getCondition() != null; current = current.getNextIf()) {
+            count++;
+        }
+        
+        CompiledCondition[] conditions = new CompiledCondition[count];
+        CompiledStatement[] blocks = new CompiledStatement[count];
+        CompiledStatement elseBlock = null;
+        
+        IfNode current = node;
+        for (int i = 0; i < count; i++) {
+            conditions[i] = compileCondition(current.getCondition(), slotTypes);
+            blocks[i] = compileBlock(current.getStatements(), slotTypes);
+            current = current.getNextIf();
+        }
+        if (current != null) {
+            elseBlock = compileBlock(current.getStatements(), slotTypes);
+        }
+        
+        if (count == 1) {
+            return new If(conditions[0], blocks[0], elseBlock);
+        }
+        return new IfChain(conditions, blocks, elseBlock);
+    }
+    
+    /**
+     * Compiles a for loop
+     * @param node The for node
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled for loop
+     */
+    private CompiledStatement compileFor(ForNode node, String[] slotTypes) {
+        if (!SlotResolver.typeOf(node.getFromExpr(), slotTypes).equals("integer") ||
+            !SlotResolver.typeOf(node.getToExpr(), slotTypes).equals("integer")) {
+            return new Fail("For loop range must be integers");
+        }
+        
+        if (jit && JvmCompiler.canCompile(node, slotTypes)) {
+            return new HotFor(node.getVariable().getSlot(),
+                              compileExpression(node.getFromExpr(), slotTypes),
+                              compileExpression(node.getToExpr(), slotTypes),
+                              compileBlock(node.getStatements(), slotTypes),
+                              functionName, node, slotTypes);
+        }
+        return new For(node.getVariable().getSlot(),
+                       compileExpression(node.getFromExpr(), slotTypes),
+                       compileExpression(node.getToExpr(), slotTypes),
+                       compileBlock(node.getStatements(), slotTypes),
+                       node.getRangeCheck());
+    }
+    
+    /**
+     * Compiles a function call. Arity, var-ness and which arguments need copying are all
+     * decided here.
+     * @param node The function call node
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled call
+     */
+    private CompiledStatement compileCall(FunctionCallNode node, String[] slotTypes) {
+        FunctionNode function = node.getFunction();
+        List<ParameterNode> callParameters = node.getParameters();
+        List<VariableNode> functionParameters = function.getParameters();
+        
+        if (!isBuiltIn(function) && callParameters.size() != functionParameters.size()) {
+            return new Fail("Function " + function.getName() + " expects " +
+                            functionParameters.size() + " parameters, but got " +
+                            callParameters.size());
+        }
+        
+        CompiledExpression[] arguments = new CompiledExpression[callParameters.size()];
+        int[] copyBackSlots = new int[callParameters.size()];
+        boolean copiesBack = false;
+        boolean copiesArrays = false;
+        ElementReference[] elements = null;
+        
+        for (int i = 0; i < arguments.length; i++) {
+            ParameterNode callParam = callParameters.get(i);
+            VariableReferenceNode reference = callParam.getVariableReference();
+            copyBackSlots[i] = -1;
+            
+            if (callParam.isVar() && reference.getIndexExpression() != null) {
+                String error = elementError(reference, slotTypes);
+                if (error != null) {
+                    return new Fail(error);
+                }
+                if (isBuiltIn(function) || functionParameters.get(i).isVar()) {
+                    // Array elements have no variable of their own, so a box holding the element
+                    // is passed and stored back after the call
+                    if (elements == null) {
+                        elements = new ElementReference[arguments.length];
+                    }
+                    elements[i] = new ElementReference(reference.getSlot(), compileExpression(reference.getIndexExpression(), slotTypes));
+                } else {
+                    arguments[i] = compileExpression(reference, slotTypes);
+                }
+            } else if (callParam.isVar() && !isBuiltIn(function) && !functionParameters.get(i).isVar()) {
+                // A parameter that isn't var gets a copy, so the callee's writes stay its own
+                int slot = callParam.getVariableReference().getSlot();
+                arguments[i] = new CopyOf(new SlotRead(slot));
+                copiesArrays |= slotTypes[slot].startsWith("array");
+            } else if (callParam.isVar()) {
+                // Var arguments pass the caller's variable itself
+                int slot = callParam.getVariableReference().getSlot();
+                arguments[i] = new SlotRead(slot);
+                // Scalars are updated in place, so only arrays (assigned by replacement) need copying back
+                if ((isBuiltIn(function) || functionParameters.get(i).isVar()) && slotTypes[slot].startsWith("array")) {
+                    copyBackSlots[i] = slot;
+                    copiesBack = true;
+                }
+            } else if (callParam.getExpression() instanceof VariableReferenceNode &&
+                       ((VariableReferenceNode) callParam.getExpression()).getIndexExpression() == null) {
+                // Value arguments that name a variable must be copied; other expressions, array elements included, are already fresh
+                arguments[i] = new CopyOf(compileExpression(callParam.getExpression(), slotTypes));
+                copiesArrays |= slotTypes[((VariableReferenceNode) callParam.getExpression()).getSlot()].startsWith("array");
+            } else {
+                arguments[i] = compileExpression(callParam.getExpression(), slotTypes);
+            }
+        }
+        
+        CompiledStatement call;
+        if (isBuiltIn(function)) {
+            call = new BuiltInCall(node.getBuiltIn(), arguments, copiesBack ? copyBackSlots : null, elements, copiesArrays);
+        } else {
+            call = new Call(compiled.get(function), arguments, copiesBack ? copyBackSlots : null, elements, copiesArrays);
+        }
+        return checkVarArguments(call, callParameters);
+    }
+    
+    /**
+     * Checks the range-constrained variables a call may have stored into, once it returns
+     * @param call The compiled call
+     * @param callParameters The call's arguments
+     * @return The call, wrapped in the checks RangeAnalysis asked for
+     */
+    private CompiledStatement checkVarArguments(CompiledStatement call, List<ParameterNode> callParameters) {
+        List<ParameterNode> checked = new ArrayList<>();
+        for (ParameterNode callParam : callParameters) {
+            if (callParam.getRangeCheck() != null) {
+                checked.add(callParam);
+            }
+        }
+        if (checked.isEmpty()) {
+            return call;
+        }
+        
+        int[] slots = new int[checked.size()];
+        RangeCheck[] ranges = new RangeCheck[checked.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = checked.get(i).getVariableReference().getSlot();
+            ranges[i] = checked.get(i).getRangeCheck();
+        }
+        return new Checked(call, slots, ranges);
+    }
+    
+    /**
+     * Compiles a condition used by if, while and repeat
+     * @param node The condition node
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled condition
+     */
+    private CompiledCondition compileCondition(Node node, String[] slotTypes) {
+        if (!(node instanceof BooleanCompareNode)) {
+            return new BooleanTest(compileExpression(node, slotTypes));
+        }
+        
+        BooleanCompareNode compare = (BooleanCompareNode) node;
+        String leftType = SlotResolver.typeOf(compare.getLeftSide(), slotTypes);
+        String rightType = SlotResolver.typeOf(compare.getRightSide(), slotTypes);
+        CompiledExpression left = compileExpression(compare.getLeftSide(), slotTypes);
+        CompiledExpression right = compileExpression(compare.getRightSide(), slotTypes);
+        
+        if (!leftType.equals(rightType)) {
+            return new FailCondition("Unsupported operand types for comparison");
+        }
+        
+        switch (leftType) {
+            case "integer":
+                switch (compare.getOperator()) {
+                    case EQUAL: return new IntEqual(left, right);
+                    case NOT_EQUAL: return new IntNotEqual(left, right);
+                    case GREATER_THAN: return new IntLess(right, left);
+                    case GREATER_EQUAL: return new IntLessEqual(right, left);
+                    case LESS_THAN: return new IntLess(left, right);
+                    case LESS_EQUAL: return new IntLessEqual(left, right);
+                    default: break;
+                }
+                break;
+            case "real":
+                switch (compare.getOperator()) {
+                    case EQUAL: return new RealEqual(left, right);
+                    case NOT_EQUAL: return new Not(new RealEqual(left, right));
+                    case GREATER_THAN: return new RealLess(right, left);
+                    case GREATER_EQUAL: return new RealLessEqual(right, left);
+                    case LESS_THAN: return new RealLess(left, right);
+                    case LESS_EQUAL: return new RealLessEqual(left, right);
+                    default: break;
+                }
+                break;
+            case "string":
+                switch (compare.getOperator()) {
+                    case EQUAL: return new StringEqual(left, right);
+                    case NOT_EQUAL: return new Not(new StringEqual(left, right));
+                    default: return new FailCondition("Only equality comparisons are supported for strings");
+                }
+            case "boolean":
+                switch (compare.getOperator()) {
+                    case EQUAL: return new BooleanEqual(left, right);
+                    case NOT_EQUAL: return new Not(new BooleanEqual(left, right));
+                    default: return new FailCondition("Only equality comparisons are supported for booleans");
+                }
+            default:
+                break;
+        }
+        return new FailCondition("Unsupported operand types for comparison");
+    }
+    
+    /**
+     * Compiles an expression into a node specialized for its operand types
+     * @param node The expression node
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled expression
+     */
+    private CompiledExpression compileExpression(Node node, String[] slotTypes) {
+        if (node instanceof VariableReferenceNode) {
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            if (reference.getIndexExpression() != null) {
+                return compileElementRead(reference, slotTypes);
+            }
+            return new SlotRead(reference.getSlot());
+        } else if (node instanceof IntegerNode) {
+            return new IntegerConstant(((IntegerNode) node).getValue());
+        } else if (node instanceof RealNode) {
+            return new RealConstant(((RealNode) node).getValue());
+        } else if (node instanceof StringNode) {
+            return new StringConstant(((StringNode) node).getValue());
+        } else if (node instanceof BooleanNode) {
+            return new BooleanConstant(((BooleanNode) node).getValue());
+        } else if (node instanceof CharacterNode) {
+            return new CharacterConstant(((CharacterNode) node).getValue());
+        } else if (node instanceof MathOpNode) {
+            return compileMathOp((MathOpNode) node, slotTypes);
+        } else if (node instanceof BooleanCompareNode) {
+            return new ConditionValue(compileCondition(node, slotTypes));
+        } else if (node instanceof FunctionCallNode) {
+            // Function calls do not return values yet, matching the Interpreter
+            return new CallValue(compileCall((FunctionCallNode) node, slotTypes));
+        } else {
+            throw new RuntimeException("Unsupported expression type: " + node.getClass().getName());
+        }
+    }
+    
+    /**
+     * Compiles a read of an array element; integer and real elements can be read unboxed
+     * @param node The indexed reference
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled read
+     */
+    private CompiledExpression compileElementRead(VariableReferenceNode node, String[] slotTypes) {
+        String error = elementError(node, slotTypes);
+        if (error != null) {
+            return new FailValue(error);
+        }
+        
+        CompiledExpression index = compileExpression(node.getIndexExpression(), slotTypes);
+        switch (SlotResolver.typeOf(node, slotTypes)) {
+            case "integer": return new IntElementRead(node.getSlot(), index);
+            case "real": return new RealElementRead(node.getSlot(), index);
+            default: return new ElementRead(node.getSlot(), index);
+        }
+    }
+    
+    /**
+     * Compiles a math operation into a node for the exact operand types and operation
+     * @param node The math operation node
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled math operation
+     */
+    private CompiledExpression compileMathOp(MathOpNode node, String[] slotTypes) {
+        String leftType = SlotResolver.typeOf(node.getLeft(), slotTypes);
+        String rightType = SlotResolver.typeOf(node.getRight(), slotTypes);
+        CompiledExpression left = compileExpression(node.getLeft(), slotTypes);
+        CompiledExpression right = compileExpression(node.getRight(), slotTypes);
+        
+        if (!leftType.equals(rightType)) {
+            return new FailValue("Type mismatch in math operation");
+        }
+        
+        switch (leftType) {
+            case "integer":
+                switch (node.getOperation()) {
+                    case ADD: return new IntAdd(left, right);
+                    case SUBTRACT: return new IntSubtract(left, right);
+                    case MULTIPLY: return new IntMultiply(left, right);
+                    case DIVIDE: return new IntDivide(left, right);
+                    case MOD: return new IntModulo(left, right);
+                    default: return new FailValue("Unsupported integer operation: " + node.getOperation());
+                }
+            case "real":
+                switch (node.getOperation()) {
+                    case ADD: return new RealAdd(left, right);
+                    case SUBTRACT: return new RealSubtract(left, right);
+                    case MULTIPLY: return new RealMultiply(left, right);
+                    case DIVIDE: return new RealDivide(left, right);
+                    default: return new FailValue("Unsupported real operation: " + node.getOperation());
+                }
+            case "string":
+                if (node.getOperation() == MathOpNode.Operation.ADD) {
+                    return new StringConcat(left, right);
+                }
+                return new FailValue("Only addition is supported for strings");
+            default:
+                return new FailValue("Unsupported operand types for math operation");
+        }
+    }
+    
+    // A user-defined function ready to run: frame layout plus compiled body
+    public static class CompiledFunction {
+        private FunctionNode function;
+        private CompiledExpression[] constants;
+        // Each local's default value, chosen by type when the function was compiled
+        private CompiledExpression[] locals;
+        private CompiledStatement body;
+        private boolean jitCandidate;
+        private int calls;
+        
+        private CompiledFunction(FunctionNode function) {
+            this.function = function;
+        }
+        
+        /**
+         * Runs the function with the given arguments in the parameter slots
+         * @param arguments The argument values
+         * @return The callee frame, so var parameters can be copied back
+         */
+        public InterpreterDataType[] invoke(InterpreterDataType[] arguments) {
+            InterpreterDataType[] frame = new InterpreterDataType[function.getSlotCount()];
+            System.arraycopy(arguments, 0, frame, 0, arguments.length);
+            
+            int slot = arguments.length;
+            for (CompiledExpression constant : constants) {
+                frame[slot++] = constant.evaluate(frame);
+            }
+            for (CompiledExpression local : locals) {
+                frame[slot++] = local.evaluate(frame);
+            }
+            
+            if (jitCandidate && ++calls == JvmCompiler.CALL_THRESHOLD) {
+                jitCandidate = false;
+                JitCode code = JvmCompiler.compile(function.getName(), function.getStatements(), function.getSlotTypes());
+                if (code != null) {
+                    body = new Jitted(code, body);
+                }
+            }
+            
+            body.execute(frame);
+            return frame;
+        }
+    }
+    
+    public abstract static class CompiledStatement {
+        public abstract void execute(InterpreterDataType[] frame);
+    }
+    
+    public abstract static class CompiledExpression {
+        public abstract InterpreterDataType evaluate(InterpreterDataType[] frame);
+        
+        // Unboxed results, overridden by constants and arithmetic so nested operations allocate nothing
+        public int evaluateInt(InterpreterDataType[] frame) {
+            return ((IntegerDataType) evaluate(frame)).getValue();
+        }
+        
+        public float evaluateReal(InterpreterDataType[] frame) {
+            return ((RealDataType) evaluate(frame)).getValue();
+        }
+    }
+    
+    public abstract static class CompiledCondition {
+        public abstract boolean test(InterpreterDataType[] frame);
+    }
+    
+    // Statements
+    
+    private static final class Block extends CompiledStatement {
+        private final CompiledStatement[] statements;
+        
+        Block(CompiledStatement[] statements) {
+            this.statements = statements;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            for (CompiledStatement statement : statements) {
+                statement.execute(frame);
+            }
+        }
+    }
+    
+    // Arrays are assigned by replacement, with a copy sharing the original's storage
+    private static final class Assign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression value;
+        
+        Assign(int slot, CompiledExpression value) {
+            this.slot = slot;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            frame[slot] = value.evaluate(frame);
+        }
+    }
+    
+    private static final class IntAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression value;
+        
+        IntAssign(int slot, CompiledExpression value) {
+            this.slot = slot;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((IntegerDataType) frame[slot]).setValue(value.evaluateInt(frame));
+        }
+    }
+    
+    private static final class RealAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression value;
+        
+        RealAssign(int slot, CompiledExpression value) {
+            this.slot = slot;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((RealDataType) frame[slot]).setValue(value.evaluateReal(frame));
+        }
+    }
+    
+    private static final class BooleanAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression value;
+        
+        BooleanAssign(int slot, CompiledExpression value) {
+            this.slot = slot;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((BooleanDataType) frame[slot]).setValue(((BooleanDataType) value.evaluate(frame)).getValue());
+        }
+    }
+    
+    private static final class CharacterAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression value;
+        
+        CharacterAssign(int slot, CompiledExpression value) {
+            this.slot = slot;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((CharacterDataType) frame[slot]).setValue(((CharacterDataType) value.evaluate(frame)).getValue());
+        }
+    }
+    
+    private static final class StringAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression value;
+        
+        StringAssign(int slot, CompiledExpression value) {
+            this.slot = slot;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((StringDataType) frame[slot]).setValue((StringDataType) value.evaluate(frame));
+        }
+    }
+    
+    private static final class ElementAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression index;
+        private final CompiledExpression value;
+        
+        ElementAssign(int slot, CompiledExpression index, CompiledExpression value) {
+            this.slot = slot;
+            this.index = index;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((ArrayDataType) frame[slot]).set(index.evaluateInt(frame), value.evaluate(frame));
+        }
+    }
+    
+    private static final class IntElementAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression index;
+        private final CompiledExpression value;
+        
+        IntElementAssign(int slot, CompiledExpression index, CompiledExpression value) {
+            this.slot = slot;
+            this.index = index;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((IntegerArrayDataType) frame[slot]).setInt(index.evaluateInt(frame), value.evaluateInt(frame));
+        }
+    }
+    
+    private static final class RealElementAssign extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression index;
+        private final CompiledExpression value;
+        
+        RealElementAssign(int slot, CompiledExpression index, CompiledExpression value) {
+            this.slot = slot;
+            this.index = index;
+            this.value = value;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            ((RealArrayDataType) frame[slot]).setReal(index.evaluateInt(frame), value.evaluateReal(frame));
+        }
+    }
+    
+    private static final class If extends CompiledStatement {
+        private final CompiledCondition condition;
+        private final CompiledStatement thenBlock;
+        private final CompiledStatement elseBlock;
+        
+        If(CompiledCondition condition, CompiledStatement thenBlock, CompiledStatement elseBlock) {
+            this.condition = condition;
+            this.thenBlock = thenBlock;
+            this.elseBlock = elseBlock;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            if (condition.test(frame)) {
+                thenBlock.execute(frame);
+            } else if (elseBlock != null) {
+                elseBlock.execute(frame);
+            }
+        }
+    }
+    
+    private static final class IfChain extends CompiledStatement {
+        private final CompiledCondition[] conditions;
+        private final CompiledStatement[] blocks;
+        private final CompiledStatement elseBlock;
+        
+        IfChain(CompiledCondition[] conditions, CompiledStatement[] blocks, CompiledStatement elseBlock) {
+            this.conditions = conditions;
+            this.blocks = blocks;
+            this.elseBlock = elseBlock;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i].test(frame)) {
+                    blocks[i].execute(frame);
+                    return;
+                }
+            }
+            if (elseBlock != null) {
+                elseBlock.execute(frame);
+            }
+        }
+    }
+    
+    private static final class While extends CompiledStatement {
+        private final CompiledCondition condition;
+        private final CompiledStatement body;
+        
+        While(CompiledCondition condition, CompiledStatement body) {
+            this.condition = condition;
+            this.body = body;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            while (condition.test(frame)) {
+                body.execute(frame);
+            }
+        }
+    }
+    
+    private static final class Repeat extends CompiledStatement {
+        private final CompiledCondition condition;
+        private final CompiledStatement body;
+        
+        Repeat(CompiledCondition condition, CompiledStatement body) {
+            this.condition = condition;
+            this.body = body;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            do {
+                body.execute(frame);
+            } while (!condition.test(frame));
+        }
+    }
+    
+    private static final class For extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression from;
+        private final CompiledExpression to;
+        private final CompiledStatement body;
+        // Null when RangeAnalysis proved the counter stays in range
+        private final RangeCheck range;
+        
+        For(int slot, CompiledExpression from, CompiledExpression to, CompiledStatement body, RangeCheck range) {
+            this.slot = slot;
+            this.from = from;
+            this.to = to;
+            this.body = body;
+            this.range = range;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            int start = from.evaluateInt(frame);
+            int end = to.evaluateInt(frame);
+            IntegerDataType counter = (IntegerDataType) frame[slot];
+            
+            counter.setValue(start);
+            if (range != null && !range.contains(Math.min(start, end), Math.max(start, end))) {
+                // Some values are out of range, so check each one before the body sees it
+                checkedLoop(frame, counter, start, end);
+                return;
+            }
+            if (start <= end) {
+                for (int i = start; i <= end; i++) {
+                    counter.setValue(i);
+                    body.execute(frame);
+                }
+            } else {
+                for (int i = start; i >= end; i--) {
+                    counter.setValue(i);
+                    body.execute(frame);
+                }
+            }
+        }
+        
+        private void checkedLoop(InterpreterDataType[] frame, IntegerDataType counter, int start, int end) {
+            int step = start <= end ? 1 : -1;
+            for (int i = start; ; i += step) {
+                range.checkInt(i);
+                counter.setValue(i);
+                body.execute(frame);
+                if (i == end) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    // Runs a statement, then checks the range-constrained variables it stored into
+    private static final class Checked extends CompiledStatement {
+        private final CompiledStatement statement;
+        private final int[] slots;
+        private final RangeCheck[] ranges;
+        
+        Checked(CompiledStatement statement, int[] slots, RangeCheck[] ranges) {
+            this.statement = statement;
+            this.slots = slots;
+            this.ranges = ranges;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            statement.execute(frame);
+            for (int i = 0; i < slots.length; i++) {
+                ranges[i].check(frame[slots[i]]);
+            }
+        }
+    }
+    
+    // Loops that count their iterations and hand over to JVM bytecode once they are hot
+    
+    private static final class HotWhile extends CompiledStatement {
+        private final CompiledCondition condition;
+        private final CompiledStatement body;
+        private final String functionName;
+        private final WhileNode node;
+        private final String[] slotTypes;
+        private JitCode code;
+        private int iterations;
+        
+        HotWhile(CompiledCondition condition, CompiledStatement body, String functionName, WhileNode node, String[] slotTypes) {
+            this.condition = condition;
+            this.body = body;
+            this.functionName = functionName;
+            this.node = node;
+            this.slotTypes = slotTypes;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            if (code != null && code.canRun(frame)) {
+                code.run(frame, 0, 0);
+                return;
+            }
+            while (condition.test(frame)) {
+                body.execute(frame);
+                if (++iterations == JvmCompiler.LOOP_THRESHOLD) {
+                    // The loop state is all in the frame, so the compiled loop can carry on from here
+                    code = JvmCompiler.compile(functionName, List.of(node), slotTypes);
+                    if (code != null && code.canRun(frame)) {
+                        code.run(frame, 0, 0);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+    
+    private static final class HotRepeat extends CompiledStatement {
+        private final CompiledCondition condition;
+        private final CompiledStatement body;
+        private final String functionName;
+        private final RepeatNode node;
+        private final String[] slotTypes;
+        private JitCode code;
+        private int iterations;
+        
+        HotRepeat(CompiledCondition condition, CompiledStatement body, String functionName, RepeatNode node, String[] slotTypes) {
+            this.condition = condition;
+            this.body = body;
+            this.functionName = functionName;
+            this.node = node;
+            this.slotTypes = slotTypes;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            if (code != null && code.canRun(frame)) {
+                code.run(frame, 0, 0);
+                return;
+            }
+            while (true) {
+                body.execute(frame);
+                if (condition.test(frame)) {
+                    return;
+                }
+                if (++iterations == JvmCompiler.LOOP_THRESHOLD) {
+                    code = JvmCompiler.compile(functionName, List.of(node), slotTypes);
+                    if (code != null && code.canRun(frame)) {
+                        code.run(frame, 0, 0);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+    
+    private static final class HotFor extends CompiledStatement {
+        private final int slot;
+        private final CompiledExpression from;
+        private final CompiledExpression to;
+        private final CompiledStatement body;
+        private final String functionName;
+        private final ForNode node;
+        private final String[] slotTypes;
+        private JitCode code;
+        private int iterations;
+        
+        HotFor(int slot, CompiledExpression from, CompiledExpression to, CompiledStatement body,
+               String functionName, ForNode node, String[] slotTypes) {
+            this.slot = slot;
+            this.from = from;
+            this.to = to;
+            this.body = body;
+            this.functionName = functionName;
+            this.node = node;
+            this.slotTypes = slotTypes;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            int start = from.evaluateInt(frame);
+            int end = to.evaluateInt(frame);
+            if (code != null && code.canRun(frame)) {
+                code.run(frame, start, end);
+                return;
+            }
+            
+            int step = start <= end ? 1 : -1;
+            IntegerDataType counter = (IntegerDataType) frame[slot];
+            for (int i = start; ; i += step) {
+                counter.setValue(i);
+                body.execute(frame);
+                if (i == end) {
+                    return;
+                }
+                if (++iterations == JvmCompiler.LOOP_THRESHOLD) {
+                    // The counter lives here rather than in the frame, so pass the rest of the range
+                    code = JvmCompiler.compileForLoop(functionName, node, slotTypes);
+                    if (code != null && code.canRun(frame)) {
+                        code.run(frame, i + step, end);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+    
+    // A compiled function body, falling back on its closures when var parameters share a variable
+    private static final class Jitted extends CompiledStatement {
+        private final JitCode code;
+        private final CompiledStatement closures;
+        
+        Jitted(JitCode code, CompiledStatement closures) {
+            this.code = code;
+            this.closures = closures;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            if (code.canRun(frame)) {
+                code.run(frame, 0, 0);
+            } else {
+                closures.execute(frame);
+            }
+        }
+    }
+    
+    private static final class Call extends CompiledStatement {
+        private final CompiledFunction function;
+        private final CompiledExpression[] arguments;
+        private final int[] copyBackSlots;
+        private final ElementReference[] elements;
+        private final boolean copiesArrays;
+        
+        Call(CompiledFunction function, CompiledExpression[] arguments, int[] copyBackSlots, ElementReference[] elements,
+             boolean copiesArrays) {
+            this.function = function;
+            this.arguments = arguments;
+            this.copyBackSlots = copyBackSlots;
+            this.elements = elements;
+            this.copiesArrays = copiesArrays;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            InterpreterDataType[] values = new InterpreterDataType[arguments.length];
+            int[] indexes = ElementReference.evaluate(arguments, elements, values, frame);
+            
+            InterpreterDataType[] calleeFrame = function.invoke(values);
+            
+            if (copyBackSlots != null) {
+                for (int i = 0; i < copyBackSlots.length; i++) {
+                    if (copyBackSlots[i] >= 0) {
+                        frame[copyBackSlots[i]] = calleeFrame[i];
+                    }
+                }
+            }
+            if (copiesArrays) {
+                CopyOf.release(arguments, values);
+            }
+            ElementReference.storeBack(elements, indexes, values, frame);
+        }
+    }
+    
+    private static final class BuiltInCall extends CompiledStatement {
+        private final BuiltIn builtIn;
+        private final CompiledExpression[] arguments;
+        private final int[] copyBackSlots;
+        private final ElementReference[] elements;
+        private final boolean copiesArrays;
+        
+        BuiltInCall(BuiltIn builtIn, CompiledExpression[] arguments, int[] copyBackSlots, ElementReference[] elements,
+                    boolean copiesArrays) {
+            this.builtIn = builtIn;
+            this.arguments = arguments;
+            this.copyBackSlots = copyBackSlots;
+            this.elements = elements;
+            this.copiesArrays = copiesArrays;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            InterpreterDataType[] values = new InterpreterDataType[arguments.length];
+            int[] indexes = ElementReference.evaluate(arguments, elements, values, frame);
+            builtIn.execute(values);
+            
+            // A built-in may hand back a new array in a var argument
+            if (copyBackSlots != null) {
+                for (int i = 0; i < copyBackSlots.length; i++) {
+                    if (copyBackSlots[i] >= 0) {
+                        frame[copyBackSlots[i]] = values[i];
+                    }
+                }
+            }
+            if (copiesArrays) {
+                CopyOf.release(arguments, values);
+            }
+            ElementReference.storeBack(elements, indexes, values, frame);
+        }
+    }
+    
+    // An array element passed as a var argument
+    private static final class ElementReference {
+        private final int slot;
+        private final CompiledExpression index;
+        
+        ElementReference(int slot, CompiledExpression index) {
+            this.slot = slot;
+            this.index = index;
+        }
+        
+        /**
+         * Evaluates a call's arguments in order, boxing each var array element
+         * @param arguments The compiled arguments; null where an element is passed
+         * @param elements The element passed as each argument, or null if there are none
+         * @param values The array to put the argument values in
+         * @param frame The caller's frame
+         * @return The index of each element, or null if there are none
+         */
+        static int[] evaluate(CompiledExpression[] arguments, ElementReference[] elements,
+                              InterpreterDataType[] values, InterpreterDataType[] frame) {
+            int[] indexes = elements == null ? null : new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (indexes != null && elements[i] != null) {
+                    indexes[i] = elements[i].index.evaluateInt(frame);
+                    values[i] = ((ArrayDataType) frame[elements[i].slot]).get(indexes[i]);
+                } else {
+                    values[i] = arguments[i].evaluate(frame);
+                }
+            }
+            return indexes;
+        }
+        
+        /**
+         * Stores the boxes of var array elements back into their arrays after a call
+         * @param elements The element passed as each argument, or null if there are none
+         * @param indexes The index of each element, as returned by evaluate
+         * @param values The argument values the call was given
+         * @param frame The caller's frame
+         */
+        static void storeBack(ElementReference[] elements, int[] indexes,
+                              InterpreterDataType[] values, InterpreterDataType[] frame) {
+            if (elements == null) {
+                return;
+            }
+            for (int i = 0; i < elements.length; i++) {
+                if (elements[i] != null) {
+                    ((ArrayDataType) frame[elements[i].slot]).set(indexes[i], values[i]);
+                }
+            }
+        }
+    }
+    
+    private static final class Fail extends CompiledStatement {
+        private final String message;
+        
+        Fail(String message) {
+            this.message = message;
+        }
+        
+        @Override
+        public void execute(InterpreterDataType[] frame) {
+            throw new RuntimeException(message);
+        }
+    }
+    
+    // Expressions
+    
+    private static final class SlotRead extends CompiledExpression {
+        private final int slot;
+        
+        SlotRead(int slot) {
+            this.slot = slot;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return frame[slot];
+        }
+    }
+    
+    private static final class ElementRead extends CompiledExpression {
+        private final int slot;
+        private final CompiledExpression index;
+        
+        ElementRead(int slot, CompiledExpression index) {
+            this.slot = slot;
+            this.index = index;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return ((ArrayDataType) frame[slot]).get(index.evaluateInt(frame));
+        }
+    }
+    
+    private static final class IntElementRead extends CompiledExpression {
+        private final int slot;
+        private final CompiledExpression index;
+        
+        IntElementRead(int slot, CompiledExpression index) {
+            this.slot = slot;
+            this.index = index;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(evaluateInt(frame));
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            return ((IntegerArrayDataType) frame[slot]).getInt(index.evaluateInt(frame));
+        }
+    }
+    
+    private static final class RealElementRead extends CompiledExpression {
+        private final int slot;
+        private final CompiledExpression index;
+        
+        RealElementRead(int slot, CompiledExpression index) {
+            this.slot = slot;
+            this.index = index;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType(evaluateReal(frame));
+        }
+        
+        @Override
+        public float evaluateReal(InterpreterDataType[] frame) {
+            return ((RealArrayDataType) frame[slot]).getReal(index.evaluateInt(frame));
+        }
+    }
+    
+    // Default values of local variables
+    
+    private static final class NewInteger extends CompiledExpression {
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType();
+        }
+    }
+    
+    private static final class NewReal extends CompiledExpression {
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType();
+        }
+    }
+    
+    private static final class NewString extends CompiledExpression {
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new StringDataType();
+        }
+    }
+    
+    private static final class NewCharacter extends CompiledExpression {
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new CharacterDataType();
+        }
+    }
+    
+    private static final class NewBoolean extends CompiledExpression {
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new BooleanDataType();
+        }
+    }
+    
+    // Storage for every element is allocated on each call, which outweighs choosing its layout
+    private static final class NewArray extends CompiledExpression {
+        private final VariableNode variable;
+        
+        NewArray(VariableNode variable) {
+            this.variable = variable;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return ArrayDataType.create(variable);
+        }
+    }
+    
+    private static final class CopyOf extends CompiledExpression {
+        private final CompiledExpression value;
+        
+        CopyOf(CompiledExpression value) {
+            this.value = value;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            InterpreterDataType original = value.evaluate(frame);
+            if (original instanceof IntegerDataType) {
+                return new IntegerDataType(((IntegerDataType) original).getValue());
+            } else if (original instanceof RealDataType) {
+                return new RealDataType(((RealDataType) original).getValue());
+            } else if (original instanceof StringDataType) {
+                return new StringDataType((StringDataType) original);
+            } else if (original instanceof BooleanDataType) {
+                return new BooleanDataType(((BooleanDataType) original).getValue());
+            } else if (original instanceof CharacterDataType) {
+                return new CharacterDataType(((CharacterDataType) original).getValue());
+            } else {
+                return ((ArrayDataType) original).copy();
+            }
+        }
+        
+        /**
+         * Releases the array copies a call made for its value arguments, once it has returned
+         * @param arguments The call's compiled arguments
+         * @param values The argument values the call was given
+         */
+        static void release(CompiledExpression[] arguments, InterpreterDataType[] values) {
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] instanceof CopyOf && values[i] instanceof ArrayDataType) {
+                    ((ArrayDataType) values[i]).release();
+                }
+            }
+        }
+    }
+    
+    private static final class IntegerConstant extends CompiledExpression {
+        private final int value;
+        
+        IntegerConstant(int value) {
+            this.value = value;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(value);
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            return value;
+        }
+    }
+    
+    private static final class RealConstant extends CompiledExpression {
+        private final float value;
+        
+        RealConstant(float value) {
+            this.value = value;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType(value);
+        }
+        
+        @Override
+        public float evaluateReal(InterpreterDataType[] frame) {
+            return value;
+        }
+    }
+    
+    private static final class StringConstant extends CompiledExpression {
+        private final String value;
+        
+        StringConstant(String value) {
+            this.value = value;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new StringDataType(value);
+        }
+    }
+    
+    private static final class BooleanConstant extends CompiledExpression {
+        private final boolean value;
+        
+        BooleanConstant(boolean value) {
+            this.value = value;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new BooleanDataType(value);
+        }
+    }
+    
+    private static final class CharacterConstant extends CompiledExpression {
+        private final char value;
+        
+        CharacterConstant(char value) {
+            this.value = value;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new CharacterDataType(value);
+        }
+    }
+    
+    private static final class ConditionValue extends CompiledExpression {
+        private final CompiledCondition condition;
+        
+        ConditionValue(CompiledCondition condition) {
+            this.condition = condition;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new BooleanDataType(condition.test(frame));
+        }
+    }
+    
+    private static final class CallValue extends CompiledExpression {
+        private final CompiledStatement call;
+        
+        CallValue(CompiledStatement call) {
+            this.call = call;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            call.execute(frame);
+            return null;
+        }
+    }
+    
+    private static final class FailValue extends CompiledExpression {
+        private final String message;
+        
+        FailValue(String message) {
+            this.message = message;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            throw new RuntimeException(message);
+        }
+    }
+    
+    private static final class IntAdd extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntAdd(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(evaluateInt(frame));
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) + right.evaluateInt(frame);
+        }
+    }
+    
+    private static final class IntSubtract extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntSubtract(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(evaluateInt(frame));
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) - right.evaluateInt(frame);
+        }
+    }
+    
+    private static final class IntMultiply extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntMultiply(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(evaluateInt(frame));
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) * right.evaluateInt(frame);
+        }
+    }
+    
+    private static final class IntDivide extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntDivide(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(evaluateInt(frame));
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            int leftValue = left.evaluateInt(frame);
+            int rightValue = right.evaluateInt(frame);
+            if (rightValue == 0) {
+                throw new RuntimeException("Division by zero");
+            }
+            return leftValue / rightValue;
+        }
+    }
+    
+    private static final class IntModulo extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntModulo(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new IntegerDataType(evaluateInt(frame));
+        }
+        
+        @Override
+        public int evaluateInt(InterpreterDataType[] frame) {
+            int leftValue = left.evaluateInt(frame);
+            int rightValue = right.evaluateInt(frame);
+            if (rightValue == 0) {
+                throw new RuntimeException("Modulo by zero");
+            }
+            return leftValue % rightValue;
+        }
+    }
+    
+    private static final class RealAdd extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealAdd(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType(evaluateReal(frame));
+        }
+        
+        @Override
+        public float evaluateReal(InterpreterDataType[] frame) {
+            return left.evaluateReal(frame) + right.evaluateReal(frame);
+        }
+    }
+    
+    private static final class RealSubtract extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealSubtract(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType(evaluateReal(frame));
+        }
+        
+        @Override
+        public float evaluateReal(InterpreterDataType[] frame) {
+            return left.evaluateReal(frame) - right.evaluateReal(frame);
+        }
+    }
+    
+    private static final class RealMultiply extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealMultiply(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType(evaluateReal(frame));
+        }
+        
+        @Override
+        public float evaluateReal(InterpreterDataType[] frame) {
+            return left.evaluateReal(frame) * right.evaluateReal(frame);
+        }
+    }
+    
+    private static final class RealDivide extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealDivide(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return new RealDataType(evaluateReal(frame));
+        }
+        
+        @Override
+        public float evaluateReal(InterpreterDataType[] frame) {
+            float leftValue = left.evaluateReal(frame);
+            float rightValue = right.evaluateReal(frame);
+            if (rightValue == 0) {
+                throw new RuntimeException("Division by zero");
+            }
+            return leftValue / rightValue;
+        }
+    }
+    
+    private static final class StringConcat extends CompiledExpression {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        StringConcat(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public InterpreterDataType evaluate(InterpreterDataType[] frame) {
+            return StringDataType.concat((StringDataType) left.evaluate(frame), (StringDataType) right.evaluate(frame));
+        }
+    }
+    
+    // Conditions
+    
+    private static final class BooleanTest extends CompiledCondition {
+        private final CompiledExpression value;
+        
+        BooleanTest(CompiledExpression value) {
+            this.value = value;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return ((BooleanDataType) value.evaluate(frame)).getValue();
+        }
+    }
+    
+    private static final class Not extends CompiledCondition {
+        private final CompiledCondition condition;
+        
+        Not(CompiledCondition condition) {
+            this.condition = condition;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return !condition.test(frame);
+        }
+    }
+    
+    private static final class FailCondition extends CompiledCondition {
+        private final String message;
+        
+        FailCondition(String message) {
+            this.message = message;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            throw new RuntimeException(message);
+        }
+    }
+    
+    private static final class IntEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) == right.evaluateInt(frame);
+        }
+    }
+    
+    private static final class IntNotEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntNotEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) != right.evaluateInt(frame);
+        }
+    }
+    
+    // Greater-than forms are compiled as less-than with the operands swapped
+    private static final class IntLess extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntLess(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) < right.evaluateInt(frame);
+        }
+    }
+    
+    private static final class IntLessEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        IntLessEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateInt(frame) <= right.evaluateInt(frame);
+        }
+    }
+    
+    private static final class RealEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateReal(frame) == right.evaluateReal(frame);
+        }
+    }
+    
+    private static final class RealLess extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealLess(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateReal(frame) < right.evaluateReal(frame);
+        }
+    }
+    
+    private static final class RealLessEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        RealLessEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return left.evaluateReal(frame) <= right.evaluateReal(frame);
+        }
+    }
+    
+    private static final class StringEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        StringEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return ((StringDataType) left.evaluate(frame)).contentEquals((StringDataType) right.evaluate(frame));
+        }
+    }
+    
+    private static final class BooleanEqual extends CompiledCondition {
+        private final CompiledExpression left;
+        private final CompiledExpression right;
+        
+        BooleanEqual(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        public boolean test(InterpreterDataType[] frame) {
+            return ((BooleanDataType) left.evaluate(frame)).getValue() ==
+                   ((BooleanDataType) right.evaluate(frame)).getValue();
+        }
+    }
+}
\ No newline at end of file
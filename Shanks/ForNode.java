@@ -7,6 +7,7 @@ public class ForNode extends StatementNode {
     private Node fromExpr;
     private Node toExpr;
     private List<StatementNode> statements;
+    private RangeCheck rangeCheck; // Set by RangeAnalysis; null when no check is needed
     
     public ForNode(VariableReferenceNode variable, Node fromExpr, Node toExpr, List<StatementNode> statements) {
         this.variable = variable;
@@ -31,6 +32,14 @@ public class ForNode extends StatementNode {
         return statements;
     }
     
+    public RangeCheck getRangeCheck() {
+        return rangeCheck;
+    }
+    
+    public void setRangeCheck(RangeCheck rangeCheck) {
+        this.rangeCheck = rangeCheck;
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
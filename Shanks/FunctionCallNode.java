@@ -6,6 +6,8 @@ import java.util.List;
 public class FunctionCallNode extends StatementNode {
     private String name;
     private List<ParameterNode> parameters;
+    private FunctionNode function; // Callee, linked by SlotResolver
+    private BuiltIn builtIn; // Set by SlotResolver when the callee is a built-in
     
     public FunctionCallNode(String name) {
         this.name = name;
@@ -20,6 +22,22 @@ public class FunctionCallNode extends StatementNode {
         return parameters;
     }
     
+    public FunctionNode getFunction() {
+        return function;
+    }
+    
+    public void setFunction(FunctionNode function) {
+        this.function = function;
+    }
+    
+    public BuiltIn getBuiltIn() {
+        return builtIn;
+    }
+    
+    public void setBuiltIn(BuiltIn builtIn) {
+        this.builtIn = builtIn;
+    }
+    
     public void addParameter(ParameterNode parameter) {
         parameters.add(parameter);
     }
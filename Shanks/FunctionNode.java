@@ -9,6 +9,8 @@ public class FunctionNode extends Node {
     private List<VariableNode> constants;
     private List<VariableNode> variables;
     private List<StatementNode> statements;
+    private int slotCount; // Frame size, assigned by SlotResolver
+    private String[] slotTypes; // Declared type of each slot, assigned by SlotResolver
     
     public FunctionNode(String name) {
         this.name = name;
@@ -54,14 +56,20 @@ public class FunctionNode extends Node {
         statements.add(statement);
     }
     
-    // New method for variadic functions
-    public boolean isVariadic() {
-        return false;
+    public int getSlotCount() {
+        return slotCount;
     }
     
-    // Method for built-in functions to execute
-    public void execute(List<InterpreterDataType> parameters) {
-        throw new UnsupportedOperationException("Execute not implemented for this function");
+    public void setSlotCount(int slotCount) {
+        this.slotCount = slotCount;
+    }
+    
+    public String[] getSlotTypes() {
+        return slotTypes;
+    }
+    
+    public void setSlotTypes(String[] slotTypes) {
+        this.slotTypes = slotTypes;
     }
     
     @Override
@@ -0,0 +1,334 @@
+package Shanks;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Batch input for read: no prompts, one line per variable, read through a FileChannel
+ * into a large byte buffer. Lines are found by scanning for '\n', and integers and reals
+ * are parsed straight from the bytes into the variable. The results match FromString:
+ * surrounding whitespace is ignored and anything unparseable reads as 0.
+ *
+ * The same reader streams the files opened with OpenFile, line by line or field by field.
+ * Only the buffer is ever held in memory, so files may be far larger than RAM.
+ */
+public class InputSource {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    // Powers of ten that are exact as floats
+    private static final float[] POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    
+    private FileChannel channel;
+    private boolean closeChannel;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private Charset charset;
+    
+    // Bounds of the line just read
+    private int lineStart;
+    private int lineEnd;
+    
+    // Line the next ReadField takes its field from, and where in it that field starts
+    private StringDataType fieldLine;
+    private int fieldPosition;
+    
+    /**
+     * Creates an input source
+     * @param channel The channel to read from
+     * @param closeChannel Whether closing the source closes the channel
+     * @param bufferSize The initial size of the buffer; it grows to hold longer lines
+     */
+    public InputSource(FileChannel channel, boolean closeChannel, int bufferSize) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.buffer = new byte[bufferSize];
+        this.charset = Charset.defaultCharset();
+    }
+    
+    /**
+     * Creates an input source reading standard input
+     * @return The input source
+     */
+    public static InputSource stdin() {
+        return new InputSource(new FileInputStream(FileDescriptor.in).getChannel(), false, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Creates an input source reading a file
+     * @param path The file to read
+     * @return The input source
+     */
+    public static InputSource fromFile(Path path) {
+        return fromFile(path, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Creates an input source reading a file
+     * @param path The file to read
+     * @param bufferSize The initial size of the buffer
+     * @return The input source
+     */
+    public static InputSource fromFile(Path path, int bufferSize) {
+        try {
+            return new InputSource(FileChannel.open(path, StandardOpenOption.READ), true, bufferSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open input file " + path + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reads the next line into a variable
+     * @param target The variable to read into
+     */
+    public void readInto(InterpreterDataType target) {
+        if (!nextLine()) {
+            throw new RuntimeException("No more input to read");
+        }
+        if (target instanceof IntegerDataType) {
+            ((IntegerDataType) target).setValue(parseInteger());
+        } else if (target instanceof RealDataType) {
+            ((RealDataType) target).setValue(parseReal());
+        } else {
+            target.FromString(decodeLine());
+        }
+    }
+    
+    /**
+     * Reads the next whole line, dropping any fields of the current line not yet read
+     * @param target The string to put the line in; set to empty at the end of the input
+     * @return False if there are no more lines
+     */
+    public boolean readLine(StringDataType target) {
+        fieldLine = null;
+        if (!nextLine()) {
+            target.setValue("");
+            return false;
+        }
+        target.setValue(decodeLine());
+        return true;
+    }
+    
+    /**
+     * Reads the next field, a run of characters without whitespace, moving on to later lines
+     * when the current one has no more. Each line is decoded once, and its fields are slices
+     * of it rather than copies.
+     * @param target The string to put the field in; set to empty at the end of the input
+     * @return False if there are no more fields
+     */
+    public boolean readField(StringDataType target) {
+        while (true) {
+            if (fieldLine != null) {
+                int length = fieldLine.length();
+                int start = fieldPosition;
+                while (start < length && fieldLine.charAt(start) <= ' ') {
+                    start++;
+                }
+                if (start < length) {
+                    int end = start + 1;
+                    while (end < length && fieldLine.charAt(end) > ' ') {
+                        end++;
+                    }
+                    fieldPosition = end;
+                    target.setSlice(fieldLine, start, end - start);
+                    return true;
+                }
+            }
+            
+            if (!nextLine()) {
+                fieldLine = null;
+                target.setValue("");
+                return false;
+            }
+            fieldLine = new StringDataType(decodeLine());
+            fieldPosition = 0;
+        }
+    }
+    
+    private String decodeLine() {
+        return new String(buffer, lineStart, lineEnd - lineStart, charset);
+    }
+    
+    /**
+     * Finds the next line, reading more input as needed, and moves past it
+     * @return False if the input has ended
+     */
+    private boolean nextLine() {
+        int scan = position;
+        while (true) {
+            while (scan < limit && buffer[scan] != '\n') {
+                scan++;
+            }
+            if (scan < limit) {
+                break;
+            }
+            if (endOfInput) {
+                if (position == limit) {
+                    return false;
+                }
+                break;
+            }
+            int scanned = scan - position;
+            fill();
+            scan = position + scanned;
+        }
+        
+        lineStart = position;
+        lineEnd = scan;
+        position = scan < limit ? scan + 1 : limit;
+        if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+        return true;
+    }
+    
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more after them,
+     * growing the buffer if a single line fills it
+     */
+    private void fill() {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        
+        try {
+            int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read input: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Parses the current line as an integer, like Integer.parseInt on the trimmed line
+     * @return The integer, or 0 if the line is not one
+     */
+    private int parseInteger() {
+        int start = trimStart();
+        int end = trimEnd(start);
+        if (start == end) {
+            return 0;
+        }
+        
+        boolean negative = buffer[start] == '-';
+        if (negative || buffer[start] == '+') {
+            start++;
+        }
+        if (start == end) {
+            return 0;
+        }
+        
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return 0;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return 0;
+            }
+        }
+        if (negative) {
+            return (int) -value;
+        }
+        return value > Integer.MAX_VALUE ? 0 : (int) value;
+    }
+    
+    /**
+     * Parses the current line as a real, like Float.parseFloat on the trimmed line.
+     * Plain decimals with few enough digits are converted with a single exact division;
+     * anything else goes through Float.parseFloat.
+     * @return The real, or 0 if the line is not one
+     */
+    private float parseReal() {
+        int start = trimStart();
+        int end = trimEnd(start);
+        
+        int i = start;
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || (i < end && buffer[i] == '+')) {
+            i++;
+        }
+        
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9' && mantissa <= (1 << 24)) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                break;
+            }
+        }
+        
+        // Both operands are exact floats, so the division rounds once, like parseFloat
+        int scale = Math.max(fractionDigits, 0);
+        if (i == end && digits > 0 && mantissa <= (1 << 24) && scale < POWERS_OF_TEN.length) {
+            float value = (float) mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        
+        try {
+            return Float.parseFloat(new String(buffer, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            return 0.0f;
+        }
+    }
+    
+    private int trimStart() {
+        int start = lineStart;
+        while (start < lineEnd && (buffer[start] & 0xff) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+    
+    private int trimEnd(int start) {
+        int end = lineEnd;
+        while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    
+    /**
+     * Closes the channel if the source owns it
+     */
+    public void close() {
+        if (closeChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not close input: " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
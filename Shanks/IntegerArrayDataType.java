@@ -0,0 +1,162 @@
+package Shanks;
+import java.util.Arrays;
+
+/**
+ * An array of integers, stored in an int[]. An array declared with an element range
+ * (array from 1 to 10 of integer from 0 to 100000) rejects values outside it.
+ */
+public class IntegerArrayDataType extends ArrayDataType {
+    private int[] values;
+    // The declared element range, or null if any integer may be stored
+    protected final RangeCheck range;
+    
+    public IntegerArrayDataType(int lowerBound, int length) {
+        this(lowerBound, length, new int[length], null);
+    }
+    
+    public IntegerArrayDataType(int lowerBound, int length, RangeCheck range) {
+        this(lowerBound, length, new int[length], range);
+    }
+    
+    // Also used by subclasses that keep the elements somewhere else, with no array
+    protected IntegerArrayDataType(int lowerBound, int length, int[] values, RangeCheck range) {
+        super(lowerBound, length);
+        this.values = values;
+        this.range = range;
+    }
+    
+    @Override
+    public String getElementType() {
+        return "integer";
+    }
+    
+    public int getInt(int index) {
+        return values[offset(index)];
+    }
+    
+    public void setInt(int index, int value) {
+        if (range != null) {
+            range.checkInt(value);
+        }
+        beforeWrite();
+        values[offset(index)] = value;
+    }
+    
+    /**
+     * @return The declared element range, or null if the array has none
+     */
+    public RangeCheck getElementRange() {
+        return range;
+    }
+    
+    @Override
+    public InterpreterDataType get(int index) {
+        return new IntegerDataType(getInt(index));
+    }
+    
+    @Override
+    public void set(int index, InterpreterDataType value) {
+        if (!(value instanceof IntegerDataType)) {
+            throw new RuntimeException("Type mismatch in assignment");
+        }
+        setInt(index, ((IntegerDataType) value).getValue());
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new IntegerArrayDataType(lowerBound, length, values, range);
+    }
+    
+    @Override
+    protected void detach() {
+        values = values.clone();
+    }
+    
+    @Override
+    protected void copyElements(ArrayDataType source, int sourceStart, int targetStart, int count) {
+        IntegerArrayDataType other = (IntegerArrayDataType) source;
+        int sourceIndex = other.lowerBound + sourceStart;
+        int targetIndex = lowerBound + targetStart;
+        if (other == this && sourceStart < targetStart) {
+            for (int i = count - 1; i >= 0; i--) {
+                setInt(targetIndex + i, other.getInt(sourceIndex + i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                setInt(targetIndex + i, other.getInt(sourceIndex + i));
+            }
+        }
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        if (range != null) {
+            range.checkInt(((IntegerDataType) value).getValue());
+        }
+        beforeWrite();
+        Arrays.fill(values, start, to - lowerBound + 1, ((IntegerDataType) value).getValue());
+    }
+    
+    @Override
+    public void sum(int from, int to, InterpreterDataType result) {
+        int start = checkRange("ArraySum", from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers("ArraySum", result);
+        }
+        int total = 0;
+        for (int i = start; i <= to - lowerBound; i++) {
+            total += values[i];
+        }
+        ((IntegerDataType) result).setValue(total);
+    }
+    
+    @Override
+    public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+        int start = checkNonEmptyRange(builtIn, from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers(builtIn, result);
+        }
+        int best = values[start];
+        for (int i = start + 1; i <= to - lowerBound; i++) {
+            best = largest ? Math.max(best, values[i]) : Math.min(best, values[i]);
+        }
+        ((IntegerDataType) result).setValue(best);
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        int wanted = ((IntegerDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (values[i] == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        if (end - start >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(values, start, end);
+        } else {
+            Arrays.sort(values, start, end);
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        // A ranged array is copied into one element at a time, so each element is checked
+        return range == null ? values : null;
+    }
+}
\ No newline at end of file
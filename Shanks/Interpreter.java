@@ -1,5 +1,4 @@
 package Shanks;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -7,8 +6,18 @@ import java.util.Map;
 public class Interpreter {
     private ProgramNode program;
     private Map<String, FunctionNode> functions;
+    // Whether math operations and comparisons specialize on the operand types they see
+    private boolean specializing;
     
     public Interpreter(ProgramNode program) {
+        this(program, null);
+    }
+    
+    /**
+     * @param program The analyzed program
+     * @param seed The seed for GetRandom and FillRandom in this run, or null to seed them differently every time
+     */
+    public Interpreter(ProgramNode program, Long seed) {
         this.program = program;
         this.functions = new HashMap<>();
         
@@ -18,22 +27,21 @@ public class Interpreter {
         }
         
         // Add built-in functions
-        addBuiltInFunctions();
+        addBuiltInFunctions(seed);
+        
+        // Give every variable a frame slot and link calls to their functions
+        new SlotResolver(functions).resolve(program);
+        
+        // Find the stores into range-constrained variables that need checking
+        new RangeAnalysis().analyze(program);
     }
     
-    private void addBuiltInFunctions() {
-        // Add all built-in functions to the map
-        functions.put("read", new BuiltInRead());
-        functions.put("write", new BuiltInWrite());
-        functions.put("left", new BuiltInLeft());
-        functions.put("right", new BuiltInRight());
-        functions.put("substring", new BuiltInSubstring());
-        functions.put("squareroot", new BuiltInSquareRoot());
-        functions.put("getrandom", new BuiltInGetRandom());
-        functions.put("integertoreal", new BuiltInIntegerToReal());
-        functions.put("realtointeger", new BuiltInRealToInteger());
-        functions.put("start", new BuiltInStart());
-        functions.put("end", new BuiltInEnd());
+    private void addBuiltInFunctions(Long seed) {
+        // Add every registered built-in, standard or found through ServiceLoader, under the
+        // lower-case name calls are looked up by
+        for (Map.Entry<String, BuiltIn> entry : BuiltInRegistry.load(seed).entrySet()) {
+            functions.put(entry.getKey(), new BuiltInFunction(entry.getValue()));
+        }
     }
     
     public void interpret() {
@@ -51,6 +59,16 @@ public class Interpreter {
         return functions;
     }
     
+    /**
+     * Turns the specializing mode on or off. In this mode math operations and comparisons
+     * ignore the types SemanticAnalysis proved and instead specialize on the operand types
+     * seen the first time they run, going back to generic evaluation if that guess fails.
+     * @param specializing Whether to specialize
+     */
+    public void setSpecializing(boolean specializing) {
+        this.specializing = specializing;
+    }
+    
     // New methods for Assignment 8
     
     /**
@@ -58,25 +76,32 @@ public class Interpreter {
      * @param function The function to interpret
      */
     private void interpretFunction(FunctionNode function) {
-        // Create a map for local variables
-        Map<String, InterpreterDataType> variables = new HashMap<>();
+        // Create a frame with one slot per parameter, constant and local variable
+        InterpreterDataType[] frame = new InterpreterDataType[function.getSlotCount()];
+        initializeLocals(function, frame);
+        
+        // Interpret the function's statements
+        interpretBlock(function.getStatements(), frame);
+    }
+    
+    /**
+     * Fills the constant and local variable slots of a new frame.
+     * The parameter slots come first and are filled by the caller.
+     * @param function The function the frame belongs to
+     * @param frame The frame to fill
+     */
+    private void initializeLocals(FunctionNode function, InterpreterDataType[] frame) {
+        int slot = function.getParameters().size();
         
-        // Add constants to the variables map
+        // Constants are initialized from their declared value
         for (VariableNode constant : function.getConstants()) {
-            String name = constant.getName().toLowerCase();
-            InterpreterDataType value = createIDTFromVariableNode(constant);
-            variables.put(name, value);
+            frame[slot++] = expression(constant.getValue(), frame);
         }
         
-        // Add local variables to the variables map
+        // Local variables start with their type's default value
         for (VariableNode variable : function.getVariables()) {
-            String name = variable.getName().toLowerCase();
-            InterpreterDataType value = createIDTFromVariableNode(variable);
-            variables.put(name, value);
+            frame[slot++] = createIDTFromVariableNode(variable);
         }
-        
-        // Interpret the function's statements
-        interpretBlock(function.getStatements(), variables);
     }
     
     /**
@@ -100,9 +125,8 @@ public class Interpreter {
                 return new BooleanDataType();
             default:
                 if (type.startsWith("array")) {
-                    // Handle array type
-                    // This is a placeholder - you'll need to implement array handling
-                    return new ArrayDataType();
+                    // Storage for the whole declared index range, unboxed
+                    return ArrayDataType.create(variable);
                 }
                 throw new RuntimeException("Unsupported variable type: " + type);
         }
@@ -111,22 +135,26 @@ public class Interpreter {
     /**
      * Interprets a block of statements
      * @param statements The statements to interpret
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void interpretBlock(List<StatementNode> statements, Map<String, InterpreterDataType> variables) {
+    private void interpretBlock(List<StatementNode> statements, InterpreterDataType[] frame) {
         for (StatementNode statement : statements) {
             if (statement instanceof AssignmentNode) {
-                handleAssignmentNode((AssignmentNode) statement, variables);
+                AssignmentNode assignment = (AssignmentNode) statement;
+                handleAssignmentNode(assignment, frame);
+                if (assignment.getRangeCheck() != null) {
+                    assignment.getRangeCheck().check(frame[assignment.getTarget().getSlot()]);
+                }
             } else if (statement instanceof IfNode) {
-                handleIfNode((IfNode) statement, variables);
+                handleIfNode((IfNode) statement, frame);
             } else if (statement instanceof WhileNode) {
-                handleWhileNode((WhileNode) statement, variables);
+                handleWhileNode((WhileNode) statement, frame);
             } else if (statement instanceof RepeatNode) {
-                handleRepeatNode((RepeatNode) statement, variables);
+                handleRepeatNode((RepeatNode) statement, frame);
             } else if (statement instanceof ForNode) {
-                handleForNode((ForNode) statement, variables);
+                handleForNode((ForNode) statement, frame);
             } else if (statement instanceof FunctionCallNode) {
-                handleFunctionCallNode((FunctionCallNode) statement, variables);
+                handleFunctionCallNode((FunctionCallNode) statement, frame);
             } else {
                 throw new RuntimeException("Unsupported statement type: " + statement.getClass().getName());
             }
@@ -136,12 +164,12 @@ public class Interpreter {
     /**
      * Evaluates an expression and returns the resulting value
      * @param node The node to evaluate
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      * @return The resulting InterpreterDataType
      */
-    private InterpreterDataType expression(Node node, Map<String, InterpreterDataType> variables) {
+    private InterpreterDataType expression(Node node, InterpreterDataType[] frame) {
         if (node instanceof VariableReferenceNode) {
-            return handleVariableReferenceNode((VariableReferenceNode) node, variables);
+            return handleVariableReferenceNode((VariableReferenceNode) node, frame);
         } else if (node instanceof IntegerNode) {
             return new IntegerDataType(((IntegerNode) node).getValue());
         } else if (node instanceof RealNode) {
@@ -153,10 +181,12 @@ public class Interpreter {
         } else if (node instanceof CharacterNode) {
             return new CharacterDataType(((CharacterNode) node).getValue());
         } else if (node instanceof MathOpNode) {
-            return handleMathOpNode((MathOpNode) node, variables);
+            return handleMathOpNode((MathOpNode) node, frame);
+        } else if (node instanceof BooleanCompareNode) {
+            return new BooleanDataType(evaluateBooleanCompare((BooleanCompareNode) node, frame));
         } else if (node instanceof FunctionCallNode) {
             // This is a placeholder - function calls that return values will need special handling
-            handleFunctionCallNode((FunctionCallNode) node, variables);
+            handleFunctionCallNode((FunctionCallNode) node, frame);
             return null; // This should be replaced with the actual return value
         } else {
             throw new RuntimeException("Unsupported expression type: " + node.getClass().getName());
@@ -166,30 +196,76 @@ public class Interpreter {
     /**
      * Handles a variable reference node
      * @param node The variable reference node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      * @return The variable's value
      */
-    private InterpreterDataType handleVariableReferenceNode(VariableReferenceNode node, Map<String, InterpreterDataType> variables) {
-        String name = node.getName().toLowerCase();
-        InterpreterDataType value = variables.get(name);
-        
-        if (value == null) {
-            throw new RuntimeException("Variable not found: " + name);
+    private InterpreterDataType handleVariableReferenceNode(VariableReferenceNode node, InterpreterDataType[] frame) {
+        if (node.getIndexExpression() != null) {
+            return array(node, frame).get(evalIndex(node, frame));
         }
-        
-        return value;
+        return frame[node.getSlot()];
+    }
+    
+    /**
+     * Gets the array an indexed reference names
+     * @param node The variable reference node
+     * @param frame The current function's frame
+     * @return The array
+     */
+    private ArrayDataType array(VariableReferenceNode node, InterpreterDataType[] frame) {
+        InterpreterDataType value = frame[node.getSlot()];
+        if (!(value instanceof ArrayDataType)) {
+            throw new RuntimeException("Variable " + node.getName() + " is not an array");
+        }
+        return (ArrayDataType) value;
+    }
+    
+    /**
+     * Evaluates the index of an indexed reference, unboxed when SemanticAnalysis proved it an integer
+     * @param node The variable reference node
+     * @param frame The current function's frame
+     * @return The index
+     */
+    private int evalIndex(VariableReferenceNode node, InterpreterDataType[] frame) {
+        Node index = node.getIndexExpression();
+        if (isProven(index, "integer")) {
+            return evalInt(index, frame);
+        }
+        InterpreterDataType value = expression(index, frame);
+        if (!(value instanceof IntegerDataType)) {
+            throw new RuntimeException("Array index must be an integer");
+        }
+        return ((IntegerDataType) value).getValue();
     }
     
     /**
      * Handles a math operation node
      * @param node The math operation node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      * @return The result of the operation
      */
-    private InterpreterDataType handleMathOpNode(MathOpNode node, Map<String, InterpreterDataType> variables) {
-        InterpreterDataType left = expression(node.getLeft(), variables);
-        InterpreterDataType right = expression(node.getRight(), variables);
+    private InterpreterDataType handleMathOpNode(MathOpNode node, InterpreterDataType[] frame) {
+        if (specializing) {
+            return handleSpecializedMathOp(node, frame);
+        }
         
+        // Operations with a proven type are evaluated unboxed, so only the result is allocated
+        if ("integer".equals(node.getType())) {
+            return new IntegerDataType(calculateInt(node.getOperation(), evalInt(node.getLeft(), frame), evalInt(node.getRight(), frame)));
+        } else if ("real".equals(node.getType())) {
+            return new RealDataType(calculateReal(node.getOperation(), evalReal(node.getLeft(), frame), evalReal(node.getRight(), frame)));
+        }
+        return calculateBoxed(node, expression(node.getLeft(), frame), expression(node.getRight(), frame));
+    }
+    
+    /**
+     * Applies a math operation to operands whose types are checked at run time
+     * @param node The math operation node
+     * @param left The left operand
+     * @param right The right operand
+     * @return The result of the operation
+     */
+    private InterpreterDataType calculateBoxed(MathOpNode node, InterpreterDataType left, InterpreterDataType right) {
         // Ensure both sides are of the same type
         if (left.getClass() != right.getClass()) {
             throw new RuntimeException("Type mismatch in math operation");
@@ -199,52 +275,14 @@ public class Interpreter {
         if (left instanceof IntegerDataType && right instanceof IntegerDataType) {
             int leftValue = ((IntegerDataType) left).getValue();
             int rightValue = ((IntegerDataType) right).getValue();
-            
-            switch (node.getOperation()) {
-                case ADD:
-                    return new IntegerDataType(leftValue + rightValue);
-                case SUBTRACT:
-                    return new IntegerDataType(leftValue - rightValue);
-                case MULTIPLY:
-                    return new IntegerDataType(leftValue * rightValue);
-                case DIVIDE:
-                    if (rightValue == 0) {
-                        throw new RuntimeException("Division by zero");
-                    }
-                    return new IntegerDataType(leftValue / rightValue);
-                case MOD:
-                    if (rightValue == 0) {
-                        throw new RuntimeException("Modulo by zero");
-                    }
-                    return new IntegerDataType(leftValue % rightValue);
-                default:
-                    throw new RuntimeException("Unsupported integer operation: " + node.getOperation());
-            }
+            return new IntegerDataType(calculateInt(node.getOperation(), leftValue, rightValue));
         } else if (left instanceof RealDataType && right instanceof RealDataType) {
             float leftValue = ((RealDataType) left).getValue();
             float rightValue = ((RealDataType) right).getValue();
-            
-            switch (node.getOperation()) {
-                case ADD:
-                    return new RealDataType(leftValue + rightValue);
-                case SUBTRACT:
-                    return new RealDataType(leftValue - rightValue);
-                case MULTIPLY:
-                    return new RealDataType(leftValue * rightValue);
-                case DIVIDE:
-                    if (rightValue == 0) {
-                        throw new RuntimeException("Division by zero");
-                    }
-                    return new RealDataType(leftValue / rightValue);
-                default:
-                    throw new RuntimeException("Unsupported real operation: " + node.getOperation());
-            }
+            return new RealDataType(calculateReal(node.getOperation(), leftValue, rightValue));
         } else if (left instanceof StringDataType && right instanceof StringDataType) {
-            String leftValue = ((StringDataType) left).getValue();
-            String rightValue = ((StringDataType) right).getValue();
-            
             if (node.getOperation() == MathOpNode.Operation.ADD) {
-                return new StringDataType(leftValue + rightValue);
+                return StringDataType.concat((StringDataType) left, (StringDataType) right);
             } else {
                 throw new RuntimeException("Only addition is supported for strings");
             }
@@ -253,66 +291,366 @@ public class Interpreter {
         }
     }
     
+    /**
+     * Evaluates an expression SemanticAnalysis has proven to be an integer, without boxing
+     * any intermediate result
+     * @param node The expression node
+     * @param frame The current function's frame
+     * @return The value of the expression
+     */
+    private int evalInt(Node node, InterpreterDataType[] frame) {
+        if (node instanceof VariableReferenceNode) {
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            if (reference.getIndexExpression() == null) {
+                return ((IntegerDataType) frame[reference.getSlot()]).getValue();
+            }
+            // Elements are read straight out of the int[]
+            return ((IntegerArrayDataType) frame[reference.getSlot()]).getInt(evalIndex(reference, frame));
+        } else if (node instanceof IntegerNode) {
+            return ((IntegerNode) node).getValue();
+        } else if (node instanceof MathOpNode && "integer".equals(((MathOpNode) node).getType())) {
+            MathOpNode mathOp = (MathOpNode) node;
+            int leftValue = evalInt(mathOp.getLeft(), frame);
+            int rightValue = evalInt(mathOp.getRight(), frame);
+            return calculateInt(mathOp.getOperation(), leftValue, rightValue);
+        }
+        return ((IntegerDataType) expression(node, frame)).getValue();
+    }
+    
+    /**
+     * Evaluates an expression SemanticAnalysis has proven to be a real, without boxing
+     * any intermediate result
+     * @param node The expression node
+     * @param frame The current function's frame
+     * @return The value of the expression
+     */
+    private float evalReal(Node node, InterpreterDataType[] frame) {
+        if (node instanceof VariableReferenceNode) {
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            if (reference.getIndexExpression() == null) {
+                return ((RealDataType) frame[reference.getSlot()]).getValue();
+            }
+            return ((RealArrayDataType) frame[reference.getSlot()]).getReal(evalIndex(reference, frame));
+        } else if (node instanceof RealNode) {
+            return ((RealNode) node).getValue();
+        } else if (node instanceof MathOpNode && "real".equals(((MathOpNode) node).getType())) {
+            MathOpNode mathOp = (MathOpNode) node;
+            float leftValue = evalReal(mathOp.getLeft(), frame);
+            float rightValue = evalReal(mathOp.getRight(), frame);
+            return calculateReal(mathOp.getOperation(), leftValue, rightValue);
+        }
+        return ((RealDataType) expression(node, frame)).getValue();
+    }
+    
+    /**
+     * Handles a math operation in specializing mode. The first run picks a specialization
+     * from the operand types; specialized runs only check that the operands still have those
+     * types, and a failed check turns the node generic for good.
+     * @param node The math operation node
+     * @param frame The current function's frame
+     * @return The result of the operation
+     */
+    private InterpreterDataType handleSpecializedMathOp(MathOpNode node, InterpreterDataType[] frame) {
+        switch (node.getSpecialization()) {
+            case INTEGER:
+                try {
+                    return new IntegerDataType(executeInt(node, frame));
+                } catch (UnexpectedTypeException e) {
+                    return e.getValue();
+                }
+            case REAL:
+                try {
+                    return new RealDataType(executeReal(node, frame));
+                } catch (UnexpectedTypeException e) {
+                    return e.getValue();
+                }
+            case GENERIC:
+                return calculateBoxed(node, expression(node.getLeft(), frame), expression(node.getRight(), frame));
+            default:
+                InterpreterDataType left = expression(node.getLeft(), frame);
+                InterpreterDataType right = expression(node.getRight(), frame);
+                node.setSpecialization(specializationFor(left, right));
+                return calculateBoxed(node, left, right);
+        }
+    }
+    
+    /**
+     * Picks the specialization for a node from the operands of its first run
+     * @param left The left operand
+     * @param right The right operand
+     * @return INTEGER or REAL when both operands have that type, GENERIC otherwise
+     */
+    private Specialization specializationFor(InterpreterDataType left, InterpreterDataType right) {
+        if (left instanceof IntegerDataType && right instanceof IntegerDataType) {
+            return Specialization.INTEGER;
+        } else if (left instanceof RealDataType && right instanceof RealDataType) {
+            return Specialization.REAL;
+        }
+        return Specialization.GENERIC;
+    }
+    
+    /**
+     * Evaluates an expression expected to be an integer in specializing mode. Integer
+     * specialized math operations are evaluated without boxing; if one of them meets an
+     * operand of another type it turns generic and finishes with the values it already has.
+     * @param node The expression node
+     * @param frame The current function's frame
+     * @return The value of the expression
+     * @throws UnexpectedTypeException If the value is not an integer; it carries the value
+     */
+    private int executeInt(Node node, InterpreterDataType[] frame) throws UnexpectedTypeException {
+        if (node instanceof IntegerNode) {
+            return ((IntegerNode) node).getValue();
+        } else if (node instanceof MathOpNode && ((MathOpNode) node).getSpecialization() == Specialization.INTEGER) {
+            MathOpNode mathOp = (MathOpNode) node;
+            int leftValue;
+            try {
+                leftValue = executeInt(mathOp.getLeft(), frame);
+            } catch (UnexpectedTypeException e) {
+                return expectInt(deoptimize(mathOp, e.getValue(), expression(mathOp.getRight(), frame)));
+            }
+            int rightValue;
+            try {
+                rightValue = executeInt(mathOp.getRight(), frame);
+            } catch (UnexpectedTypeException e) {
+                return expectInt(deoptimize(mathOp, new IntegerDataType(leftValue), e.getValue()));
+            }
+            return calculateInt(mathOp.getOperation(), leftValue, rightValue);
+        } else if (node instanceof VariableReferenceNode && ((VariableReferenceNode) node).getIndexExpression() != null) {
+            // Elements of a int[] are read unboxed
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            if (frame[reference.getSlot()] instanceof IntegerArrayDataType) {
+                return ((IntegerArrayDataType) frame[reference.getSlot()]).getInt(evalIndex(reference, frame));
+            }
+        }
+        return expectInt(expression(node, frame));
+    }
+    
+    /**
+     * Evaluates an expression expected to be a real in specializing mode, like executeInt
+     * @param node The expression node
+     * @param frame The current function's frame
+     * @return The value of the expression
+     * @throws UnexpectedTypeException If the value is not a real; it carries the value
+     */
+    private float executeReal(Node node, InterpreterDataType[] frame) throws UnexpectedTypeException {
+        if (node instanceof RealNode) {
+            return ((RealNode) node).getValue();
+        } else if (node instanceof MathOpNode && ((MathOpNode) node).getSpecialization() == Specialization.REAL) {
+            MathOpNode mathOp = (MathOpNode) node;
+            float leftValue;
+            try {
+                leftValue = executeReal(mathOp.getLeft(), frame);
+            } catch (UnexpectedTypeException e) {
+                return expectReal(deoptimize(mathOp, e.getValue(), expression(mathOp.getRight(), frame)));
+            }
+            float rightValue;
+            try {
+                rightValue = executeReal(mathOp.getRight(), frame);
+            } catch (UnexpectedTypeException e) {
+                return expectReal(deoptimize(mathOp, new RealDataType(leftValue), e.getValue()));
+            }
+            return calculateReal(mathOp.getOperation(), leftValue, rightValue);
+        } else if (node instanceof VariableReferenceNode && ((VariableReferenceNode) node).getIndexExpression() != null) {
+            // Elements of a float[] are read unboxed
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            if (frame[reference.getSlot()] instanceof RealArrayDataType) {
+                return ((RealArrayDataType) frame[reference.getSlot()]).getReal(evalIndex(reference, frame));
+            }
+        }
+        return expectReal(expression(node, frame));
+    }
+    
+    /**
+     * Turns a specialized math operation generic and finishes it with operands already evaluated
+     * @param node The math operation node
+     * @param left The left operand
+     * @param right The right operand
+     * @return The result of the operation
+     */
+    private InterpreterDataType deoptimize(MathOpNode node, InterpreterDataType left, InterpreterDataType right) {
+        node.setSpecialization(Specialization.GENERIC);
+        return calculateBoxed(node, left, right);
+    }
+    
+    private int expectInt(InterpreterDataType value) throws UnexpectedTypeException {
+        if (value instanceof IntegerDataType) {
+            return ((IntegerDataType) value).getValue();
+        }
+        throw new UnexpectedTypeException(value);
+    }
+    
+    private float expectReal(InterpreterDataType value) throws UnexpectedTypeException {
+        if (value instanceof RealDataType) {
+            return ((RealDataType) value).getValue();
+        }
+        throw new UnexpectedTypeException(value);
+    }
+    
+    /**
+     * Applies an integer math operation
+     * @param operation The operation
+     * @param leftValue The left operand
+     * @param rightValue The right operand
+     * @return The result
+     */
+    private int calculateInt(MathOpNode.Operation operation, int leftValue, int rightValue) {
+        switch (operation) {
+            case ADD:
+                return leftValue + rightValue;
+            case SUBTRACT:
+                return leftValue - rightValue;
+            case MULTIPLY:
+                return leftValue * rightValue;
+            case DIVIDE:
+                if (rightValue == 0) {
+                    throw new RuntimeException("Division by zero");
+                }
+                return leftValue / rightValue;
+            case MOD:
+                if (rightValue == 0) {
+                    throw new RuntimeException("Modulo by zero");
+                }
+                return leftValue % rightValue;
+            default:
+                throw new RuntimeException("Unsupported integer operation: " + operation);
+        }
+    }
+    
+    /**
+     * Applies a real math operation
+     * @param operation The operation
+     * @param leftValue The left operand
+     * @param rightValue The right operand
+     * @return The result
+     */
+    private float calculateReal(MathOpNode.Operation operation, float leftValue, float rightValue) {
+        switch (operation) {
+            case ADD:
+                return leftValue + rightValue;
+            case SUBTRACT:
+                return leftValue - rightValue;
+            case MULTIPLY:
+                return leftValue * rightValue;
+            case DIVIDE:
+                if (rightValue == 0) {
+                    throw new RuntimeException("Division by zero");
+                }
+                return leftValue / rightValue;
+            default:
+                throw new RuntimeException("Unsupported real operation: " + operation);
+        }
+    }
+    
+    /**
+     * Evaluates the condition of an if, while or repeat, which may be a comparison or any
+     * boolean expression, such as a boolean variable
+     * @param node The condition node
+     * @param frame The current function's frame
+     * @return Whether the condition holds
+     */
+    private boolean evaluateCondition(Node node, InterpreterDataType[] frame) {
+        if (node instanceof BooleanCompareNode) {
+            return evaluateBooleanCompare((BooleanCompareNode) node, frame);
+        }
+        InterpreterDataType value = expression(node, frame);
+        if (!(value instanceof BooleanDataType)) {
+            throw new RuntimeException("Condition must be a boolean");
+        }
+        return ((BooleanDataType) value).getValue();
+    }
+    
     /**
      * Evaluates a boolean comparison
      * @param node The boolean comparison node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      * @return The result of the comparison
      */
-    private boolean evaluateBooleanCompare(BooleanCompareNode node, Map<String, InterpreterDataType> variables) {
-        InterpreterDataType left = expression(node.getLeftSide(), variables);
-        InterpreterDataType right = expression(node.getRightSide(), variables);
+    private boolean evaluateBooleanCompare(BooleanCompareNode node, InterpreterDataType[] frame) {
+        if (specializing) {
+            return evaluateSpecializedCompare(node, frame);
+        }
         
+        // Comparisons of proven integers or reals never box either side
+        if ("integer".equals(node.getOperandType())) {
+            return compareInts(node.getOperator(), evalInt(node.getLeftSide(), frame), evalInt(node.getRightSide(), frame));
+        } else if ("real".equals(node.getOperandType())) {
+            return compareReals(node.getOperator(), evalReal(node.getLeftSide(), frame), evalReal(node.getRightSide(), frame));
+        }
+        return compareBoxed(node, expression(node.getLeftSide(), frame), expression(node.getRightSide(), frame));
+    }
+    
+    /**
+     * Evaluates a boolean comparison in specializing mode, like handleSpecializedMathOp
+     * @param node The boolean comparison node
+     * @param frame The current function's frame
+     * @return The result of the comparison
+     */
+    private boolean evaluateSpecializedCompare(BooleanCompareNode node, InterpreterDataType[] frame) {
+        Node leftSide = node.getLeftSide();
+        Node rightSide = node.getRightSide();
+        switch (node.getSpecialization()) {
+            case INTEGER: {
+                int leftValue;
+                try {
+                    leftValue = executeInt(leftSide, frame);
+                } catch (UnexpectedTypeException e) {
+                    node.setSpecialization(Specialization.GENERIC);
+                    return compareBoxed(node, e.getValue(), expression(rightSide, frame));
+                }
+                try {
+                    return compareInts(node.getOperator(), leftValue, executeInt(rightSide, frame));
+                } catch (UnexpectedTypeException e) {
+                    node.setSpecialization(Specialization.GENERIC);
+                    return compareBoxed(node, new IntegerDataType(leftValue), e.getValue());
+                }
+            }
+            case REAL: {
+                float leftValue;
+                try {
+                    leftValue = executeReal(leftSide, frame);
+                } catch (UnexpectedTypeException e) {
+                    node.setSpecialization(Specialization.GENERIC);
+                    return compareBoxed(node, e.getValue(), expression(rightSide, frame));
+                }
+                try {
+                    return compareReals(node.getOperator(), leftValue, executeReal(rightSide, frame));
+                } catch (UnexpectedTypeException e) {
+                    node.setSpecialization(Specialization.GENERIC);
+                    return compareBoxed(node, new RealDataType(leftValue), e.getValue());
+                }
+            }
+            case GENERIC:
+                return compareBoxed(node, expression(leftSide, frame), expression(rightSide, frame));
+            default:
+                InterpreterDataType left = expression(leftSide, frame);
+                InterpreterDataType right = expression(rightSide, frame);
+                node.setSpecialization(specializationFor(left, right));
+                return compareBoxed(node, left, right);
+        }
+    }
+    
+    /**
+     * Compares operands whose types are checked at run time
+     * @param node The boolean comparison node
+     * @param left The left operand
+     * @param right The right operand
+     * @return The result of the comparison
+     */
+    private boolean compareBoxed(BooleanCompareNode node, InterpreterDataType left, InterpreterDataType right) {
         // Handle different types of comparisons
         if (left instanceof IntegerDataType && right instanceof IntegerDataType) {
-            int leftValue = ((IntegerDataType) left).getValue();
-            int rightValue = ((IntegerDataType) right).getValue();
-            
-            switch (node.getOperator()) {
-                case EQUAL:
-                    return leftValue == rightValue;
-                case NOT_EQUAL:
-                    return leftValue != rightValue;
-                case GREATER_THAN:
-                    return leftValue > rightValue;
-                case GREATER_EQUAL:
-                    return leftValue >= rightValue;
-                case LESS_THAN:
-                    return leftValue < rightValue;
-                case LESS_EQUAL:
-                    return leftValue <= rightValue;
-                default:
-                    throw new RuntimeException("Unsupported comparison: " + node.getOperator());
-            }
+            return compareInts(node.getOperator(), ((IntegerDataType) left).getValue(), ((IntegerDataType) right).getValue());
         } else if (left instanceof RealDataType && right instanceof RealDataType) {
-            float leftValue = ((RealDataType) left).getValue();
-            float rightValue = ((RealDataType) right).getValue();
-            
-            switch (node.getOperator()) {
-                case EQUAL:
-                    return leftValue == rightValue;
-                case NOT_EQUAL:
-                    return leftValue != rightValue;
-                case GREATER_THAN:
-                    return leftValue > rightValue;
-                case GREATER_EQUAL:
-                    return leftValue >= rightValue;
-                case LESS_THAN:
-                    return leftValue < rightValue;
-                case LESS_EQUAL:
-                    return leftValue <= rightValue;
-                default:
-                    throw new RuntimeException("Unsupported comparison: " + node.getOperator());
-            }
+            return compareReals(node.getOperator(), ((RealDataType) left).getValue(), ((RealDataType) right).getValue());
         } else if (left instanceof StringDataType && right instanceof StringDataType) {
-            String leftValue = ((StringDataType) left).getValue();
-            String rightValue = ((StringDataType) right).getValue();
+            boolean equal = ((StringDataType) left).contentEquals((StringDataType) right);
             
             switch (node.getOperator()) {
                 case EQUAL:
-                    return leftValue.equals(rightValue);
+                    return equal;
                 case NOT_EQUAL:
-                    return !leftValue.equals(rightValue);
+                    return !equal;
                 default:
                     throw new RuntimeException("Only equality comparisons are supported for strings");
             }
@@ -333,54 +671,200 @@ public class Interpreter {
         }
     }
     
+    /**
+     * Compares two integers
+     * @param operator The comparison operator
+     * @param leftValue The left operand
+     * @param rightValue The right operand
+     * @return The result of the comparison
+     */
+    private boolean compareInts(BooleanCompareNode.ComparisonOperator operator, int leftValue, int rightValue) {
+        switch (operator) {
+            case EQUAL:
+                return leftValue == rightValue;
+            case NOT_EQUAL:
+                return leftValue != rightValue;
+            case GREATER_THAN:
+                return leftValue > rightValue;
+            case GREATER_EQUAL:
+                return leftValue >= rightValue;
+            case LESS_THAN:
+                return leftValue < rightValue;
+            case LESS_EQUAL:
+                return leftValue <= rightValue;
+            default:
+                throw new RuntimeException("Unsupported comparison: " + operator);
+        }
+    }
+    
+    /**
+     * Compares two reals
+     * @param operator The comparison operator
+     * @param leftValue The left operand
+     * @param rightValue The right operand
+     * @return The result of the comparison
+     */
+    private boolean compareReals(BooleanCompareNode.ComparisonOperator operator, float leftValue, float rightValue) {
+        switch (operator) {
+            case EQUAL:
+                return leftValue == rightValue;
+            case NOT_EQUAL:
+                return leftValue != rightValue;
+            case GREATER_THAN:
+                return leftValue > rightValue;
+            case GREATER_EQUAL:
+                return leftValue >= rightValue;
+            case LESS_THAN:
+                return leftValue < rightValue;
+            case LESS_EQUAL:
+                return leftValue <= rightValue;
+            default:
+                throw new RuntimeException("Unsupported comparison: " + operator);
+        }
+    }
+    
     /**
      * Handles an assignment node
      * @param node The assignment node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void handleAssignmentNode(AssignmentNode node, Map<String, InterpreterDataType> variables) {
-        String name = node.getTarget().getName().toLowerCase();
-        InterpreterDataType value = expression(node.getValue(), variables);
+    private void handleAssignmentNode(AssignmentNode node, InterpreterDataType[] frame) {
+        if (node.getTarget().getIndexExpression() != null) {
+            assignElement(node, frame);
+            return;
+        }
+        
+        int slot = node.getTarget().getSlot();
+        InterpreterDataType currentValue = frame[slot];
+        Node valueNode = node.getValue();
+        
+        // Specialized integer and real results go straight into the variable without being boxed
+        if (specializing && valueNode instanceof MathOpNode) {
+            Specialization specialization = ((MathOpNode) valueNode).getSpecialization();
+            if (specialization == Specialization.INTEGER && currentValue instanceof IntegerDataType) {
+                try {
+                    ((IntegerDataType) currentValue).setValue(executeInt(valueNode, frame));
+                    return;
+                } catch (UnexpectedTypeException e) {
+                    assignBoxed(currentValue, e.getValue(), frame, slot);
+                    return;
+                }
+            } else if (specialization == Specialization.REAL && currentValue instanceof RealDataType) {
+                try {
+                    ((RealDataType) currentValue).setValue(executeReal(valueNode, frame));
+                    return;
+                } catch (UnexpectedTypeException e) {
+                    assignBoxed(currentValue, e.getValue(), frame, slot);
+                    return;
+                }
+            }
+        }
         
-        // Check if the variable exists
-        if (!variables.containsKey(name)) {
-            throw new RuntimeException("Variable not found: " + name);
+        // Proven integer and real results go straight into the variable without being boxed
+        if (!specializing && valueNode instanceof MathOpNode) {
+            String type = ((MathOpNode) valueNode).getType();
+            if ("integer".equals(type) && currentValue instanceof IntegerDataType) {
+                ((IntegerDataType) currentValue).setValue(evalInt(valueNode, frame));
+                return;
+            } else if ("real".equals(type) && currentValue instanceof RealDataType) {
+                ((RealDataType) currentValue).setValue(evalReal(valueNode, frame));
+                return;
+            }
         }
         
+        assignBoxed(currentValue, expression(valueNode, frame), frame, slot);
+    }
+    
+    /**
+     * Handles an assignment to an array element. Proven integer and real results are
+     * stored into the primitive array without being boxed.
+     * @param node The assignment node
+     * @param frame The current function's frame
+     */
+    private void assignElement(AssignmentNode node, InterpreterDataType[] frame) {
+        VariableReferenceNode target = node.getTarget();
+        ArrayDataType array = array(target, frame);
+        int index = evalIndex(target, frame);
+        Node valueNode = node.getValue();
+        
+        if (array instanceof IntegerArrayDataType && isProven(valueNode, "integer")) {
+            ((IntegerArrayDataType) array).setInt(index, evalInt(valueNode, frame));
+        } else if (array instanceof RealArrayDataType && isProven(valueNode, "real")) {
+            ((RealArrayDataType) array).setReal(index, evalReal(valueNode, frame));
+        } else {
+            array.set(index, expression(valueNode, frame));
+        }
+    }
+    
+    /**
+     * Checks whether an expression is a literal or a math operation SemanticAnalysis proved
+     * to have the given type, so it can be evaluated unboxed
+     * @param node The expression node
+     * @param type "integer" or "real"
+     * @return True if the expression has the type
+     */
+    private boolean isProven(Node node, String type) {
+        if (node instanceof MathOpNode) {
+            return type.equals(((MathOpNode) node).getType());
+        }
+        return type.equals("integer") ? node instanceof IntegerNode : node instanceof RealNode;
+    }
+    
+    /**
+     * Assigns an evaluated value to a variable, checking its type
+     * @param currentValue The variable's current value
+     * @param value The value to assign
+     * @param frame The current function's frame
+     * @param slot The variable's slot
+     */
+    private void assignBoxed(InterpreterDataType currentValue, InterpreterDataType value, InterpreterDataType[] frame, int slot) {
         // Check if the types are compatible
-        InterpreterDataType currentValue = variables.get(name);
         if (currentValue.getClass() != value.getClass()) {
             throw new RuntimeException("Type mismatch in assignment");
         }
         
-        // Update the variable's value
-        variables.put(name, value);
+        // Update the variable in place, so var parameters aliasing it see the change
+        if (value instanceof IntegerDataType) {
+            ((IntegerDataType) currentValue).setValue(((IntegerDataType) value).getValue());
+        } else if (value instanceof RealDataType) {
+            ((RealDataType) currentValue).setValue(((RealDataType) value).getValue());
+        } else if (value instanceof StringDataType) {
+            ((StringDataType) currentValue).setValue((StringDataType) value);
+        } else if (value instanceof BooleanDataType) {
+            ((BooleanDataType) currentValue).setValue(((BooleanDataType) value).getValue());
+        } else if (value instanceof CharacterDataType) {
+            ((CharacterDataType) currentValue).setValue(((CharacterDataType) value).getValue());
+        } else {
+            // Arrays are assigned by replacement, with a copy so the two variables don't alias;
+            // the copy shares storage until one of them is written to
+            frame[slot] = ((ArrayDataType) value).copy();
+        }
     }
     
     /**
      * Handles an if node
      * @param node The if node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void handleIfNode(IfNode node, Map<String, InterpreterDataType> variables) {
-        boolean condition = evaluateBooleanCompare((BooleanCompareNode)node.getCondition(), variables);
+    private void handleIfNode(IfNode node, InterpreterDataType[] frame) {
+        boolean condition = evaluateCondition(node.getCondition(), frame);
         
         if (condition) {
             // Execute the if block
-            interpretBlock(node.getStatements(), variables);
+            interpretBlock(node.getStatements(), frame);
         } else {
             // Check for else-if or else blocks
             IfNode elseIfNode = node.getNextIf();
             while (elseIfNode != null) {
                 if (elseIfNode.getCondition() == null) {
                     // This is an else block (no condition)
-                    interpretBlock(elseIfNode.getStatements(), variables);
+                    interpretBlock(elseIfNode.getStatements(), frame);
                     break;
                 } else {
                     // This is an else-if block
-                    condition = evaluateBooleanCompare((BooleanCompareNode)elseIfNode.getCondition(), variables);
+                    condition = evaluateCondition(elseIfNode.getCondition(), frame);
                     if (condition) {
-                        interpretBlock(elseIfNode.getStatements(), variables);
+                        interpretBlock(elseIfNode.getStatements(), frame);
                         break;
                     }
                 }
@@ -392,41 +876,36 @@ public class Interpreter {
     /**
      * Handles a while node
      * @param node The while node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void handleWhileNode(WhileNode node, Map<String, InterpreterDataType> variables) {
-        while (evaluateBooleanCompare((BooleanCompareNode)node.getCondition(), variables)) {
-            interpretBlock(node.getStatements(), variables);
+    private void handleWhileNode(WhileNode node, InterpreterDataType[] frame) {
+        while (evaluateCondition(node.getCondition(), frame)) {
+            interpretBlock(node.getStatements(), frame);
         }
     }
     
     /**
      * Handles a repeat node
      * @param node The repeat node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void handleRepeatNode(RepeatNode node, Map<String, InterpreterDataType> variables) {
+    private void handleRepeatNode(RepeatNode node, InterpreterDataType[] frame) {
         do {
-            interpretBlock(node.getStatements(), variables);
-        } while (!evaluateBooleanCompare((BooleanCompareNode)node.getCondition(), variables));
+            interpretBlock(node.getStatements(), frame);
+        } while (!evaluateCondition(node.getCondition(), frame));
     }
     
     /**
      * Handles a for node
      * @param node The for node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void handleForNode(ForNode node, Map<String, InterpreterDataType> variables) {
-        String varName = node.getVariable().getName().toLowerCase();
-        
-        // Check if the variable exists
-        if (!variables.containsKey(varName)) {
-            throw new RuntimeException("Variable not found: " + varName);
-        }
+    private void handleForNode(ForNode node, InterpreterDataType[] frame) {
+        int slot = node.getVariable().getSlot();
         
         // Get the start and end values
-        InterpreterDataType startIDT = expression(node.getFromExpr(), variables);
-        InterpreterDataType endIDT = expression(node.getToExpr(), variables);
+        InterpreterDataType startIDT = expression(node.getFromExpr(), frame);
+        InterpreterDataType endIDT = expression(node.getToExpr(), frame);
         
         // Ensure both are integers
         if (!(startIDT instanceof IntegerDataType) || !(endIDT instanceof IntegerDataType)) {
@@ -436,21 +915,34 @@ public class Interpreter {
         int start = ((IntegerDataType) startIDT).getValue();
         int end = ((IntegerDataType) endIDT).getValue();
         
-        // Set the loop variable to the start value
-        variables.put(varName, new IntegerDataType(start));
+        // Set the loop variable to the start value; it is updated in place from then on
+        IntegerDataType counter = (IntegerDataType) frame[slot];
+        counter.setValue(start);
+        
+        // A counter whose range holds both ends stays in it, otherwise each value is checked
+        RangeCheck range = node.getRangeCheck();
+        if (range != null && range.contains(Math.min(start, end), Math.max(start, end))) {
+            range = null;
+        }
         
         // Determine if we're counting up or down
         if (start <= end) {
             // Count up
             for (int i = start; i <= end; i++) {
-                variables.put(varName, new IntegerDataType(i));
-                interpretBlock(node.getStatements(), variables);
+                if (range != null) {
+                    range.checkInt(i);
+                }
+                counter.setValue(i);
+                interpretBlock(node.getStatements(), frame);
             }
         } else {
             // Count down
             for (int i = start; i >= end; i--) {
-                variables.put(varName, new IntegerDataType(i));
-                interpretBlock(node.getStatements(), variables);
+                if (range != null) {
+                    range.checkInt(i);
+                }
+                counter.setValue(i);
+                interpretBlock(node.getStatements(), frame);
             }
         }
     }
@@ -458,132 +950,114 @@ public class Interpreter {
     /**
      * Handles a function call node
      * @param node The function call node
-     * @param variables The current variable scope
+     * @param frame The current function's frame
      */
-    private void handleFunctionCallNode(FunctionCallNode node, Map<String, InterpreterDataType> variables) {
-        String functionName = node.getName().toLowerCase();
-        FunctionNode function = functions.get(functionName);
-        
-        if (function == null) {
-            throw new RuntimeException("Function not found: " + functionName);
-        }
+    private void handleFunctionCallNode(FunctionCallNode node, InterpreterDataType[] frame) {
+        // The callee was linked by the SlotResolver, so no lookup is needed here
+        FunctionNode function = node.getFunction();
+        String functionName = function.getName();
         
         // Check parameter count
         List<ParameterNode> callParameters = node.getParameters();
         List<VariableNode> functionParameters = function.getParameters();
         
-        // If the function is not variadic, check that parameter counts match
-        if (!function.isVariadic() && callParameters.size() != functionParameters.size()) {
+        // Calls to built-ins were checked against their signature when they were linked
+        BuiltIn builtIn = node.getBuiltIn();
+        if (builtIn == null && callParameters.size() != functionParameters.size()) {
             throw new RuntimeException("Function " + functionName + " expects " + 
                                       functionParameters.size() + " parameters, but got " + 
                                       callParameters.size());
         }
         
         // Create a new collection of IDTs for the function call
-        List<InterpreterDataType> parameterValues = new ArrayList<>();
+        InterpreterDataType[] parameterValues = new InterpreterDataType[callParameters.size()];
+        // Index of each var array element argument, stored back into after the call
+        int[] elementIndexes = null;
         
         // Evaluate each parameter and add to the collection
         for (int i = 0; i < callParameters.size(); i++) {
             ParameterNode callParam = callParameters.get(i);
+            VariableReferenceNode reference = callParam.getVariableReference();
             
-            // Evaluate the parameter expression
-            InterpreterDataType value;
-            if (callParam.getExpression() instanceof VariableReferenceNode && callParam.isVar()) {
-                // For var parameters, we need to get the variable reference
-                VariableReferenceNode varRef = (VariableReferenceNode) callParam.getExpression();
-                String varName = varRef.getName().toLowerCase();
-                value = variables.get(varName);
-                
-                if (value == null) {
-                    throw new RuntimeException("Variable not found: " + varName);
+            if (callParam.isVar() && reference.getIndexExpression() != null) {
+                // Array elements have no variable of their own, so pass a box holding the element
+                if (elementIndexes == null) {
+                    elementIndexes = new int[callParameters.size()];
                 }
-                
-                // Create a copy of the value for the function to modify
-                parameterValues.add(value);
+                elementIndexes[i] = evalIndex(reference, frame);
+                parameterValues[i] = array(reference, frame).get(elementIndexes[i]);
+            } else if (callParam.isVar() && (builtIn != null || functionParameters.get(i).isVar())) {
+                // For var parameters, pass the caller's variable itself
+                parameterValues[i] = frame[reference.getSlot()];
+            } else if (callParam.isVar()) {
+                // A parameter that isn't var gets a copy, so the callee's writes stay its own
+                parameterValues[i] = createCopyOfIDT(frame[reference.getSlot()]);
             } else {
-                // For non-var parameters, evaluate the expression
-                value = expression(callParam.getExpression(), variables);
-                
-                // Create a copy of the value
-                InterpreterDataType copy = createCopyOfIDT(value);
-                parameterValues.add(copy);
+                // For non-var parameters, evaluate the expression and pass a copy
+                InterpreterDataType value = expression(callParam.getExpression(), frame);
+                parameterValues[i] = createCopyOfIDT(value);
             }
         }
         
         // Execute the function
-        if (function instanceof BuiltInRead || 
-            function instanceof BuiltInWrite || 
-            function instanceof BuiltInLeft || 
-            function instanceof BuiltInRight || 
-            function instanceof BuiltInSubstring || 
-            function instanceof BuiltInSquareRoot || 
-            function instanceof BuiltInGetRandom || 
-            function instanceof BuiltInIntegerToReal || 
-            function instanceof BuiltInRealToInteger || 
-            function instanceof BuiltInStart || 
-            function instanceof BuiltInEnd) {
-            
-            // Execute built-in function
-            function.execute(parameterValues);
-        } else {
-            // Create a new scope for the function
-            Map<String, InterpreterDataType> functionVariables = new HashMap<>();
-            
-            // Add parameters to the function's variable scope
-            for (int i = 0; i < functionParameters.size(); i++) {
-                VariableNode param = functionParameters.get(i);
-                String paramName = param.getName().toLowerCase();
-                
-                // Use the evaluated parameter value
-                InterpreterDataType paramValue = parameterValues.get(i);
-                functionVariables.put(paramName, paramValue);
+        if (builtIn != null) {
+            // Execute built-in function; var parameters are updated in place, except that it may
+            // hand back a new array, which replaces the caller's
+            builtIn.execute(parameterValues);
+            for (int i = 0; i < callParameters.size(); i++) {
+                VariableReferenceNode reference = callParameters.get(i).getVariableReference();
+                if (callParameters.get(i).isVar() && reference.getIndexExpression() == null &&
+                    parameterValues[i] instanceof ArrayDataType) {
+                    frame[reference.getSlot()] = parameterValues[i];
+                }
             }
+        } else {
+            // Create a new frame for the function, parameters first
+            InterpreterDataType[] functionFrame = new InterpreterDataType[function.getSlotCount()];
+            System.arraycopy(parameterValues, 0, functionFrame, 0, parameterValues.length);
+            initializeLocals(function, functionFrame);
             
-            // Add constants to the function's variable scope
-            for (VariableNode constant : function.getConstants()) {
-                String name = constant.getName().toLowerCase();
-                InterpreterDataType value = createIDTFromVariableNode(constant);
-                functionVariables.put(name, value);
-            }
+            // Interpret the function's statements
+            interpretBlock(function.getStatements(), functionFrame);
             
-            // Add local variables to the function's variable scope
-            for (VariableNode variable : function.getVariables()) {
-                String name = variable.getName().toLowerCase();
-                InterpreterDataType value = createIDTFromVariableNode(variable);
-                functionVariables.put(name, value);
+            // Scalar var parameters were updated in place; arrays are still assigned by
+            // replacement, so copy those back
+            for (int i = 0; i < callParameters.size(); i++) {
+                ParameterNode callParam = callParameters.get(i);
+                
+                // Only copy back when both the argument and the parameter are var
+                if (callParam.isVar() && functionParameters.get(i).isVar() &&
+                    callParam.getVariableReference().getIndexExpression() == null && functionFrame[i] instanceof ArrayDataType) {
+                    frame[callParam.getVariableReference().getSlot()] = functionFrame[i];
+                }
             }
-            
-            // Interpret the function's statements
-            interpretBlock(function.getStatements(), functionVariables);
         }
         
-        // Copy values back for var parameters
+        // The copies of arrays passed by value are no longer used, so stop them sharing the caller's storage
         for (int i = 0; i < callParameters.size(); i++) {
-            ParameterNode callParam = callParameters.get(i);
-            
-            // Only copy back for var parameters
-            if (callParam.isVar()) {
-                // Check if the function parameter is also var
-                boolean isFunctionParamVar = false;
-                
-                if (function.isVariadic()) {
-                    // For variadic functions, all parameters can be var
-                    isFunctionParamVar = true;
-                } else if (i < functionParameters.size()) {
-                    VariableNode functionParam = functionParameters.get(i);
-                    isFunctionParamVar = functionParam.isVar();
-                }
-                
-                if (isFunctionParamVar) {
-                    // Get the variable reference
-                    VariableReferenceNode varRef = (VariableReferenceNode) callParam.getExpression();
-                    String varName = varRef.getName().toLowerCase();
-                    
-                    // Update the variable in the caller's scope
-                    variables.put(varName, parameterValues.get(i));
+            boolean copied = !callParameters.get(i).isVar() || builtIn == null && !functionParameters.get(i).isVar();
+            if (copied && parameterValues[i] instanceof ArrayDataType) {
+                ((ArrayDataType) parameterValues[i]).release();
+            }
+        }
+        
+        // Store var array element arguments back into their arrays
+        if (elementIndexes != null) {
+            for (int i = 0; i < callParameters.size(); i++) {
+                ParameterNode callParam = callParameters.get(i);
+                if (callParam.isVar() && callParam.getVariableReference().getIndexExpression() != null &&
+                    (builtIn != null || functionParameters.get(i).isVar())) {
+                    array(callParam.getVariableReference(), frame).set(elementIndexes[i], parameterValues[i]);
                 }
             }
         }
+        
+        // Check the range-constrained variables the callee may have stored into
+        for (ParameterNode callParam : callParameters) {
+            if (callParam.getRangeCheck() != null) {
+                callParam.getRangeCheck().check(frame[callParam.getVariableReference().getSlot()]);
+            }
+        }
     }
     
     /**
@@ -597,16 +1071,34 @@ public class Interpreter {
         } else if (original instanceof RealDataType) {
             return new RealDataType(((RealDataType) original).getValue());
         } else if (original instanceof StringDataType) {
-            return new StringDataType(((StringDataType) original).getValue());
+            return new StringDataType((StringDataType) original);
         } else if (original instanceof BooleanDataType) {
             return new BooleanDataType(((BooleanDataType) original).getValue());
         } else if (original instanceof CharacterDataType) {
             return new CharacterDataType(((CharacterDataType) original).getValue());
         } else if (original instanceof ArrayDataType) {
-            // This is a placeholder - you'll need to implement deep copying for arrays
-            return new ArrayDataType();
+            return ((ArrayDataType) original).copy();
         } else {
             throw new RuntimeException("Unsupported data type for copying: " + original.getClass().getName());
         }
     }
+    
+    /**
+     * Thrown in specializing mode when an expression does not have the type a node
+     * specialized on. It carries the value so nothing has to be evaluated twice.
+     */
+    private static class UnexpectedTypeException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private InterpreterDataType value;
+        
+        // Thrown on every deoptimization, so it records no stack trace
+        UnexpectedTypeException(InterpreterDataType value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+        
+        InterpreterDataType getValue() {
+            return value;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package Shanks;
+
+/**
+ * Superclass of the hidden classes generated by the JvmCompiler. Each one runs a function
+ * body or a loop against the frame of the function it belongs to.
+ */
+public abstract class JitCode {
+    // Slots the code keeps in JVM locals, and those of them it writes back
+    private int[] touchedSlots = new int[0];
+    private int[] assignedSlots = new int[0];
+    
+    protected JitCode() {
+    }
+    
+    void setSlots(int[] touchedSlots, int[] assignedSlots) {
+        this.touchedSlots = touchedSlots;
+        this.assignedSlots = assignedSlots;
+    }
+    
+    /**
+     * Checks whether the code can run against a frame. Var parameters can hold the same
+     * variable as another slot, and since the code keeps each slot in a local of its own,
+     * writes through one of them would be lost; such frames are left to the closures.
+     * @param frame The frame of the running function
+     * @return True if no slot the code writes holds the same variable as another it touches
+     */
+    public boolean canRun(InterpreterDataType[] frame) {
+        for (int assigned : assignedSlots) {
+            for (int touched : touchedSlots) {
+                if (touched != assigned && frame[touched] == frame[assigned]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Runs the compiled code
+     * @param frame The frame of the running function
+     * @param start For a compiled for loop, the first counter value; unused otherwise
+     * @param end For a compiled for loop, the last counter value; unused otherwise
+     */
+    public abstract void run(InterpreterDataType[] frame, int start, int end);
+}
\ No newline at end of file
@@ -0,0 +1,574 @@
+package Shanks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Compiles hot loops and function bodies into JVM bytecode, loaded as hidden classes so
+ * HotSpot optimizes them like any other Java method. Every variable the code touches is
+ * loaded from the frame into a primitive JVM local on entry and stored back on exit, so
+ * the compiled code itself never boxes.
+ *
+ * Only integer, real, boolean and character variables, arithmetic, comparisons and the
+ * assignment, if, while, repeat and for statements are supported. Code using anything else
+ * (calls, strings, arrays) keeps running on the ClosureCompiler's nodes.
+ */
+public class JvmCompiler {
+    // Calls of a function before its body is compiled
+    public static final int CALL_THRESHOLD = 1000;
+    // Iterations of a loop before it is compiled
+    public static final int LOOP_THRESHOLD = 10000;
+    
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String RUN_DESCRIPTOR = "([LShanks/InterpreterDataType;II)V";
+    
+    // JVM locals: this, frame, start, end, one per frame slot, then for loop temporaries
+    private static final int FRAME_LOCAL = 1;
+    private static final int START_LOCAL = 2;
+    private static final int END_LOCAL = 3;
+    private static final int FIRST_SLOT_LOCAL = 4;
+    
+    private String[] slotTypes;
+    private ClassFileWriter writer;
+    private boolean[] touched;
+    private boolean[] assigned;
+    private int nextLocal;
+    private int maxStack;
+    
+    private JvmCompiler(String[] slotTypes) {
+        this.slotTypes = slotTypes;
+        this.touched = new boolean[slotTypes.length];
+        this.assigned = new boolean[slotTypes.length];
+    }
+    
+    /**
+     * Checks whether a list of statements can be compiled to JVM bytecode
+     * @param statements The statements to check
+     * @param slotTypes The declared type of each frame slot
+     * @return True if every statement is supported
+     */
+    public static boolean canCompile(List<StatementNode> statements, String[] slotTypes) {
+        for (StatementNode statement : statements) {
+            if (!canCompile(statement, slotTypes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Checks whether a statement can be compiled to JVM bytecode
+     * @param statement The statement to check
+     * @param slotTypes The declared type of each frame slot
+     * @return True if the statement and everything in it is supported
+     */
+    public static boolean canCompile(StatementNode statement, String[] slotTypes) {
+        if (statement instanceof AssignmentNode) {
+            AssignmentNode node = (AssignmentNode) statement;
+            // Stores RangeAnalysis couldn't prove in range are left to the engines that check them
+            return node.getRangeCheck() == null && isPrimitiveVariable(node.getTarget(), slotTypes) &&
+                   canCompileExpression(node.getValue(), slotTypes) &&
+                   slotTypes[node.getTarget().getSlot()].equals(SlotResolver.typeOf(node.getValue(), slotTypes));
+        } else if (statement instanceof IfNode) {
+            for (IfNode current = (IfNode) statement; current != null; current = current.getNextIf()) {
+                if (current.getCondition() != null && !canCompileCondition(current.getCondition(), slotTypes)) {
+                    return false;
+                }
+                if (!canCompile(current.getStatements(), slotTypes)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (statement instanceof WhileNode) {
+            WhileNode node = (WhileNode) statement;
+            return canCompileCondition(node.getCondition(), slotTypes) && canCompile(node.getStatements(), slotTypes);
+        } else if (statement instanceof RepeatNode) {
+            RepeatNode node = (RepeatNode) statement;
+            return canCompileCondition(node.getCondition(), slotTypes) && canCompile(node.getStatements(), slotTypes);
+        } else if (statement instanceof ForNode) {
+            ForNode node = (ForNode) statement;
+            return node.getRangeCheck() == null && isPrimitiveVariable(node.getVariable(), slotTypes) &&
+                   slotTypes[node.getVariable().getSlot()].equals("integer") &&
+                   canCompileExpression(node.getFromExpr(), slotTypes) &&
+                   SlotResolver.typeOf(node.getFromExpr(), slotTypes).equals("integer") &&
+                   canCompileExpression(node.getToExpr(), slotTypes) &&
+                   SlotResolver.typeOf(node.getToExpr(), slotTypes).equals("integer") &&
+                   canCompile(node.getStatements(), slotTypes);
+        }
+        return false;
+    }
+    
+    private static boolean canCompileCondition(Node node, String[] slotTypes) {
+        if (!(node instanceof BooleanCompareNode)) {
+            return canCompileExpression(node, slotTypes) && SlotResolver.typeOf(node, slotTypes).equals("boolean");
+        }
+        
+        BooleanCompareNode compare = (BooleanCompareNode) node;
+        if (!canCompileExpression(compare.getLeftSide(), slotTypes) || !canCompileExpression(compare.getRightSide(), slotTypes)) {
+            return false;
+        }
+        
+        String type = SlotResolver.typeOf(compare.getLeftSide(), slotTypes);
+        if (!type.equals(SlotResolver.typeOf(compare.getRightSide(), slotTypes))) {
+            return false;
+        }
+        if (type.equals("boolean")) {
+            return compare.getOperator() == BooleanCompareNode.ComparisonOperator.EQUAL ||
+                   compare.getOperator() == BooleanCompareNode.ComparisonOperator.NOT_EQUAL;
+        }
+        return type.equals("integer") || type.equals("real");
+    }
+    
+    private static boolean canCompileExpression(Node node, String[] slotTypes) {
+        if (node instanceof VariableReferenceNode) {
+            return isPrimitiveVariable((VariableReferenceNode) node, slotTypes);
+        } else if (node instanceof IntegerNode || node instanceof RealNode ||
+                   node instanceof BooleanNode || node instanceof CharacterNode) {
+            return true;
+        } else if (node instanceof MathOpNode) {
+            MathOpNode mathOp = (MathOpNode) node;
+            if (!canCompileExpression(mathOp.getLeft(), slotTypes) || !canCompileExpression(mathOp.getRight(), slotTypes)) {
+                return false;
+            }
+            String type = SlotResolver.typeOf(mathOp, slotTypes);
+            return type.equals("integer") || (type.equals("real") && mathOp.getOperation() != MathOpNode.Operation.MOD);
+        } else if (node instanceof BooleanCompareNode) {
+            return canCompileCondition(node, slotTypes);
+        }
+        return false;
+    }
+    
+    private static boolean isPrimitiveVariable(VariableReferenceNode node, String[] slotTypes) {
+        if (node.getIndexExpression() != null) {
+            return false;
+        }
+        String type = slotTypes[node.getSlot()];
+        return type.equals("integer") || type.equals("real") || type.equals("boolean") || type.equals("character");
+    }
+    
+    /**
+     * Compiles a function body, or a while or repeat loop given as a one-statement list.
+     * Running a loop's code from the top continues it from whatever state the frame is in.
+     * @param name Name of the function the code belongs to
+     * @param statements The statements, which must pass canCompile
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled code, or null if it could not be compiled
+     */
+    public static JitCode compile(String name, List<StatementNode> statements, String[] slotTypes) {
+        return new JvmCompiler(slotTypes).generate(name, statements, null);
+    }
+    
+    /**
+     * Compiles a for loop whose counter range is passed to JitCode.run, so it can take over
+     * a loop that is already running
+     * @param name Name of the function the loop belongs to
+     * @param node The for loop, which must pass canCompile
+     * @param slotTypes The declared type of each frame slot
+     * @return The compiled loop, or null if it could not be compiled
+     */
+    public static JitCode compileForLoop(String name, ForNode node, String[] slotTypes) {
+        return new JvmCompiler(slotTypes).generate(name, node.getStatements(), node);
+    }
+    
+    /**
+     * Generates and loads the hidden class
+     * @param name Name of the function the code belongs to
+     * @param statements The statements to compile
+     * @param loop The for loop the statements are the body of, or null
+     * @return The compiled code, or null if it could not be compiled
+     */
+    private JitCode generate(String name, List<StatementNode> statements, ForNode loop) {
+        try {
+            collect(statements);
+            if (loop != null) {
+                touch(loop.getVariable(), true);
+            }
+            
+            writer = new ClassFileWriter("Shanks/Jit$" + name, "Shanks/JitCode");
+            writer.beginMethod();
+            nextLocal = FIRST_SLOT_LOCAL + slotTypes.length;
+            maxStack = 3;
+            
+            loadSlots();
+            if (loop == null) {
+                emitBlock(statements);
+            } else {
+                emitForLoop(loop, START_LOCAL, END_LOCAL);
+            }
+            storeSlots();
+            writer.emit(ClassFileWriter.RETURN);
+            writer.endMethod("run", RUN_DESCRIPTOR, maxStack, nextLocal);
+            
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(writer.toByteArray(), true);
+            JitCode code = (JitCode) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+            code.setSlots(slotsWhere(touched), slotsWhere(assigned));
+            return code;
+        } catch (Throwable e) {
+            // The closure-compiled code keeps running, so a failure here only costs speed
+            System.err.println("JIT: could not compile code in '" + name + "': " + e);
+            return null;
+        }
+    }
+    
+    // Finding the slots the code reads and writes
+    
+    private void collect(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof AssignmentNode) {
+                touch(((AssignmentNode) statement).getTarget(), true);
+                collectExpression(((AssignmentNode) statement).getValue());
+            } else if (statement instanceof IfNode) {
+                for (IfNode current = (IfNode) statement; current != null; current = current.getNextIf()) {
+                    if (current.getCondition() != null) {
+                        collectExpression(current.getCondition());
+                    }
+                    collect(current.getStatements());
+                }
+            } else if (statement instanceof WhileNode) {
+                collectExpression(((WhileNode) statement).getCondition());
+                collect(((WhileNode) statement).getStatements());
+            } else if (statement instanceof RepeatNode) {
+                collectExpression(((RepeatNode) statement).getCondition());
+                collect(((RepeatNode) statement).getStatements());
+            } else if (statement instanceof ForNode) {
+                ForNode node = (ForNode) statement;
+                touch(node.getVariable(), true);
+                collectExpression(node.getFromExpr());
+                collectExpression(node.getToExpr());
+                collect(node.getStatements());
+            }
+        }
+    }
+    
+    private void collectExpression(Node node) {
+        if (node instanceof VariableReferenceNode) {
+            touch((VariableReferenceNode) node, false);
+        } else if (node instanceof MathOpNode) {
+            collectExpression(((MathOpNode) node).getLeft());
+            collectExpression(((MathOpNode) node).getRight());
+        } else if (node instanceof BooleanCompareNode) {
+            collectExpression(((BooleanCompareNode) node).getLeftSide());
+            collectExpression(((BooleanCompareNode) node).getRightSide());
+        }
+    }
+    
+    private void touch(VariableReferenceNode node, boolean isAssignment) {
+        touched[node.getSlot()] = true;
+        if (isAssignment) {
+            assigned[node.getSlot()] = true;
+        }
+    }
+    
+    // Moving values between the frame and JVM locals
+    
+    /**
+     * Unboxes every touched slot into its JVM local
+     */
+    private void loadSlots() {
+        for (int slot = 0; slot < slotTypes.length; slot++) {
+            if (touched[slot]) {
+                String owner = boxClass(slotTypes[slot]);
+                writer.emitVar(ClassFileWriter.ALOAD, FRAME_LOCAL);
+                writer.emitInt(slot);
+                writer.emit(ClassFileWriter.AALOAD);
+                writer.emitType(ClassFileWriter.CHECKCAST, owner);
+                writer.emitMethodCall(ClassFileWriter.INVOKEVIRTUAL, owner, "getValue", "()" + descriptor(slotTypes[slot]));
+                writer.emitVar(isReal(slot) ? ClassFileWriter.FSTORE : ClassFileWriter.ISTORE, FIRST_SLOT_LOCAL + slot);
+            }
+        }
+    }
+    
+    /**
+     * Writes every assigned JVM local back into its variable, in place like an assignment
+     */
+    private void storeSlots() {
+        for (int slot = 0; slot < slotTypes.length; slot++) {
+            if (assigned[slot]) {
+                String owner = boxClass(slotTypes[slot]);
+                writer.emitVar(ClassFileWriter.ALOAD, FRAME_LOCAL);
+                writer.emitInt(slot);
+                writer.emit(ClassFileWriter.AALOAD);
+                writer.emitType(ClassFileWriter.CHECKCAST, owner);
+                writer.emitVar(isReal(slot) ? ClassFileWriter.FLOAD : ClassFileWriter.ILOAD, FIRST_SLOT_LOCAL + slot);
+                writer.emitMethodCall(ClassFileWriter.INVOKEVIRTUAL, owner, "setValue", "(" + descriptor(slotTypes[slot]) + ")V");
+            }
+        }
+    }
+    
+    private static int[] slotsWhere(boolean[] flags) {
+        int count = 0;
+        for (boolean flag : flags) {
+            if (flag) {
+                count++;
+            }
+        }
+        int[] slots = new int[count];
+        for (int slot = 0, i = 0; slot < flags.length; slot++) {
+            if (flags[slot]) {
+                slots[i++] = slot;
+            }
+        }
+        return slots;
+    }
+    
+    private boolean isReal(int slot) {
+        return slotTypes[slot].equals("real");
+    }
+    
+    private static String boxClass(String type) {
+        switch (type) {
+            case "integer": return "Shanks/IntegerDataType";
+            case "real": return "Shanks/RealDataType";
+            case "boolean": return "Shanks/BooleanDataType";
+            default: return "Shanks/CharacterDataType";
+        }
+    }
+    
+    private static String descriptor(String type) {
+        switch (type) {
+            case "integer": return "I";
+            case "real": return "F";
+            case "boolean": return "Z";
+            default: return "C";
+        }
+    }
+    
+    // Statements
+    
+    private void emitBlock(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            emitStatement(statement);
+        }
+    }
+    
+    private void emitStatement(StatementNode statement) {
+        if (statement instanceof AssignmentNode) {
+            AssignmentNode node = (AssignmentNode) statement;
+            int slot = node.getTarget().getSlot();
+            emitExpression(node.getValue(), 0);
+            writer.emitVar(isReal(slot) ? ClassFileWriter.FSTORE : ClassFileWriter.ISTORE, FIRST_SLOT_LOCAL + slot);
+        } else if (statement instanceof IfNode) {
+            int end = writer.newLabel();
+            IfNode current = (IfNode) statement;
+            for (; current != null && current.getCondition() != null; current = current.getNextIf()) {
+                int next = writer.newLabel();
+                emitCondition(current.getCondition(), next, 0);
+                emitBlock(current.getStatements());
+                writer.emitJump(ClassFileWriter.GOTO, end);
+                writer.placeLabel(next);
+            }
+            if (current != null) {
+                emitBlock(current.getStatements());
+            }
+            writer.placeLabel(end);
+        } else if (statement instanceof WhileNode) {
+            WhileNode node = (WhileNode) statement;
+            int top = writer.newLabel();
+            int exit = writer.newLabel();
+            writer.placeLabel(top);
+            emitCondition(node.getCondition(), exit, 0);
+            emitBlock(node.getStatements());
+            writer.emitJump(ClassFileWriter.GOTO, top);
+            writer.placeLabel(exit);
+        } else if (statement instanceof RepeatNode) {
+            RepeatNode node = (RepeatNode) statement;
+            int top = writer.newLabel();
+            writer.placeLabel(top);
+            emitBlock(node.getStatements());
+            emitCondition(node.getCondition(), top, 0);
+        } else if (statement instanceof ForNode) {
+            ForNode node = (ForNode) statement;
+            int counter = nextLocal++;
+            int end = nextLocal++;
+            emitExpression(node.getFromExpr(), 0);
+            writer.emitVar(ClassFileWriter.ISTORE, counter);
+            emitExpression(node.getToExpr(), 0);
+            writer.emitVar(ClassFileWriter.ISTORE, end);
+            emitForLoop(node, counter, end);
+        }
+    }
+    
+    /**
+     * Emits a for loop over a counter range already held in two JVM locals. Like the other
+     * engines it runs at least once, counting down when the start is past the end.
+     * @param node The for node
+     * @param counter The local holding the start value, used as the counter
+     * @param end The local holding the end value
+     */
+    private void emitForLoop(ForNode node, int counter, int end) {
+        int step = nextLocal++;
+        int down = writer.newLabel();
+        int stepChosen = writer.newLabel();
+        int top = writer.newLabel();
+        int exit = writer.newLabel();
+        
+        writer.emitVar(ClassFileWriter.ILOAD, counter);
+        writer.emitVar(ClassFileWriter.ILOAD, end);
+        writer.emitJump(ClassFileWriter.IF_ICMPGT, down);
+        writer.emitInt(1);
+        writer.emitJump(ClassFileWriter.GOTO, stepChosen);
+        writer.placeLabel(down);
+        writer.emitInt(-1);
+        writer.placeLabel(stepChosen);
+        writer.emitVar(ClassFileWriter.ISTORE, step);
+        
+        writer.placeLabel(top);
+        writer.emitVar(ClassFileWriter.ILOAD, counter);
+        writer.emitVar(ClassFileWriter.ISTORE, FIRST_SLOT_LOCAL + node.getVariable().getSlot());
+        emitBlock(node.getStatements());
+        writer.emitVar(ClassFileWriter.ILOAD, counter);
+        writer.emitVar(ClassFileWriter.ILOAD, end);
+        writer.emitJump(ClassFileWriter.IF_ICMPEQ, exit);
+        writer.emitVar(ClassFileWriter.ILOAD, counter);
+        writer.emitVar(ClassFileWriter.ILOAD, step);
+        writer.emit(ClassFileWriter.IADD);
+        writer.emitVar(ClassFileWriter.ISTORE, counter);
+        writer.emitJump(ClassFileWriter.GOTO, top);
+        writer.placeLabel(exit);
+    }
+    
+    // Expressions
+    
+    /**
+     * Emits a jump taken when a condition is false
+     * @param node The condition node
+     * @param falseLabel The label to jump to when the condition is false
+     * @param depth The operand stack depth before the condition
+     */
+    private void emitCondition(Node node, int falseLabel, int depth) {
+        if (!(node instanceof BooleanCompareNode)) {
+            emitExpression(node, depth);
+            writer.emitJump(ClassFileWriter.IFEQ, falseLabel);
+            return;
+        }
+        
+        BooleanCompareNode compare = (BooleanCompareNode) node;
+        emitExpression(compare.getLeftSide(), depth);
+        emitExpression(compare.getRightSide(), depth + 1);
+        
+        if (!SlotResolver.typeOf(compare.getLeftSide(), slotTypes).equals("real")) {
+            switch (compare.getOperator()) {
+                case EQUAL: writer.emitJump(ClassFileWriter.IF_ICMPNE, falseLabel); break;
+                case NOT_EQUAL: writer.emitJump(ClassFileWriter.IF_ICMPEQ, falseLabel); break;
+                case LESS_THAN: writer.emitJump(ClassFileWriter.IF_ICMPGE, falseLabel); break;
+                case LESS_EQUAL: writer.emitJump(ClassFileWriter.IF_ICMPGT, falseLabel); break;
+                case GREATER_THAN: writer.emitJump(ClassFileWriter.IF_ICMPLE, falseLabel); break;
+                default: writer.emitJump(ClassFileWriter.IF_ICMPLT, falseLabel); break;
+            }
+            return;
+        }
+        
+        // Pick FCMPG or FCMPL so a NaN operand makes every comparison but <> false
+        switch (compare.getOperator()) {
+            case EQUAL:
+                writer.emit(ClassFileWriter.FCMPL);
+                writer.emitJump(ClassFileWriter.IFNE, falseLabel);
+                break;
+            case NOT_EQUAL:
+                writer.emit(ClassFileWriter.FCMPL);
+                writer.emitJump(ClassFileWriter.IFEQ, falseLabel);
+                break;
+            case LESS_THAN:
+                writer.emit(ClassFileWriter.FCMPG);
+                writer.emitJump(ClassFileWriter.IFGE, falseLabel);
+                break;
+            case LESS_EQUAL:
+                writer.emit(ClassFileWriter.FCMPG);
+                writer.emitJump(ClassFileWriter.IFGT, falseLabel);
+                break;
+            case GREATER_THAN:
+                writer.emit(ClassFileWriter.FCMPL);
+                writer.emitJump(ClassFileWriter.IFLE, falseLabel);
+                break;
+            default:
+                writer.emit(ClassFileWriter.FCMPL);
+                writer.emitJump(ClassFileWriter.IFLT, falseLabel);
+                break;
+        }
+    }
+    
+    /**
+     * Emits code that pushes the value of an expression
+     * @param node The expression node
+     * @param depth The operand stack depth before the value is pushed
+     */
+    private void emitExpression(Node node, int depth) {
+        maxStack = Math.max(maxStack, depth + 1);
+        
+        if (node instanceof VariableReferenceNode) {
+            int slot = ((VariableReferenceNode) node).getSlot();
+            writer.emitVar(isReal(slot) ? ClassFileWriter.FLOAD : ClassFileWriter.ILOAD, FIRST_SLOT_LOCAL + slot);
+        } else if (node instanceof IntegerNode) {
+            writer.emitInt(((IntegerNode) node).getValue());
+        } else if (node instanceof RealNode) {
+            writer.emitFloat(((RealNode) node).getValue());
+        } else if (node instanceof BooleanNode) {
+            writer.emitInt(((BooleanNode) node).getValue() ? 1 : 0);
+        } else if (node instanceof CharacterNode) {
+            writer.emitInt(((CharacterNode) node).getValue());
+        } else if (node instanceof BooleanCompareNode) {
+            int falseLabel = writer.newLabel();
+            int end = writer.newLabel();
+            emitCondition(node, falseLabel, depth);
+            writer.emitInt(1);
+            writer.emitJump(ClassFileWriter.GOTO, end);
+            writer.placeLabel(falseLabel);
+            writer.emitInt(0);
+            writer.placeLabel(end);
+        } else if (node instanceof MathOpNode) {
+            emitMathOp((MathOpNode) node, depth);
+        }
+    }
+    
+    private void emitMathOp(MathOpNode node, int depth) {
+        emitExpression(node.getLeft(), depth);
+        emitExpression(node.getRight(), depth + 1);
+        
+        boolean real = SlotResolver.typeOf(node, slotTypes).equals("real");
+        switch (node.getOperation()) {
+            case ADD:
+                writer.emit(real ? ClassFileWriter.FADD : ClassFileWriter.IADD);
+                break;
+            case SUBTRACT:
+                writer.emit(real ? ClassFileWriter.FSUB : ClassFileWriter.ISUB);
+                break;
+            case MULTIPLY:
+                writer.emit(real ? ClassFileWriter.FMUL : ClassFileWriter.IMUL);
+                break;
+            case DIVIDE:
+                emitZeroCheck(real, "Division by zero", depth);
+                writer.emit(real ? ClassFileWriter.FDIV : ClassFileWriter.IDIV);
+                break;
+            default:
+                emitZeroCheck(false, "Modulo by zero", depth);
+                writer.emit(ClassFileWriter.IREM);
+                break;
+        }
+    }
+    
+    /**
+     * Emits a check that throws the engines' usual error when the divisor on top of the
+     * stack is zero
+     * @param real True if the divisor is a float
+     * @param message The error message
+     * @param depth The operand stack depth below the two operands
+     */
+    private void emitZeroCheck(boolean real, String message, int depth) {
+        maxStack = Math.max(maxStack, depth + 5);
+        int ok = writer.newLabel();
+        
+        writer.emit(ClassFileWriter.DUP);
+        if (real) {
+            writer.emit(ClassFileWriter.FCONST_0);
+            writer.emit(ClassFileWriter.FCMPL);
+        }
+        writer.emitJump(ClassFileWriter.IFNE, ok);
+        writer.emitType(ClassFileWriter.NEW, "java/lang/RuntimeException");
+        writer.emit(ClassFileWriter.DUP);
+        writer.emitString(message);
+        writer.emitMethodCall(ClassFileWriter.INVOKESPECIAL, "java/lang/RuntimeException", "<init>", "(Ljava/lang/String;)V");
+        writer.emit(ClassFileWriter.ATHROW);
+        writer.placeLabel(ok);
+    }
+}
\ No newline at end of file
@@ -12,6 +12,10 @@ public class MathOpNode extends Node {
     private Operation operation;
     private Node left;
     private Node right;
+    // Result type proven by SemanticAnalysis, or null when the operand types differ
+    private String type;
+    // Set by the Interpreter's specializing mode from the operand types it sees
+    private Specialization specialization = Specialization.UNINITIALIZED;
     
     public MathOpNode(Operation operation, Node left, Node right) {
         this.operation = operation;
@@ -31,6 +35,23 @@ public class MathOpNode extends Node {
         return right;
     }
     
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        // Interned so the Interpreter's checks on every evaluation succeed on the identity test
+        this.type = type == null ? null : type.intern();
+    }
+    
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+    
+    public void setSpecialization(Specialization specialization) {
+        this.specialization = specialization;
+    }
+    
     @Override
     public String toString() {
         return "MathOpNode(" + operation + ", " + left + ", " + right + ")";
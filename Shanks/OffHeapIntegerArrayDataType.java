@@ -0,0 +1,161 @@
+package Shanks;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * An array of integers kept off the Java heap in a direct buffer, so a huge array neither
+ * grows the heap nor gets scanned by the garbage collector. The memory is given back when
+ * the array is collected.
+ */
+public class OffHeapIntegerArrayDataType extends IntegerArrayDataType {
+    private IntBuffer buffer;
+    // Whether the buffer is a file's memory, which copies passed by value mustn't share
+    private final boolean fileBacked;
+    
+    public OffHeapIntegerArrayDataType(int lowerBound, int length, RangeCheck range) {
+        super(lowerBound, length, null, range);
+        this.buffer = allocate(length);
+        this.fileBacked = false;
+    }
+    
+    private OffHeapIntegerArrayDataType(int lowerBound, int length, IntBuffer buffer, RangeCheck range) {
+        super(lowerBound, length, null, range);
+        this.buffer = buffer;
+        this.fileBacked = false;
+    }
+    
+    /**
+     * Creates an array over a mapped file. Writes go straight to the file, and copies
+     * passed by value get memory of their own.
+     * @param lowerBound The index of the first element
+     * @param file The file's memory, holding one integer for every 4 bytes
+     * @param range The declared element range, or null if the array has none
+     */
+    public OffHeapIntegerArrayDataType(int lowerBound, ByteBuffer file, RangeCheck range) {
+        super(lowerBound, file.capacity() / Integer.BYTES, null, range);
+        this.buffer = file.asIntBuffer();
+        this.fileBacked = true;
+    }
+    
+    private static IntBuffer allocate(int length) {
+        if (length > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new RuntimeException("An array of " + length + " integers is too large to keep off the heap");
+        }
+        return ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+    
+    @Override
+    public int getInt(int index) {
+        return buffer.get(offset(index));
+    }
+    
+    @Override
+    public void setInt(int index, int value) {
+        if (range != null) {
+            range.checkInt(value);
+        }
+        beforeWrite();
+        buffer.put(offset(index), value);
+    }
+    
+    @Override
+    public ArrayDataType copy() {
+        if (!fileBacked) {
+            return super.copy();
+        }
+        ArrayDataType copy = share();
+        copy.detach();
+        return copy;
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new OffHeapIntegerArrayDataType(lowerBound, length, buffer, range);
+    }
+    
+    @Override
+    protected void detach() {
+        IntBuffer copy = allocate(length);
+        copy.put(buffer.duplicate());
+        buffer = copy;
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        if (range != null) {
+            range.checkInt(((IntegerDataType) value).getValue());
+        }
+        beforeWrite();
+        int fill = ((IntegerDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            buffer.put(i, fill);
+        }
+    }
+    
+    @Override
+    public void sum(int from, int to, InterpreterDataType result) {
+        int start = checkRange("ArraySum", from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers("ArraySum", result);
+        }
+        int total = 0;
+        for (int i = start; i <= to - lowerBound; i++) {
+            total += buffer.get(i);
+        }
+        ((IntegerDataType) result).setValue(total);
+    }
+    
+    @Override
+    public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+        int start = checkNonEmptyRange(builtIn, from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers(builtIn, result);
+        }
+        int best = buffer.get(start);
+        for (int i = start + 1; i <= to - lowerBound; i++) {
+            best = largest ? Math.max(best, buffer.get(i)) : Math.min(best, buffer.get(i));
+        }
+        ((IntegerDataType) result).setValue(best);
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        int wanted = ((IntegerDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (buffer.get(i) == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        // Buffers can't be sorted in place, so the range is sorted on the heap and written back
+        int start = checkRange("ArraySort", from, to);
+        int[] range = new int[to - lowerBound + 1 - start];
+        beforeWrite();
+        buffer.get(start, range);
+        if (range.length >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(range);
+        } else {
+            Arrays.sort(range);
+        }
+        buffer.put(start, range);
+    }
+    
+    @Override
+    protected Object storage() {
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package Shanks;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * An array of reals kept off the Java heap in a direct buffer, so a huge array neither
+ * grows the heap nor gets scanned by the garbage collector. The memory is given back when
+ * the array is collected.
+ */
+public class OffHeapRealArrayDataType extends RealArrayDataType {
+    private FloatBuffer buffer;
+    // Whether the buffer is a file's memory, which copies passed by value mustn't share
+    private final boolean fileBacked;
+    
+    public OffHeapRealArrayDataType(int lowerBound, int length) {
+        super(lowerBound, length, null);
+        this.buffer = allocate(length);
+        this.fileBacked = false;
+    }
+    
+    private OffHeapRealArrayDataType(int lowerBound, int length, FloatBuffer buffer) {
+        super(lowerBound, length, null);
+        this.buffer = buffer;
+        this.fileBacked = false;
+    }
+    
+    /**
+     * Creates an array over a mapped file. Writes go straight to the file, and copies
+     * passed by value get memory of their own.
+     * @param lowerBound The index of the first element
+     * @param file The file's memory, holding one real for every 4 bytes
+     */
+    public OffHeapRealArrayDataType(int lowerBound, ByteBuffer file) {
+        super(lowerBound, file.capacity() / Float.BYTES, null);
+        this.buffer = file.asFloatBuffer();
+        this.fileBacked = true;
+    }
+    
+    private static FloatBuffer allocate(int length) {
+        if (length > Integer.MAX_VALUE / Float.BYTES) {
+            throw new RuntimeException("An array of " + length + " reals is too large to keep off the heap");
+        }
+        return ByteBuffer.allocateDirect(length * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+    
+    @Override
+    public float getReal(int index) {
+        return buffer.get(offset(index));
+    }
+    
+    @Override
+    public void setReal(int index, float value) {
+        beforeWrite();
+        buffer.put(offset(index), value);
+    }
+    
+    @Override
+    public ArrayDataType copy() {
+        if (!fileBacked) {
+            return super.copy();
+        }
+        ArrayDataType copy = share();
+        copy.detach();
+        return copy;
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new OffHeapRealArrayDataType(lowerBound, length, buffer);
+    }
+    
+    @Override
+    protected void detach() {
+        FloatBuffer copy = allocate(length);
+        copy.put(buffer.duplicate());
+        buffer = copy;
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof RealDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        beforeWrite();
+        float fill = ((RealDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            buffer.put(i, fill);
+        }
+    }
+    
+    @Override
+    public void sum(int from, int to, InterpreterDataType result) {
+        int start = checkRange("ArraySum", from, to);
+        if (!(result instanceof RealDataType)) {
+            throw notNumbers("ArraySum", result);
+        }
+        float total = 0;
+        for (int i = start; i <= to - lowerBound; i++) {
+            total += buffer.get(i);
+        }
+        ((RealDataType) result).setValue(total);
+    }
+    
+    @Override
+    public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+        int start = checkNonEmptyRange(builtIn, from, to);
+        if (!(result instanceof RealDataType)) {
+            throw notNumbers(builtIn, result);
+        }
+        float best = buffer.get(start);
+        for (int i = start + 1; i <= to - lowerBound; i++) {
+            best = largest ? Math.max(best, buffer.get(i)) : Math.min(best, buffer.get(i));
+        }
+        ((RealDataType) result).setValue(best);
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof RealDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        float wanted = ((RealDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (buffer.get(i) == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        // Buffers can't be sorted in place, so the range is sorted on the heap and written back
+        int start = checkRange("ArraySort", from, to);
+        float[] range = new float[to - lowerBound + 1 - start];
+        beforeWrite();
+        buffer.get(start, range);
+        if (range.length >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(range);
+        } else {
+            Arrays.sort(range);
+        }
+        buffer.put(start, range);
+    }
+    
+    @Override
+    public void fillRandom(RandomGenerator random) {
+        beforeWrite();
+        for (int i = 0; i < length; i++) {
+            buffer.put(i, random.nextFloat());
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        return null;
+    }
+}
\ No newline at end of file
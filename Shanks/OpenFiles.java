@@ -0,0 +1,72 @@
+package Shanks;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The files a program has opened with OpenFile, by handle. Handles are small positive
+ * integers; a closed handle's number is given to the next file opened. Shank closes
+ * whatever the program left open when it ends.
+ */
+public final class OpenFiles {
+    // Files are read through a larger buffer than stdin, as scripts stream them in bulk
+    public static final int BUFFER_SIZE = 1024 * 1024;
+    
+    // Index handle - 1; null for a closed handle
+    private static final List<InputSource> files = new ArrayList<>();
+    
+    private OpenFiles() {
+    }
+    
+    /**
+     * Opens a file for reading
+     * @param name The file name
+     * @return The handle
+     */
+    public static int open(String name) {
+        InputSource file = InputSource.fromFile(Paths.get(name), BUFFER_SIZE);
+        int index = files.indexOf(null);
+        if (index < 0) {
+            files.add(file);
+            return files.size();
+        }
+        files.set(index, file);
+        return index + 1;
+    }
+    
+    /**
+     * Looks up an open file
+     * @param handle The handle
+     * @param builtIn The name of the built-in asking, for the error message
+     * @return The file
+     */
+    public static InputSource get(int handle, String builtIn) {
+        InputSource file = handle >= 1 && handle <= files.size() ? files.get(handle - 1) : null;
+        if (file == null) {
+            throw new RuntimeException(builtIn + ": " + handle + " is not an open file");
+        }
+        return file;
+    }
+    
+    /**
+     * Closes a file
+     * @param handle The handle
+     */
+    public static void close(int handle) {
+        get(handle, "CloseFile").close();
+        files.set(handle - 1, null);
+    }
+    
+    /**
+     * Closes every file still open
+     */
+    public static void closeAll() {
+        for (InputSource file : files) {
+            if (file != null) {
+                file.close();
+            }
+        }
+        files.clear();
+    }
+}
\ No newline at end of file
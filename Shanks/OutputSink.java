@@ -0,0 +1,287 @@
+package Shanks;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered destination for everything a Shank program writes. Text is collected in one
+ * reusable buffer and handed to a FileChannel in large writes. Integers and reals are
+ * formatted straight into the buffer, without a String per value. The buffer is flushed when
+ * it reaches the flush size, before the program reads input (so prompts and earlier
+ * output are visible), and when the program ends.
+ */
+public class OutputSink {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    
+    // Longest integer: a sign and ten digits
+    private static final int MAX_INTEGER_LENGTH = 11;
+    
+    // Reals in this range print without an exponent in Float.toString
+    private static final float MIN_PLAIN_REAL = 1e-3f;
+    private static final float MAX_PLAIN_REAL = 1e7f;
+    
+    // Most digits after the point a plain real can need, and the powers of ten to scale by
+    private static final int MAX_FRACTION_DIGITS = 12;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FRACTION_DIGITS + 1];
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_FRACTION_DIGITS + 1];
+    
+    static {
+        long power = 1;
+        for (int i = 0; i <= MAX_FRACTION_DIGITS; i++) {
+            LONG_POWERS_OF_TEN[i] = power;
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+    
+    private FileChannel channel;
+    private boolean closeChannel;
+    private boolean stdout;
+    private byte[] buffer;
+    private ByteBuffer wrapper;
+    private int position;
+    private int flushSize;
+    private boolean flushOnRead;
+    private Charset charset;
+    
+    /**
+     * Creates a sink
+     * @param channel The channel to write to
+     * @param closeChannel Whether closing the sink closes the channel
+     * @param stdout Whether the channel is standard output, which System.out also writes to
+     * @param bufferSize The size of the buffer
+     * @param flushSize How many buffered bytes trigger a flush, at most the buffer size
+     * @param flushOnRead Whether to flush before the program reads input
+     */
+    public OutputSink(FileChannel channel, boolean closeChannel, boolean stdout, int bufferSize, int flushSize, boolean flushOnRead) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.stdout = stdout;
+        this.buffer = new byte[bufferSize];
+        this.wrapper = ByteBuffer.wrap(buffer);
+        this.flushSize = Math.min(flushSize, bufferSize);
+        this.flushOnRead = flushOnRead;
+        this.charset = Charset.defaultCharset();
+    }
+    
+    /**
+     * Creates a sink writing to standard output
+     * @return The sink
+     */
+    public static OutputSink stdout() {
+        FileChannel channel = new FileOutputStream(FileDescriptor.out).getChannel();
+        return new OutputSink(channel, false, true, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_SIZE, true);
+    }
+    
+    /**
+     * Creates a sink writing to a file, replacing its contents
+     * @param path The file to write
+     * @return The sink
+     */
+    public static OutputSink toFile(Path path) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new OutputSink(channel, true, false, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_SIZE, false);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open output file " + path + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Appends text
+     * @param text The text to append
+     */
+    public void write(String text) {
+        write(text, 0, text.length());
+    }
+    
+    /**
+     * Appends part of a string or builder
+     * @param text The characters holding the text
+     * @param start The index of the first character to append
+     * @param end The index after the last character to append
+     */
+    public void write(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Leave anything beyond ASCII to the charset
+                write(text.subSequence(i, end).toString().getBytes(charset));
+                return;
+            }
+            if (position == flushSize) {
+                flush();
+            }
+            buffer[position++] = (byte) c;
+        }
+    }
+    
+    /**
+     * Appends a single ASCII character
+     * @param c The character to append
+     */
+    public void write(char c) {
+        if (c >= 0x80) {
+            write(String.valueOf(c));
+            return;
+        }
+        if (position == flushSize) {
+            flush();
+        }
+        buffer[position++] = (byte) c;
+    }
+    
+    /**
+     * Appends an integer, as Integer.toString would write it
+     * @param value The integer
+     */
+    public void writeInteger(int value) {
+        if (position + MAX_INTEGER_LENGTH > flushSize) {
+            flush();
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+        }
+        
+        // Work with the negative value, which also covers Integer.MIN_VALUE
+        int negative = value < 0 ? value : -value;
+        int digits = 1;
+        for (int rest = negative / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        }
+        position = end;
+    }
+    
+    /**
+     * Appends a real, as Float.toString would write it. Reals that Float.toString writes
+     * without an exponent are formatted here: the fewest digits after the point that still
+     * read back as the same float, rounded to the nearest with ties to even. Anything else
+     * is left to Float.toString.
+     * @param value The real
+     */
+    public void writeReal(float value) {
+        float magnitude = Math.abs(value);
+        if (value == 0) {
+            write(Float.floatToRawIntBits(value) < 0 ? "-0.0" : "0.0");
+            return;
+        }
+        if (!(magnitude >= MIN_PLAIN_REAL && magnitude < MAX_PLAIN_REAL)) {
+            write(Float.toString(value));
+            return;
+        }
+        
+        for (int fractionDigits = 1; fractionDigits <= MAX_FRACTION_DIGITS; fractionDigits++) {
+            // Exact in a double, as 5^12 needs only 28 bits; ties go to even like Float.toString
+            long scaled = (long) Math.rint(magnitude * POWERS_OF_TEN[fractionDigits]);
+            if ((float) (scaled / POWERS_OF_TEN[fractionDigits]) == magnitude) {
+                writeDecimal(value < 0, scaled, fractionDigits);
+                return;
+            }
+        }
+        write(Float.toString(value));
+    }
+    
+    // Writes scaled / 10^fractionDigits with exactly fractionDigits digits after the point
+    private void writeDecimal(boolean negative, long scaled, int fractionDigits) {
+        long whole = scaled / LONG_POWERS_OF_TEN[fractionDigits];
+        long fraction = scaled % LONG_POWERS_OF_TEN[fractionDigits];
+        
+        int wholeDigits = 1;
+        for (long rest = whole / 10; rest != 0; rest /= 10) {
+            wholeDigits++;
+        }
+        int length = (negative ? 1 : 0) + wholeDigits + 1 + fractionDigits;
+        if (position + length > flushSize) {
+            flush();
+        }
+        
+        if (negative) {
+            buffer[position++] = '-';
+        }
+        for (int i = position + wholeDigits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + whole % 10);
+            whole /= 10;
+        }
+        position += wholeDigits;
+        buffer[position++] = '.';
+        for (int i = position + fractionDigits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        position += fractionDigits;
+    }
+    
+    /**
+     * Appends a line separator
+     */
+    public void newLine() {
+        write(LINE_SEPARATOR);
+    }
+    
+    private void write(byte[] bytes) {
+        for (byte b : bytes) {
+            if (position == flushSize) {
+                flush();
+            }
+            buffer[position++] = b;
+        }
+    }
+    
+    /**
+     * Flushes the buffer if the flush policy asks for it before input is read
+     */
+    public void beforeRead() {
+        if (flushOnRead) {
+            flush();
+        }
+    }
+    
+    /**
+     * Writes out everything buffered so far
+     */
+    public void flush() {
+        // Anything already printed through System.out has to come first
+        if (stdout) {
+            System.out.flush();
+        }
+        
+        wrapper.clear();
+        wrapper.limit(position);
+        try {
+            while (wrapper.hasRemaining()) {
+                channel.write(wrapper);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write output: " + e.getMessage());
+        }
+        position = 0;
+    }
+    
+    /**
+     * Flushes the buffer and closes the channel if the sink owns it
+     */
+    public void close() {
+        flush();
+        if (closeChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not close output: " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
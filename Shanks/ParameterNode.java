@@ -4,6 +4,7 @@ public class ParameterNode extends Node {
     private VariableReferenceNode variableReference;
     private Node expression;
     private boolean isVar;
+    private RangeCheck rangeCheck; // Set by RangeAnalysis; null when no check is needed
     
     public ParameterNode(VariableReferenceNode variableReference) {
         this.variableReference = variableReference;
@@ -29,6 +30,14 @@ public class ParameterNode extends Node {
         return isVar;
     }
     
+    public RangeCheck getRangeCheck() {
+        return rangeCheck;
+    }
+    
+    public void setRangeCheck(RangeCheck rangeCheck) {
+        this.rangeCheck = rangeCheck;
+    }
+    
     @Override
     public String toString() {
         if (isVar) {
@@ -6,6 +6,9 @@ import java.util.List;
 public class Parser {
     private List<Token> tokens;
     private int currentPosition;
+    // Index range of the last array type parsed, if it declared one
+    private Integer arrayFrom;
+    private Integer arrayTo;
     
     public Parser(List<Token> tokens) {
         this.tokens = tokens;
@@ -139,27 +142,14 @@ public class Parser {
             }
         }
         
-        // Check for INDENT
-        if (matchAndRemove(Token.TokenType.INDENT) == null) {
+        // Parse the indented block of statements that makes up the body
+        List<StatementNode> body = statements();
+        if (body == null) {
             throw new SyntaxErrorException("Expected indented block for function body",
                                          currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1);
         }
-        
-        // Parse expressions (temporary, just to make sure indentation works)
-        while (true) {
-            Node expressionNode = expression();
-            if (expressionNode != null) {
-                System.out.println("Expression in function " + nameToken.getValue() + ": " + expressionNode);
-                expectEndsOfLine();
-            } else {
-                break;
-            }
-        }
-        
-        // Check for DEDENT
-        if (matchAndRemove(Token.TokenType.DEDENT) == null) {
-            throw new SyntaxErrorException("Expected dedent at end of function body",
-                                         currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1);
+        for (StatementNode statement : body) {
+            function.addStatement(statement);
         }
         
         return function;
@@ -185,7 +175,11 @@ public class Parser {
             StatementNode statement = statement();
             if (statement != null) {
                 statementsList.add(statement);
-                expectEndsOfLine(); // Expect end of line after each statement
+                // Statements ending in a block, or in repeat's until line, have already finished their line
+                Token.TokenType last = tokens.get(currentPosition - 1).getType();
+                if (last != Token.TokenType.DEDENT && last != Token.TokenType.ENDOFLINE) {
+                    expectEndsOfLine(); // Expect end of line after each statement
+                }
             } else {
                 // If we can't parse a statement but haven't found a DEDENT, that's an error
                 throw new SyntaxErrorException("Expected statement or dedent",
@@ -709,6 +703,24 @@ public class Parser {
             }
         }
         
+        // Try string, character and boolean literals, which can't be negated
+        if (!isNegative) {
+            Token literal = matchAndRemove(Token.TokenType.STRINGLITERAL);
+            if (literal != null) {
+                return new StringNode(literal.getValue());
+            }
+            literal = matchAndRemove(Token.TokenType.CHARACTERLITERAL);
+            if (literal != null) {
+                return new CharacterNode(literal.getValue().charAt(0));
+            }
+            if (matchAndRemove(Token.TokenType.TRUE) != null) {
+                return new BooleanNode(true);
+            }
+            if (matchAndRemove(Token.TokenType.FALSE) != null) {
+                return new BooleanNode(false);
+            }
+        }
+        
         // If not a number, try parenthesized expression
         if (matchAndRemove(Token.TokenType.LEFTPAREN) != null) {
             Node expr = boolCompare(); // Use boolCompare to allow boolean expressions in parentheses
@@ -807,7 +819,7 @@ public class Parser {
     }
     
     // Parse type
-    private String parseType() {
+    private String parseType() throws SyntaxErrorException {
         // Check for basic types
         if (matchAndRemove(Token.TokenType.IDENTIFIER) != null) {
             // Go back one token to re-read the identifier
@@ -824,8 +836,13 @@ public class Parser {
             }
         }
         
-        // Check for array type
+        // Check for array type, optionally with its index range: array from 1 to 10 of integer
         if (matchAndRemove(Token.TokenType.ARRAY) != null) {
+            arrayFrom = null;
+            arrayTo = null;
+            if (matchAndRemove(Token.TokenType.FROM) != null) {
+                parseArrayRange();
+            }
             if (matchAndRemove(Token.TokenType.OF) != null) {
                 String elementType = parseType();
                 if (elementType != null) {
@@ -837,6 +854,21 @@ public class Parser {
         return null;
     }
     
+    // Parse the "A to B" of an array's index range, after its 'from'
+    private void parseArrayRange() throws SyntaxErrorException {
+        int lineNumber = currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1;
+        Node fromExpr = parseConstantValue();
+        if (matchAndRemove(Token.TokenType.TO) == null) {
+            throw new SyntaxErrorException("Expected 'to' in array range", lineNumber);
+        }
+        Node toExpr = parseConstantValue();
+        if (!(fromExpr instanceof IntegerNode) || !(toExpr instanceof IntegerNode)) {
+            throw new SyntaxErrorException("Array range values must be integers", lineNumber);
+        }
+        arrayFrom = ((IntegerNode) fromExpr).getValue();
+        arrayTo = ((IntegerNode) toExpr).getValue();
+    }
+    
     // Parse constants
     private boolean parseConstants(FunctionNode function) throws SyntaxErrorException {
         // Save current position in case we need to backtrack
@@ -939,6 +971,8 @@ public class Parser {
                                          currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1);
         }
         
+        arrayFrom = null;
+        arrayTo = null;
         String type = parseType();
         if (type == null) {
             throw new SyntaxErrorException("Expected type for variables",
@@ -1007,6 +1041,22 @@ public class Parser {
                     throw new SyntaxErrorException("Range values for string must be integers",
                                                  currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1);
                 }
+            } else if (type.startsWith("array")) {
+                // The range may also follow the type: array of integer from 1 to 10. After
+                // array from 1 to 10 of integer it is the elements' range instead
+                if (!(fromExpr instanceof IntegerNode) || !(toExpr instanceof IntegerNode)) {
+                    throw new SyntaxErrorException("Array range values must be integers",
+                                                 currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1);
+                } else if (arrayFrom == null) {
+                    arrayFrom = ((IntegerNode) fromExpr).getValue();
+                    arrayTo = ((IntegerNode) toExpr).getValue();
+                } else if (type.equals("array of integer")) {
+                    intFrom = ((IntegerNode) fromExpr).getValue();
+                    intTo = ((IntegerNode) toExpr).getValue();
+                } else {
+                    throw new SyntaxErrorException("Only arrays of integer can have an element range",
+                                                 currentPosition > 0 ? tokens.get(currentPosition - 1).getLineNumber() : -1);
+                }
             }
         }
         
@@ -1021,6 +1071,11 @@ public class Parser {
                 variable.setRealRange(realFrom, realTo);
             } else if (type.equals("string") && intFrom != null && intTo != null) {
                 variable.setStringRange(intFrom, intTo);
+            } else if (type.startsWith("array") && arrayFrom != null && arrayTo != null) {
+                variable.setArrayRange(arrayFrom, arrayTo);
+                if (intFrom != null && intTo != null) {
+                    variable.setIntegerRange(intFrom, intTo);
+                }
             }
             
             function.addVariable(variable);
@@ -0,0 +1,333 @@
+package Shanks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which stores into range-constrained variables (x : integer from 1 to 10) need a
+ * run-time check, and attaches a RangeCheck to those. A store needs no check when the value
+ * is proven to be in range: a literal inside it, a ranged variable whose range fits inside it,
+ * or arithmetic on those. Because every other store is checked, a ranged variable always holds
+ * a value in its range or its type's default, so reading one proves as much as a literal would.
+ * A for loop is proven when both of its ends are, and a var argument only needs checking when
+ * the callee may write to it. Runs after the SlotResolver.
+ */
+public class RangeAnalysis {
+    // Each slot's declaration in the function being analyzed
+    private VariableNode[] slots;
+    // Function and parameter pairs being searched for writes, to stop at recursion
+    private Set<String> searching = new HashSet<>();
+    
+    /**
+     * Annotates every function of a program
+     * @param program The resolved program
+     */
+    public void analyze(ProgramNode program) {
+        for (FunctionNode function : program.getFunctions().values()) {
+            slots = declarations(function);
+            analyzeBlock(function.getStatements());
+        }
+    }
+    
+    /**
+     * Lists a function's declarations in slot order, as the SlotResolver lays them out
+     * @param function The function
+     * @return The declaration of each slot
+     */
+    private static VariableNode[] declarations(FunctionNode function) {
+        List<VariableNode> declarations = new ArrayList<>(function.getParameters());
+        declarations.addAll(function.getConstants());
+        declarations.addAll(function.getVariables());
+        return declarations.toArray(new VariableNode[0]);
+    }
+    
+    private void analyzeBlock(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof AssignmentNode) {
+                AssignmentNode node = (AssignmentNode) statement;
+                RangeCheck range = rangeOf(node.getTarget());
+                if (range != null && !proves(range, node.getValue())) {
+                    node.setRangeCheck(range);
+                }
+            } else if (statement instanceof IfNode) {
+                for (IfNode node = (IfNode) statement; node != null; node = node.getNextIf()) {
+                    analyzeBlock(node.getStatements());
+                }
+            } else if (statement instanceof WhileNode) {
+                analyzeBlock(((WhileNode) statement).getStatements());
+            } else if (statement instanceof RepeatNode) {
+                analyzeBlock(((RepeatNode) statement).getStatements());
+            } else if (statement instanceof ForNode) {
+                // The counter takes every value from one end to the other, so proving both ends is enough
+                ForNode node = (ForNode) statement;
+                RangeCheck range = rangeOf(node.getVariable());
+                if (range != null && !(proves(range, node.getFromExpr()) && proves(range, node.getToExpr()))) {
+                    node.setRangeCheck(range);
+                }
+                analyzeBlock(node.getStatements());
+            } else if (statement instanceof FunctionCallNode) {
+                FunctionCallNode node = (FunctionCallNode) statement;
+                List<ParameterNode> parameters = node.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    ParameterNode parameter = parameters.get(i);
+                    if (parameter.isVar()) {
+                        RangeCheck range = rangeOf(parameter.getVariableReference());
+                        if (range != null && mayWrite(node.getFunction(), i)) {
+                            parameter.setRangeCheck(range);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param target A variable being stored into
+     * @return The variable's declared range, or null if it has none
+     */
+    private RangeCheck rangeOf(VariableReferenceNode target) {
+        if (target.getIndexExpression() != null) {
+            return null;
+        }
+        return RangeCheck.of(slots[target.getSlot()]);
+    }
+    
+    /**
+     * Checks whether a value is known to be in a range
+     * @param range The range
+     * @param value The value's expression
+     * @return True if storing the value needs no check
+     */
+    private boolean proves(RangeCheck range, Node value) {
+        switch (range.getType()) {
+            case "integer": {
+                long[] bounds = integerBounds(value);
+                return bounds != null && range.contains(bounds[0], bounds[1]);
+            }
+            case "real": {
+                float[] bounds = realBounds(value);
+                return bounds != null && range.containsReal(bounds[0], bounds[1]);
+            }
+            default: {
+                long[] bounds = lengthBounds(value);
+                return bounds != null && range.contains(bounds[0], bounds[1]);
+            }
+        }
+    }
+    
+    /**
+     * Finds the smallest and largest value an integer expression can have
+     * @param node The expression
+     * @return The bounds, or null if they aren't known
+     */
+    private long[] integerBounds(Node node) {
+        if (node instanceof IntegerNode) {
+            long value = ((IntegerNode) node).getValue();
+            return new long[] {value, value};
+        } else if (node instanceof VariableReferenceNode) {
+            VariableNode variable = declarationOf((VariableReferenceNode) node);
+            if (variable == null) {
+                return null;
+            } else if (variable.getValue() != null) {
+                return integerBounds(variable.getValue());
+            }
+            RangeCheck range = RangeCheck.of(variable);
+            if (range == null || !range.getType().equals("integer")) {
+                return null;
+            }
+            // Until it is first assigned, the variable holds 0
+            return new long[] {Math.min(0, range.getFrom()), Math.max(0, range.getTo())};
+        } else if (node instanceof MathOpNode) {
+            MathOpNode mathOp = (MathOpNode) node;
+            long[] left = integerBounds(mathOp.getLeft());
+            long[] right = integerBounds(mathOp.getRight());
+            if (left == null || right == null) {
+                return null;
+            }
+            
+            long low;
+            long high;
+            switch (mathOp.getOperation()) {
+                case ADD:
+                    low = left[0] + right[0];
+                    high = left[1] + right[1];
+                    break;
+                case SUBTRACT:
+                    low = left[0] - right[1];
+                    high = left[1] - right[0];
+                    break;
+                case MULTIPLY:
+                case DIVIDE: {
+                    // Both are monotonic in each operand, so the extremes are at the corners,
+                    // as long as a divisor can't be zero or change sign
+                    if (mathOp.getOperation() == MathOpNode.Operation.DIVIDE && right[0] <= 0) {
+                        return null;
+                    }
+                    long[] corners = new long[4];
+                    for (int i = 0; i < 4; i++) {
+                        long a = left[i >> 1];
+                        long b = right[i & 1];
+                        corners[i] = mathOp.getOperation() == MathOpNode.Operation.MULTIPLY ? a * b : a / b;
+                    }
+                    low = Math.min(Math.min(corners[0], corners[1]), Math.min(corners[2], corners[3]));
+                    high = Math.max(Math.max(corners[0], corners[1]), Math.max(corners[2], corners[3]));
+                    break;
+                }
+                case MOD:
+                    // The remainder is smaller than the divisor and takes the dividend's sign
+                    if (right[0] <= 0) {
+                        return null;
+                    }
+                    low = left[0] >= 0 ? 0 : Math.max(left[0], 1 - right[1]);
+                    high = left[1] <= 0 ? 0 : Math.min(left[1], right[1] - 1);
+                    break;
+                default:
+                    return null;
+            }
+            
+            // Integer arithmetic wraps around, so bounds outside an int prove nothing
+            if (low < Integer.MIN_VALUE || high > Integer.MAX_VALUE) {
+                return null;
+            }
+            return new long[] {low, high};
+        }
+        return null;
+    }
+    
+    /**
+     * Finds the smallest and largest value a real expression can have. Arithmetic rounds, so
+     * only literals and variables are bounded.
+     * @param node The expression
+     * @return The bounds, or null if they aren't known
+     */
+    private float[] realBounds(Node node) {
+        if (node instanceof RealNode) {
+            float value = ((RealNode) node).getValue();
+            return new float[] {value, value};
+        } else if (node instanceof VariableReferenceNode) {
+            VariableNode variable = declarationOf((VariableReferenceNode) node);
+            if (variable == null) {
+                return null;
+            } else if (variable.getValue() != null) {
+                return realBounds(variable.getValue());
+            }
+            RangeCheck range = RangeCheck.of(variable);
+            if (range == null || !range.getType().equals("real")) {
+                return null;
+            }
+            return new float[] {Math.min(0, variable.getRealFrom()), Math.max(0, variable.getRealTo())};
+        }
+        return null;
+    }
+    
+    /**
+     * Finds the shortest and longest a string expression can be
+     * @param node The expression
+     * @return The bounds, or null if they aren't known
+     */
+    private long[] lengthBounds(Node node) {
+        if (node instanceof StringNode) {
+            long length = ((StringNode) node).getValue().length();
+            return new long[] {length, length};
+        } else if (node instanceof VariableReferenceNode) {
+            VariableNode variable = declarationOf((VariableReferenceNode) node);
+            if (variable == null) {
+                return null;
+            } else if (variable.getValue() != null) {
+                return lengthBounds(variable.getValue());
+            }
+            RangeCheck range = RangeCheck.of(variable);
+            if (range == null || !range.getType().equals("string")) {
+                return null;
+            }
+            return new long[] {0, range.getTo()};
+        } else if (node instanceof MathOpNode && ((MathOpNode) node).getOperation() == MathOpNode.Operation.ADD) {
+            long[] left = lengthBounds(((MathOpNode) node).getLeft());
+            long[] right = lengthBounds(((MathOpNode) node).getRight());
+            if (left == null || right == null) {
+                return null;
+            }
+            return new long[] {left[0] + right[0], left[1] + right[1]};
+        }
+        return null;
+    }
+    
+    /**
+     * @param reference A variable reference
+     * @return The declaration of the variable it reads, or null for an array element
+     */
+    private VariableNode declarationOf(VariableReferenceNode reference) {
+        return reference.getIndexExpression() == null ? slots[reference.getSlot()] : null;
+    }
+    
+    /**
+     * Checks whether a function may store into one of its parameters, directly or by passing
+     * it on as a var argument
+     * @param function The function
+     * @param parameter The parameter's index, which is also its slot
+     * @return True if it may
+     */
+    private boolean mayWrite(FunctionNode function, int parameter) {
+        if (function instanceof BuiltInFunction) {
+            return true;
+        } else if (parameter >= function.getParameters().size() || !function.getParameters().get(parameter).isVar()) {
+            // Parameters that aren't var are given a copy, and calls with too many arguments fail
+            return false;
+        }
+        // A recursive call writes nothing the rest of the search won't find
+        String key = function.getName() + "/" + parameter;
+        if (!searching.add(key)) {
+            return false;
+        }
+        try {
+            return writes(function.getStatements(), parameter);
+        } finally {
+            searching.remove(key);
+        }
+    }
+    
+    private boolean writes(List<StatementNode> statements, int slot) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof AssignmentNode) {
+                if (isSlot(((AssignmentNode) statement).getTarget(), slot)) {
+                    return true;
+                }
+            } else if (statement instanceof IfNode) {
+                for (IfNode node = (IfNode) statement; node != null; node = node.getNextIf()) {
+                    if (writes(node.getStatements(), slot)) {
+                        return true;
+                    }
+                }
+            } else if (statement instanceof WhileNode) {
+                if (writes(((WhileNode) statement).getStatements(), slot)) {
+                    return true;
+                }
+            } else if (statement instanceof RepeatNode) {
+                if (writes(((RepeatNode) statement).getStatements(), slot)) {
+                    return true;
+                }
+            } else if (statement instanceof ForNode) {
+                ForNode node = (ForNode) statement;
+                if (isSlot(node.getVariable(), slot) || writes(node.getStatements(), slot)) {
+                    return true;
+                }
+            } else if (statement instanceof FunctionCallNode) {
+                FunctionCallNode node = (FunctionCallNode) statement;
+                List<ParameterNode> parameters = node.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    if (parameters.get(i).isVar() && isSlot(parameters.get(i).getVariableReference(), slot) &&
+                        mayWrite(node.getFunction(), i)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isSlot(VariableReferenceNode reference, int slot) {
+        return reference.getIndexExpression() == null && reference.getSlot() == slot;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package Shanks;
+
+/**
+ * The range a variable was declared with, checked when a value is stored in it: integers and
+ * reals must lie within it, and strings must have a length within it. RangeAnalysis attaches
+ * one to each assignment, for loop and var argument it can't prove stays in range.
+ */
+public final class RangeCheck {
+    private final String name;
+    private final String type;
+    // Bounds of an integer, or of a string's length
+    private final int from;
+    private final int to;
+    private final float realFrom;
+    private final float realTo;
+    
+    private RangeCheck(String name, String type, int from, int to, float realFrom, float realTo) {
+        this.name = name;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.realFrom = realFrom;
+        this.realTo = realTo;
+    }
+    
+    /**
+     * Gets the range a variable was declared with
+     * @param variable The variable
+     * @return Its range, or null if it was declared without one
+     */
+    public static RangeCheck of(VariableNode variable) {
+        String type = variable.getType().toLowerCase();
+        if (type.equals("integer") && variable.getIntegerFrom() != null && variable.getIntegerTo() != null) {
+            return new RangeCheck(variable.getName(), type, variable.getIntegerFrom(), variable.getIntegerTo(), 0, 0);
+        } else if (type.equals("real") && variable.getRealFrom() != null && variable.getRealTo() != null) {
+            return new RangeCheck(variable.getName(), type, 0, 0, variable.getRealFrom(), variable.getRealTo());
+        } else if (type.equals("string") && variable.getStringLengthFrom() != null && variable.getStringLengthTo() != null) {
+            return new RangeCheck(variable.getName(), type, variable.getStringLengthFrom(), variable.getStringLengthTo(), 0, 0);
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the range an array of integer's elements were declared with
+     * @param variable The array variable
+     * @return Its elements' range, or null if it was declared without one
+     */
+    public static RangeCheck ofElements(VariableNode variable) {
+        if (variable.getType().equalsIgnoreCase("array of integer") && variable.getIntegerFrom() != null &&
+            variable.getIntegerTo() != null) {
+            return new RangeCheck(variable.getName(), "integer", variable.getIntegerFrom(), variable.getIntegerTo(), 0, 0);
+        }
+        return null;
+    }
+    
+    /**
+     * @return "integer", "real" or "string"
+     */
+    public String getType() {
+        return type;
+    }
+    
+    /**
+     * Checks whether every integer or string length between two bounds is in range
+     * @param low The lower bound
+     * @param high The upper bound
+     * @return True if no check is needed for values between them
+     */
+    public boolean contains(long low, long high) {
+        return low >= from && high <= to;
+    }
+    
+    /**
+     * Checks whether every real between two bounds is in range
+     * @param low The lower bound
+     * @param high The upper bound
+     * @return True if no check is needed for values between them
+     */
+    public boolean containsReal(float low, float high) {
+        return low >= realFrom && high <= realTo;
+    }
+    
+    /**
+     * @return The lowest integer that is in range
+     */
+    public int getFrom() {
+        return from;
+    }
+    
+    /**
+     * @return The highest integer that is in range
+     */
+    public int getTo() {
+        return to;
+    }
+    
+    public void checkInt(int value) {
+        if (value < from || value > to) {
+            throw outOfRange(String.valueOf(value), String.valueOf(from), String.valueOf(to));
+        }
+    }
+    
+    public void checkReal(float value) {
+        // Written so NaN fails too
+        if (!(value >= realFrom && value <= realTo)) {
+            throw outOfRange(String.valueOf(value), String.valueOf(realFrom), String.valueOf(realTo));
+        }
+    }
+    
+    public void checkLength(StringDataType value) {
+        int length = value.length();
+        if (length < from || length > to) {
+            throw new RuntimeException("Length " + length + " of " + name + " is out of range (" + from + " to " + to + ")");
+        }
+    }
+    
+    /**
+     * Checks a variable's value against the range
+     * @param value The variable, of the range's type
+     */
+    public void check(InterpreterDataType value) {
+        if (value instanceof IntegerDataType) {
+            checkInt(((IntegerDataType) value).getValue());
+        } else if (value instanceof RealDataType) {
+            checkReal(((RealDataType) value).getValue());
+        } else if (value instanceof StringDataType) {
+            checkLength((StringDataType) value);
+        }
+    }
+    
+    private RuntimeException outOfRange(String value, String low, String high) {
+        return new RuntimeException("Value " + value + " is out of range for " + name + " (" + low + " to " + high + ")");
+    }
+    
+    @Override
+    public String toString() {
+        return type.equals("real") ? realFrom + " to " + realTo : from + " to " + to;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+package Shanks;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * An array of reals, stored in a float[]
+ */
+public class RealArrayDataType extends ArrayDataType {
+    private float[] values;
+    
+    public RealArrayDataType(int lowerBound, int length) {
+        super(lowerBound, length);
+        this.values = new float[length];
+    }
+    
+    // Also used by subclasses that keep the elements somewhere else, with no array
+    protected RealArrayDataType(int lowerBound, int length, float[] values) {
+        super(lowerBound, length);
+        this.values = values;
+    }
+    
+    @Override
+    public String getElementType() {
+        return "real";
+    }
+    
+    public float getReal(int index) {
+        return values[offset(index)];
+    }
+    
+    public void setReal(int index, float value) {
+        beforeWrite();
+        values[offset(index)] = value;
+    }
+    
+    @Override
+    public InterpreterDataType get(int index) {
+        return new RealDataType(getReal(index));
+    }
+    
+    @Override
+    public void set(int index, InterpreterDataType value) {
+        if (!(value instanceof RealDataType)) {
+            throw new RuntimeException("Type mismatch in assignment");
+        }
+        setReal(index, ((RealDataType) value).getValue());
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new RealArrayDataType(lowerBound, length, values);
+    }
+    
+    @Override
+    protected void detach() {
+        values = values.clone();
+    }
+    
+    @Override
+    protected void copyElements(ArrayDataType source, int sourceStart, int targetStart, int count) {
+        RealArrayDataType other = (RealArrayDataType) source;
+        int sourceIndex = other.lowerBound + sourceStart;
+        int targetIndex = lowerBound + targetStart;
+        if (other == this && sourceStart < targetStart) {
+            for (int i = count - 1; i >= 0; i--) {
+                setReal(targetIndex + i, other.getReal(sourceIndex + i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                setReal(targetIndex + i, other.getReal(sourceIndex + i));
+            }
+        }
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof RealDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        beforeWrite();
+        Arrays.fill(values, start, to - lowerBound + 1, ((RealDataType) value).getValue());
+    }
+    
+    @Override
+    public void sum(int from, int to, InterpreterDataType result) {
+        int start = checkRange("ArraySum", from, to);
+        if (!(result instanceof RealDataType)) {
+            throw notNumbers("ArraySum", result);
+        }
+        float total = 0;
+        for (int i = start; i <= to - lowerBound; i++) {
+            total += values[i];
+        }
+        ((RealDataType) result).setValue(total);
+    }
+    
+    @Override
+    public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+        int start = checkNonEmptyRange(builtIn, from, to);
+        if (!(result instanceof RealDataType)) {
+            throw notNumbers(builtIn, result);
+        }
+        float best = values[start];
+        for (int i = start + 1; i <= to - lowerBound; i++) {
+            best = largest ? Math.max(best, values[i]) : Math.min(best, values[i]);
+        }
+        ((RealDataType) result).setValue(best);
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof RealDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        float wanted = ((RealDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (values[i] == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        if (end - start >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(values, start, end);
+        } else {
+            Arrays.sort(values, start, end);
+        }
+    }
+    
+    /**
+     * Sets every element to a random number between 0 and 1
+     * @param random The generator to draw from
+     */
+    public void fillRandom(RandomGenerator random) {
+        beforeWrite();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat();
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        return values;
+    }
+}
\ No newline at end of file
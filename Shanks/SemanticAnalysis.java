@@ -67,12 +67,7 @@ public class SemanticAnalysis {
      */
     private void checkAssignmentNode(AssignmentNode node, Map<String, String> variableTypes, String functionName) {
         String targetName = node.getTarget().getName().toLowerCase();
-        String targetType = variableTypes.get(targetName);
-        
-        if (targetType == null) {
-            throw new RuntimeException("In function '" + functionName + "': Variable '" + 
-                                      targetName + "' not declared");
-        }
+        String targetType = getExpressionType(node.getTarget(), variableTypes, functionName);
         
         // Check the expression type
         String expressionType = getExpressionType(node.getValue(), variableTypes, functionName);
@@ -213,6 +208,21 @@ public class SemanticAnalysis {
                                           varName + "' not declared");
             }
             
+            // An indexed array reference has the array's element type
+            Node index = ((VariableReferenceNode) node).getIndexExpression();
+            if (index != null) {
+                if (!varType.startsWith("array of ")) {
+                    throw new RuntimeException("In function '" + functionName + "': Variable '" + 
+                                              varName + "' is not an array");
+                }
+                String indexType = getExpressionType(index, variableTypes, functionName);
+                if (!indexType.equals("integer")) {
+                    throw new RuntimeException("In function '" + functionName + "': Index of '" + 
+                                              varName + "' must be an integer, but got '" + indexType + "'");
+                }
+                return ArrayDataType.elementTypeOf(varType);
+            }
+            
             return varType;
         } else if (node instanceof IntegerNode) {
             return "integer";
@@ -258,6 +268,10 @@ public class SemanticAnalysis {
                                       node.getOperation());
         }
         
+        // Record the type for the Interpreter's unboxed path. Mixed integer and real operands
+        // still fail at run time, so only operations on a single type are recorded.
+        node.setType(leftType.equals(rightType) ? leftType : null);
+        
         // Determine the result type
         if (leftType.equals("integer") && rightType.equals("integer")) {
             return "integer";
@@ -290,6 +304,8 @@ public class SemanticAnalysis {
                                       "Left: '" + leftType + "', Right: '" + rightType + "', Comparison: " + 
                                       node.getOperator());
         }
+        
+        node.setOperandType(leftType.equals(rightType) ? leftType : null);
     }
     
     /**
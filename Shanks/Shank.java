@@ -8,12 +8,68 @@ import java.util.List;
 
 public class Shank {
     public static void main(String[] args) {
-        if (args.length != 1) {
+        String filename = null;
+        String engine = "tree";
+        String output = null;
+        String input = null;
+        boolean batch = false;
+        boolean disassemble = false;
+        boolean vmReport = false;
+        Long seed = null;
+        Integer offHeapLength = null;
+        
+        // Options come before the file name, e.g. --engine=closure or --output=out.txt
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length()).toLowerCase();
+            } else if (arg.startsWith("--output=")) {
+                output = arg.substring("--output=".length());
+            } else if (arg.startsWith("--input=")) {
+                input = arg.substring("--input=".length());
+            } else if (arg.startsWith("--seed=")) {
+                try {
+                    seed = Long.parseLong(arg.substring("--seed=".length()));
+                } catch (NumberFormatException e) {
+                    System.out.println("Error: The seed must be a whole number.");
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--offheap=")) {
+                try {
+                    offHeapLength = Integer.parseInt(arg.substring("--offheap=".length()));
+                } catch (NumberFormatException e) {
+                    offHeapLength = -1;
+                }
+                if (offHeapLength < 0) {
+                    System.out.println("Error: The off-heap array length must be a whole number of elements.");
+                    System.exit(1);
+                }
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.equals("--disassemble")) {
+                disassemble = true;
+            } else if (arg.equals("--vm-report")) {
+                vmReport = true;
+            } else if (filename == null) {
+                filename = arg;
+            } else {
+                filename = null;
+                break;
+            }
+        }
+        
+        if (filename == null) {
             System.out.println("Error: Please provide exactly one file name as an argument.");
             System.exit(1);
         }
         
-        String filename = args[0];
+        if (!engine.equals("tree") && !engine.equals("closure") && !engine.equals("jit") && !engine.equals("vm")
+                && !engine.equals("specializing")) {
+            System.out.println("Error: Unknown engine '" + engine + "'. Use tree, specializing, closure, jit or vm.");
+            System.exit(1);
+        }
+        
+        // Integer and real arrays at least this long are kept off the heap
+        ArrayDataType.setOffHeapLength(offHeapLength);
         
         try {
             Path filePath = Paths.get(filename);
@@ -54,8 +110,8 @@ public class Shank {
                     System.exit(1);
                 }
                 
-                // Create an interpreter and add built-in functions
-                Interpreter interpreter = new Interpreter(program);
+                // Create an interpreter and add built-in functions; seeded runs draw the same random numbers every time
+                Interpreter interpreter = new Interpreter(program, seed);
                 
                 // Print available functions
                 System.out.println("\nAvailable functions:");
@@ -63,9 +119,52 @@ public class Shank {
                     System.out.println("- " + functionName);
                 }
                 
-                // Interpret the program
-                interpreter.interpret();
+                // Program output is buffered; send it to the requested file instead of stdout
+                if (output != null) {
+                    BuiltInWrite.setSink(OutputSink.toFile(Paths.get(output)));
+                }
+                
+                // Batch input reads lines from the input file, or from stdin, without prompting
+                if (input != null) {
+                    BuiltInRead.setBatchInput(InputSource.fromFile(Paths.get(input)));
+                } else if (batch) {
+                    BuiltInRead.setBatchInput(InputSource.stdin());
+                }
                 
+                // Interpret the program with the selected engine, flushing its output even if it fails
+                try {
+                    if (engine.equals("closure") || engine.equals("jit")) {
+                        boolean jit = engine.equals("jit");
+                        new ClosureCompiler(interpreter.getFunctions(), jit).compileProgram().invoke(new InterpreterDataType[0]);
+                    } else if (engine.equals("vm")) {
+                        BytecodeCompiler compiler = new BytecodeCompiler(interpreter.getFunctions());
+                        BytecodeFunction mainFunction = compiler.compileProgram();
+                        
+                        // Print the compiled bytecode only when asked, so it isn't mixed into the program's output
+                        if (disassemble) {
+                            for (BytecodeFunction function : compiler.getCompiledFunctions()) {
+                                System.out.println(function.disassemble());
+                            }
+                        }
+                        
+                        VirtualMachine vm = new VirtualMachine(vmReport);
+                        vm.execute(mainFunction);
+                        if (vmReport) {
+                            BuiltInWrite.getSink().flush();
+                            System.out.print(vm.getSuperinstructionReport());
+                        }
+                    } else {
+                        interpreter.setSpecializing(engine.equals("specializing"));
+                        interpreter.interpret();
+                    }
+                } finally {
+                    BuiltInWrite.getSink().close();
+                    if (BuiltInRead.getBatchInput() != null) {
+                        BuiltInRead.getBatchInput().close();
+                    }
+                    OpenFiles.closeAll();
+                }
+            
             } catch (SyntaxErrorException e) {
                 System.out.println("Parsing error: " + e.getMessage());
                 System.exit(1);
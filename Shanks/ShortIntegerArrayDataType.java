@@ -0,0 +1,156 @@
+package Shanks;
+import java.util.Arrays;
+
+/**
+ * An array of integers whose declared element range fits in a short, such as
+ * "array from 1 to 1000 of integer from 0 to 60000", stored in a short[] at half the memory.
+ * Ranges reaching past 32767 are stored unsigned. Storing a value outside the range is an
+ * error, so nothing is ever cut short.
+ */
+public class ShortIntegerArrayDataType extends IntegerArrayDataType {
+    private short[] values;
+    // Whether shorts hold 0 to 65535 rather than -32768 to 32767
+    private final boolean unsigned;
+    
+    public ShortIntegerArrayDataType(int lowerBound, int length, RangeCheck range) {
+        this(lowerBound, length, range, new short[length]);
+    }
+    
+    private ShortIntegerArrayDataType(int lowerBound, int length, RangeCheck range, short[] values) {
+        super(lowerBound, length, null, range);
+        this.values = values;
+        this.unsigned = range.getTo() > Short.MAX_VALUE;
+    }
+    
+    /**
+     * Checks whether a short can hold every value of a range, as well as the 0 every element starts as
+     * @param range The declared element range
+     * @return True if it can
+     */
+    public static boolean fits(RangeCheck range) {
+        int low = Math.min(range.getFrom(), 0);
+        int high = Math.max(range.getTo(), 0);
+        return low >= Short.MIN_VALUE && high <= Short.MAX_VALUE || low >= 0 && high <= 0xFFFF;
+    }
+    
+    private int decode(short value) {
+        return unsigned ? value & 0xFFFF : value;
+    }
+    
+    @Override
+    public int getInt(int index) {
+        return decode(values[offset(index)]);
+    }
+    
+    @Override
+    public void setInt(int index, int value) {
+        range.checkInt(value);
+        beforeWrite();
+        values[offset(index)] = (short) value;
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new ShortIntegerArrayDataType(lowerBound, length, range, values);
+    }
+    
+    @Override
+    protected void detach() {
+        values = values.clone();
+    }
+    
+    @Override
+    protected void copyElements(ArrayDataType source, int sourceStart, int targetStart, int count) {
+        // Shorts that mean the same values, from a range inside this one, can be copied as they are
+        if (source instanceof ShortIntegerArrayDataType) {
+            ShortIntegerArrayDataType other = (ShortIntegerArrayDataType) source;
+            if (other.unsigned == unsigned && range.contains(other.range.getFrom(), other.range.getTo())) {
+                System.arraycopy(other.values, sourceStart, values, targetStart, count);
+                return;
+            }
+        }
+        super.copyElements(source, sourceStart, targetStart, count);
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        range.checkInt(((IntegerDataType) value).getValue());
+        beforeWrite();
+        Arrays.fill(values, start, to - lowerBound + 1, (short) ((IntegerDataType) value).getValue());
+    }
+    
+    @Override
+    public void sum(int from, int to, InterpreterDataType result) {
+        int start = checkRange("ArraySum", from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers("ArraySum", result);
+        }
+        int total = 0;
+        for (int i = start; i <= to - lowerBound; i++) {
+            total += decode(values[i]);
+        }
+        ((IntegerDataType) result).setValue(total);
+    }
+    
+    @Override
+    public void extreme(String builtIn, int from, int to, boolean largest, InterpreterDataType result) {
+        int start = checkNonEmptyRange(builtIn, from, to);
+        if (!(result instanceof IntegerDataType)) {
+            throw notNumbers(builtIn, result);
+        }
+        int best = decode(values[start]);
+        for (int i = start + 1; i <= to - lowerBound; i++) {
+            best = largest ? Math.max(best, decode(values[i])) : Math.min(best, decode(values[i]));
+        }
+        ((IntegerDataType) result).setValue(best);
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof IntegerDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        int wanted = ((IntegerDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (decode(values[i]) == wanted) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        // Flipping the sign bit makes unsigned shorts sort the way signed ones do
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        if (unsigned) {
+            flipSignBits(start, end);
+        }
+        if (end - start >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(values, start, end);
+        } else {
+            Arrays.sort(values, start, end);
+        }
+        if (unsigned) {
+            flipSignBits(start, end);
+        }
+    }
+    
+    private void flipSignBits(int start, int end) {
+        for (int i = start; i < end; i++) {
+            values[i] ^= Short.MIN_VALUE;
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        return null;
+    }
+}
\ No newline at end of file
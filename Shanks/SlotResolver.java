@@ -0,0 +1,216 @@
+package Shanks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SlotResolver {
+    private Map<String, FunctionNode> functions;
+    
+    /**
+     * Creates a resolver that links calls against the given functions
+     * @param functions Map of lower-case function names to functions (user-defined and built-in)
+     */
+    public SlotResolver(Map<String, FunctionNode> functions) {
+        this.functions = functions;
+    }
+    
+    /**
+     * Assigns every parameter, constant and local variable of each function a fixed
+     * slot index, and stores the slot on every variable reference that uses it
+     * @param program The program to resolve
+     */
+    public void resolve(ProgramNode program) {
+        for (FunctionNode function : program.getFunctions().values()) {
+            resolveFunction(function);
+        }
+    }
+    
+    /**
+     * Resolves a single function. Slots are laid out as parameters, then constants,
+     * then local variables, so a call can fill the parameter slots directly.
+     * @param function The function to resolve
+     */
+    private void resolveFunction(FunctionNode function) {
+        Map<String, Integer> slots = new HashMap<>();
+        String[] slotTypes = new String[function.getParameters().size() + 
+                                        function.getConstants().size() + 
+                                        function.getVariables().size()];
+        int slot = 0;
+        
+        for (VariableNode param : function.getParameters()) {
+            slotTypes[slot] = param.getType().toLowerCase();
+            slots.put(param.getName().toLowerCase(), slot++);
+        }
+        
+        for (VariableNode constant : function.getConstants()) {
+            slotTypes[slot] = constant.getType().toLowerCase();
+            slots.put(constant.getName().toLowerCase(), slot++);
+        }
+        
+        for (VariableNode variable : function.getVariables()) {
+            slotTypes[slot] = variable.getType().toLowerCase();
+            slots.put(variable.getName().toLowerCase(), slot++);
+        }
+        
+        function.setSlotCount(slot);
+        function.setSlotTypes(slotTypes);
+        resolveBlock(function.getStatements(), slots, function.getName());
+    }
+    
+    /**
+     * Resolves the variable references in a list of statements
+     * @param statements The statements to resolve
+     * @param slots Map of variable names to their slot indexes
+     * @param functionName The name of the current function (for error messages)
+     */
+    private void resolveBlock(List<StatementNode> statements, Map<String, Integer> slots, String functionName) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof AssignmentNode) {
+                AssignmentNode assignment = (AssignmentNode) statement;
+                resolveExpression(assignment.getTarget(), slots, functionName);
+                resolveExpression(assignment.getValue(), slots, functionName);
+            } else if (statement instanceof IfNode) {
+                IfNode ifNode = (IfNode) statement;
+                while (ifNode != null) {
+                    if (ifNode.getCondition() != null) {
+                        resolveExpression(ifNode.getCondition(), slots, functionName);
+                    }
+                    resolveBlock(ifNode.getStatements(), slots, functionName);
+                    ifNode = ifNode.getNextIf();
+                }
+            } else if (statement instanceof WhileNode) {
+                WhileNode whileNode = (WhileNode) statement;
+                resolveExpression(whileNode.getCondition(), slots, functionName);
+                resolveBlock(whileNode.getStatements(), slots, functionName);
+            } else if (statement instanceof RepeatNode) {
+                RepeatNode repeatNode = (RepeatNode) statement;
+                resolveExpression(repeatNode.getCondition(), slots, functionName);
+                resolveBlock(repeatNode.getStatements(), slots, functionName);
+            } else if (statement instanceof ForNode) {
+                ForNode forNode = (ForNode) statement;
+                resolveExpression(forNode.getVariable(), slots, functionName);
+                resolveExpression(forNode.getFromExpr(), slots, functionName);
+                resolveExpression(forNode.getToExpr(), slots, functionName);
+                resolveBlock(forNode.getStatements(), slots, functionName);
+            } else if (statement instanceof FunctionCallNode) {
+                resolveExpression(statement, slots, functionName);
+            }
+        }
+    }
+    
+    /**
+     * Resolves the variable references in an expression
+     * @param node The expression node
+     * @param slots Map of variable names to their slot indexes
+     * @param functionName The name of the current function (for error messages)
+     */
+    private void resolveExpression(Node node, Map<String, Integer> slots, String functionName) {
+        if (node instanceof VariableReferenceNode) {
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            String name = reference.getName().toLowerCase();
+            Integer slot = slots.get(name);
+            
+            if (slot == null) {
+                throw new RuntimeException("In function '" + functionName + "': Variable '" +
+                                          name + "' not declared");
+            }
+            
+            reference.setSlot(slot);
+            if (reference.getIndexExpression() != null) {
+                resolveExpression(reference.getIndexExpression(), slots, functionName);
+            }
+        } else if (node instanceof MathOpNode) {
+            resolveExpression(((MathOpNode) node).getLeft(), slots, functionName);
+            resolveExpression(((MathOpNode) node).getRight(), slots, functionName);
+        } else if (node instanceof BooleanCompareNode) {
+            resolveExpression(((BooleanCompareNode) node).getLeftSide(), slots, functionName);
+            resolveExpression(((BooleanCompareNode) node).getRightSide(), slots, functionName);
+        } else if (node instanceof FunctionCallNode) {
+            FunctionCallNode call = (FunctionCallNode) node;
+            String name = call.getName().toLowerCase();
+            FunctionNode function = functions.get(name);
+            
+            if (function == null) {
+                throw new RuntimeException("In function '" + functionName + "': Function '" +
+                                          name + "' not defined");
+            }
+            
+            call.setFunction(function);
+            if (function instanceof BuiltInFunction) {
+                linkBuiltIn(call, ((BuiltInFunction) function).getBuiltIn(), functionName);
+            }
+            for (ParameterNode param : call.getParameters()) {
+                if (param.isVar()) {
+                    resolveExpression(param.getVariableReference(), slots, functionName);
+                } else {
+                    resolveExpression(param.getExpression(), slots, functionName);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Checks a call to a built-in against its signature, once, and links the call to it
+     * @param call The call
+     * @param builtIn The built-in it calls
+     * @param functionName The name of the current function (for error messages)
+     */
+    private void linkBuiltIn(FunctionCallNode call, BuiltIn builtIn, String functionName) {
+        List<ParameterNode> parameters = call.getParameters();
+        int parameterCount = builtIn.getParameterCount();
+        if (parameterCount >= 0 && parameters.size() != parameterCount) {
+            throw new RuntimeException("In function '" + functionName + "': Function " +
+                                      builtIn.getName() + " expects " + parameterCount +
+                                      " parameters, but got " + parameters.size());
+        }
+        
+        for (int i = 0; i < parameters.size(); i++) {
+            if (builtIn.isVarParameter(i) && !parameters.get(i).isVar()) {
+                throw new RuntimeException("In function '" + functionName + "': Parameter " + (i + 1) +
+                                          " of " + builtIn.getName() + " must be passed as var");
+            }
+        }
+        
+        call.setBuiltIn(builtIn);
+    }
+    
+    /**
+     * Determines the runtime type an expression will produce, from the declared slot types.
+     * Mixed operand types yield "mismatch", which the compilers turn into the same runtime
+     * error the Interpreter raises.
+     * @param node The expression node
+     * @param slotTypes The declared type of each frame slot
+     * @return The type name of the expression
+     */
+    public static String typeOf(Node node, String[] slotTypes) {
+        if (node instanceof VariableReferenceNode) {
+            VariableReferenceNode reference = (VariableReferenceNode) node;
+            String type = slotTypes[reference.getSlot()];
+            if (reference.getIndexExpression() != null) {
+                // Indexing anything but an array, or with anything but an integer, fails like a mismatch
+                if (!type.startsWith("array of ") || !typeOf(reference.getIndexExpression(), slotTypes).equals("integer")) {
+                    return "mismatch";
+                }
+                return ArrayDataType.elementTypeOf(type);
+            }
+            return type;
+        } else if (node instanceof IntegerNode) {
+            return "integer";
+        } else if (node instanceof RealNode) {
+            return "real";
+        } else if (node instanceof StringNode) {
+            return "string";
+        } else if (node instanceof BooleanNode || node instanceof BooleanCompareNode) {
+            return "boolean";
+        } else if (node instanceof CharacterNode) {
+            return "character";
+        } else if (node instanceof MathOpNode) {
+            String leftType = typeOf(((MathOpNode) node).getLeft(), slotTypes);
+            String rightType = typeOf(((MathOpNode) node).getRight(), slotTypes);
+            return leftType.equals(rightType) ? leftType : "mismatch";
+        } else {
+            return "void";
+        }
+    }
+}
\ No newline at end of file
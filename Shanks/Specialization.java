@@ -0,0 +1,13 @@
+package Shanks;
+
+/**
+ * Operand types a math operation or comparison has specialized on in the Interpreter's
+ * specializing mode. Nodes start UNINITIALIZED, move to INTEGER or REAL after their first
+ * execution, and fall back to GENERIC for good when a later execution sees other types.
+ */
+public enum Specialization {
+    UNINITIALIZED,
+    INTEGER,
+    REAL,
+    GENERIC
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package Shanks;
+import java.util.Arrays;
+
+/**
+ * An array of strings, stored in a String[]. Elements start out empty rather than null.
+ */
+public class StringArrayDataType extends ArrayDataType {
+    private String[] values;
+    
+    public StringArrayDataType(int lowerBound, int length) {
+        super(lowerBound, length);
+        this.values = new String[length];
+        Arrays.fill(values, "");
+    }
+    
+    private StringArrayDataType(int lowerBound, int length, String[] values) {
+        super(lowerBound, length);
+        this.values = values;
+    }
+    
+    @Override
+    public String getElementType() {
+        return "string";
+    }
+    
+    public String getString(int index) {
+        return values[offset(index)];
+    }
+    
+    public void setString(int index, String value) {
+        beforeWrite();
+        values[offset(index)] = value;
+    }
+    
+    @Override
+    public InterpreterDataType get(int index) {
+        return new StringDataType(getString(index));
+    }
+    
+    @Override
+    public void set(int index, InterpreterDataType value) {
+        if (!(value instanceof StringDataType)) {
+            throw new RuntimeException("Type mismatch in assignment");
+        }
+        setString(index, ((StringDataType) value).getValue());
+    }
+    
+    @Override
+    protected ArrayDataType share() {
+        return new StringArrayDataType(lowerBound, length, values);
+    }
+    
+    @Override
+    protected void detach() {
+        values = values.clone();
+    }
+    
+    @Override
+    public void fill(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayFill", from, to);
+        if (!(value instanceof StringDataType)) {
+            throw wrongValue("ArrayFill");
+        }
+        beforeWrite();
+        Arrays.fill(values, start, to - lowerBound + 1, ((StringDataType) value).getValue());
+    }
+    
+    @Override
+    public int indexOf(int from, int to, InterpreterDataType value) {
+        int start = checkRange("ArrayIndexOf", from, to);
+        if (!(value instanceof StringDataType)) {
+            throw wrongValue("ArrayIndexOf");
+        }
+        String wanted = ((StringDataType) value).getValue();
+        for (int i = start; i <= to - lowerBound; i++) {
+            if (values[i].equals(wanted)) {
+                return i + lowerBound;
+            }
+        }
+        return from - 1;
+    }
+    
+    @Override
+    public void sort(int from, int to) {
+        int start = checkRange("ArraySort", from, to);
+        int end = to - lowerBound + 1;
+        beforeWrite();
+        if (end - start >= PARALLEL_SORT_LENGTH) {
+            Arrays.parallelSort(values, start, end);
+        } else {
+            Arrays.sort(values, start, end);
+        }
+    }
+    
+    @Override
+    protected Object storage() {
+        return values;
+    }
+}
\ No newline at end of file
@@ -1,30 +1,198 @@
 package Shanks;
 public class StringDataType extends InterpreterDataType {
+    // A slice of a parent longer than this is copied out when it is under a quarter of the parent,
+    // so a short field cut from a huge record doesn't keep the whole record alive
+    private static final int PIN_LIMIT = 64 * 1024;
+    
+    // Concatenations shorter than this are plain Strings; longer ones go into a builder
+    private static final int MIN_BUILDER_LENGTH = 64;
+    
+    // The characters are base[offset, offset + length). Slices made by Left, Right and Substring
+    // share their source's base and leave value null until something needs the String itself.
+    private String base;
+    private int offset;
+    private int length;
     private String value;
     
+    // Set by concatenation: the characters are builder[0, length), and base stays null until the
+    // value is read. Builders only ever grow, so every string sharing one still sees its own
+    // prefix, and the one whose length matches the builder's can append in place.
+    private StringBuilder builder;
+    
     public StringDataType(String value) {
-        this.value = value;
+        setValue(value);
     }
     
     public StringDataType() {
-        this.value = "";
+        setValue("");
     }
     
+    /**
+     * Creates a copy of another string, sharing its characters
+     * @param other The string to copy
+     */
+    public StringDataType(StringDataType other) {
+        setValue(other);
+    }
+    
+    /**
+     * Gets the value, copying a slice out of its parent the first time it is asked for
+     * @return The value
+     */
     public String getValue() {
+        if (value == null) {
+            value = base == null ? builder.substring(0, length) : base.substring(offset, offset + length);
+            base = value;
+            offset = 0;
+        }
         return value;
     }
     
     public void setValue(String value) {
         this.value = value;
+        this.base = value;
+        this.offset = 0;
+        this.length = value.length();
+        this.builder = null;
+    }
+    
+    /**
+     * Sets the value to another string's, sharing its characters rather than materializing a slice
+     * @param other The string to copy
+     */
+    public void setValue(StringDataType other) {
+        this.value = other.value;
+        this.base = other.base;
+        this.offset = other.offset;
+        this.length = other.length;
+        this.builder = other.builder;
+    }
+    
+    /**
+     * Sets the value to part of another string without copying characters
+     * @param source The string to slice, which may be this string
+     * @param start The index of the first character in source
+     * @param length The number of characters
+     */
+    public void setSlice(StringDataType source, int start, int length) {
+        if (length == 0) {
+            setValue("");
+            return;
+        }
+        if (start == 0 && length == source.length) {
+            setValue(source);
+            return;
+        }
+        
+        // Slicing a concatenation flattens it
+        if (source.base == null) {
+            source.getValue();
+        }
+        this.base = source.base;
+        this.offset = source.offset + start;
+        this.length = length;
+        this.value = null;
+        this.builder = null;
+        if (base.length() > PIN_LIMIT && length < base.length() / 4) {
+            getValue();
+        }
+    }
+    
+    /**
+     * Concatenates two strings. When the left string ends its builder, as the running result
+     * of a loop like s := s + line does, the right string is appended to that builder, so
+     * building a string piece by piece takes time linear in its length.
+     * @param left The left string
+     * @param right The right string
+     * @return A new string holding both
+     */
+    public static StringDataType concat(StringDataType left, StringDataType right) {
+        int length = left.length + right.length;
+        if (length < MIN_BUILDER_LENGTH) {
+            return new StringDataType(left.getValue() + right.getValue());
+        }
+        
+        StringBuilder builder = left.builder;
+        if (builder == null || builder.length() != left.length) {
+            builder = new StringBuilder(length * 2);
+            left.appendTo(builder);
+        } else if (right.builder == builder && right.base == null) {
+            // s + s: don't append a builder to itself
+            right.getValue();
+        }
+        right.appendTo(builder);
+        
+        StringDataType result = new StringDataType();
+        result.value = null;
+        result.base = null;
+        result.length = length;
+        result.builder = builder;
+        return result;
+    }
+    
+    private void appendTo(StringBuilder target) {
+        if (base == null) {
+            target.append(builder, 0, length);
+        } else {
+            target.append(base, offset, offset + length);
+        }
+    }
+    
+    /**
+     * @return The number of characters
+     */
+    public int length() {
+        return length;
+    }
+    
+    /**
+     * Gets one character without materializing a slice
+     * @param index The index of the character
+     * @return The character
+     */
+    public char charAt(int index) {
+        return getBase().charAt(offset + index);
+    }
+    
+    /**
+     * Compares the characters of two strings without materializing either
+     * @param other The string to compare with
+     * @return Whether both hold the same characters
+     */
+    public boolean contentEquals(StringDataType other) {
+        if (length != other.length) {
+            return false;
+        }
+        return getBase().regionMatches(offset, other.getBase(), other.offset, length);
+    }
+    
+    // The String holding the characters from offset, flattening a concatenation
+    private String getBase() {
+        if (base == null) {
+            getValue();
+        }
+        return base;
+    }
+    
+    /**
+     * Appends the characters to an output sink without materializing a slice
+     * @param sink The sink to write to
+     */
+    public void writeTo(OutputSink sink) {
+        if (base == null) {
+            sink.write(builder, 0, length);
+        } else {
+            sink.write(base, offset, offset + length);
+        }
     }
     
     @Override
     public String ToString() {
-        return value;
+        return getValue();
     }
     
     @Override
     public void FromString(String input) {
-        this.value = input;
+        setValue(input);
     }
 }
\ No newline at end of file
@@ -6,13 +6,16 @@ public class VariableNode extends Node {
     private boolean isVar;
     private Node value; // For constants
     
-    // Range constraints
+    // Range constraints; an array of integer's integer range is its elements'
     private Integer integerFrom;
     private Integer integerTo;
     private Float realFrom;
     private Float realTo;
     private Integer stringLengthFrom;
     private Integer stringLengthTo;
+    // Index range of arrays
+    private Integer arrayFrom;
+    private Integer arrayTo;
     
     // Constructor for parameters and variables
     public VariableNode(String name, String type, boolean isVar) {
@@ -92,6 +95,20 @@ public class VariableNode extends Node {
         return stringLengthTo;
     }
     
+    // Index range for arrays
+    public void setArrayRange(Integer from, Integer to) {
+        this.arrayFrom = from;
+        this.arrayTo = to;
+    }
+    
+    public Integer getArrayFrom() {
+        return arrayFrom;
+    }
+    
+    public Integer getArrayTo() {
+        return arrayTo;
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -114,6 +131,11 @@ public class VariableNode extends Node {
                 sb.append(" from ").append(realFrom).append(" to ").append(realTo);
             } else if (type.equals("string") && stringLengthFrom != null && stringLengthTo != null) {
                 sb.append(" from ").append(stringLengthFrom).append(" to ").append(stringLengthTo);
+            } else if (type.startsWith("array") && arrayFrom != null && arrayTo != null) {
+                sb.append(" from ").append(arrayFrom).append(" to ").append(arrayTo);
+                if (integerFrom != null && integerTo != null) {
+                    sb.append(" from ").append(integerFrom).append(" to ").append(integerTo);
+                }
             }
         }
         
@@ -3,6 +3,7 @@ package Shanks;
 public class VariableReferenceNode extends Node {
     private String name;
     private Node indexExpression; // Optional for array access
+    private int slot = -1; // Frame slot, assigned by SlotResolver
     
     // Constructor for simple variable reference (no array index)
     public VariableReferenceNode(String name) {
@@ -24,6 +25,14 @@ public class VariableReferenceNode extends Node {
         return indexExpression;
     }
     
+    public int getSlot() {
+        return slot;
+    }
+    
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+    
     public boolean isArray() {
         return indexExpression != null;
     }
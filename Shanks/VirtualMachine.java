@@ -0,0 +1,701 @@
+package Shanks;
+
+import java.util.Arrays;
+
+/**
+ * Runs bytecode produced by the BytecodeCompiler. The operand stacks are shared by all
+ * active calls; each call works on top of its caller's values.
+ *
+ * Calls do not recurse on the JVM stack: CALL saves the caller on an explicit call stack
+ * held in growable arrays and RETURN resumes it, so Shank recursion is limited only by
+ * the heap. TAILCALL goes further and replaces the running function, reusing its frame,
+ * so tail-recursive functions run in constant space.
+ */
+public class VirtualMachine {
+    private int[] intStack;
+    private Object[] objectStack;
+    private int intTop;
+    private int objectTop;
+    // How many times each superinstruction ran, indexed by opcode, or null when not counted
+    private long[] fired;
+    
+    // Call stack: the function, frame and resume position of every suspended caller.
+    // Frame arrays are kept per depth and reused by the next call that reaches it.
+    private BytecodeFunction[] callFunctions;
+    private InterpreterDataType[][] callFrames;
+    private int[] returnPcs;
+    private InterpreterDataType[][] spareFrames;
+    
+    public VirtualMachine() {
+        this(false);
+    }
+    
+    /**
+     * @param countSuperinstructions Whether to count how often each superinstruction runs, for
+     * getSuperinstructionReport; counting costs a little on the paths superinstructions speed up
+     */
+    public VirtualMachine(boolean countSuperinstructions) {
+        this.intStack = new int[256];
+        this.objectStack = new Object[256];
+        this.fired = countSuperinstructions ? new long[Bytecode.getOpcodeCount()] : null;
+        this.callFunctions = new BytecodeFunction[64];
+        this.callFrames = new InterpreterDataType[64][];
+        this.returnPcs = new int[64];
+        this.spareFrames = new InterpreterDataType[64][];
+    }
+    
+    /**
+     * Lists the superinstructions that ran and how often
+     * @return The report, one line per superinstruction that fired
+     */
+    public String getSuperinstructionReport() {
+        if (fired == null) {
+            throw new RuntimeException("This virtual machine was not asked to count superinstructions");
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("superinstructions fired:\n");
+        for (int opcode = 0; opcode < fired.length; opcode++) {
+            if (Bytecode.isSuperinstruction(opcode) && fired[opcode] > 0) {
+                sb.append(String.format("  %-10s %d%n", Bytecode.getName(opcode), fired[opcode]));
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Runs a function that takes no parameters, such as main
+     * @param function The function to run
+     */
+    public void execute(BytecodeFunction function) {
+        execute(function, new InterpreterDataType[function.getSlotCount()]);
+    }
+    
+    /**
+     * Makes sure both stacks have room for anything a function can push
+     * @param function The function about to run
+     */
+    private void ensureCapacity(BytecodeFunction function) {
+        // No instruction pushes more than one value per stack, so the code length is a safe bound
+        int needed = function.getCode().length + 3;
+        if (intTop + needed > intStack.length) {
+            intStack = Arrays.copyOf(intStack, Math.max(intStack.length * 2, intTop + needed));
+        }
+        if (objectTop + needed > objectStack.length) {
+            objectStack = Arrays.copyOf(objectStack, Math.max(objectStack.length * 2, objectTop + needed));
+        }
+    }
+    
+    /**
+     * Grows the call stack arrays so they can hold the given depth
+     * @param depth The depth about to be used
+     */
+    private void ensureDepth(int depth) {
+        if (depth == callFunctions.length) {
+            int size = depth * 2;
+            callFunctions = Arrays.copyOf(callFunctions, size);
+            callFrames = Arrays.copyOf(callFrames, size);
+            returnPcs = Arrays.copyOf(returnPcs, size);
+            spareFrames = Arrays.copyOf(spareFrames, size);
+        }
+    }
+    
+    /**
+     * Runs a function on an already-filled parameter frame, along with everything it calls
+     * @param function The function to run
+     * @param frame The frame, with the parameter slots filled in
+     */
+    private void execute(BytecodeFunction function, InterpreterDataType[] frame) {
+        ensureCapacity(function);
+        
+        int[] code = function.getCode();
+        Object[] pool = function.getPool();
+        final long[] fired = this.fired;
+        final boolean counting = fired != null;
+        int depth = 0;
+        int[] is = intStack;
+        Object[] os = objectStack;
+        int isp = intTop;
+        int osp = objectTop;
+        int pc = 0;
+        
+        while (true) {
+            switch (code[pc++]) {
+                case Bytecode.ICONST:
+                    is[isp++] = code[pc++];
+                    break;
+                case Bytecode.RCONST:
+                    is[isp++] = code[pc++];
+                    break;
+                case Bytecode.SCONST:
+                    os[osp++] = pool[code[pc++]];
+                    break;
+                
+                case Bytecode.ILOAD:
+                    is[isp++] = ((IntegerDataType) frame[code[pc++]]).getValue();
+                    break;
+                case Bytecode.RLOAD:
+                    is[isp++] = Float.floatToRawIntBits(((RealDataType) frame[code[pc++]]).getValue());
+                    break;
+                case Bytecode.BLOAD:
+                    is[isp++] = ((BooleanDataType) frame[code[pc++]]).getValue() ? 1 : 0;
+                    break;
+                case Bytecode.CLOAD:
+                    is[isp++] = ((CharacterDataType) frame[code[pc++]]).getValue();
+                    break;
+                case Bytecode.SLOAD:
+                    os[osp++] = frame[code[pc++]];
+                    break;
+                
+                case Bytecode.ISTORE:
+                    ((IntegerDataType) frame[code[pc++]]).setValue(is[--isp]);
+                    break;
+                case Bytecode.RSTORE:
+                    ((RealDataType) frame[code[pc++]]).setValue(Float.intBitsToFloat(is[--isp]));
+                    break;
+                case Bytecode.BSTORE:
+                    ((BooleanDataType) frame[code[pc++]]).setValue(is[--isp] != 0);
+                    break;
+                case Bytecode.CSTORE:
+                    ((CharacterDataType) frame[code[pc++]]).setValue((char) is[--isp]);
+                    break;
+                case Bytecode.SSTORE:
+                    ((StringDataType) frame[code[pc++]]).setValue((StringDataType) os[--osp]);
+                    os[osp] = null;
+                    break;
+                
+                case Bytecode.REF:
+                    os[osp++] = frame[code[pc++]];
+                    break;
+                case Bytecode.OSTORE:
+                    frame[code[pc++]] = (InterpreterDataType) os[--osp];
+                    os[osp] = null;
+                    break;
+                case Bytecode.COPY:
+                    os[osp - 1] = copyOf((InterpreterDataType) os[osp - 1]);
+                    break;
+                case Bytecode.NEWARRAY:
+                    frame[code[pc]] = ArrayDataType.create((VariableNode) pool[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                
+                case Bytecode.BOXI:
+                    os[osp++] = new IntegerDataType(is[--isp]);
+                    break;
+                case Bytecode.BOXR:
+                    os[osp++] = new RealDataType(Float.intBitsToFloat(is[--isp]));
+                    break;
+                case Bytecode.BOXB:
+                    os[osp++] = new BooleanDataType(is[--isp] != 0);
+                    break;
+                case Bytecode.BOXC:
+                    os[osp++] = new CharacterDataType((char) is[--isp]);
+                    break;
+                case Bytecode.BOXS:
+                    os[osp - 1] = new StringDataType((StringDataType) os[osp - 1]);
+                    break;
+                
+                case Bytecode.IADD:
+                    isp--;
+                    is[isp - 1] += is[isp];
+                    break;
+                case Bytecode.ISUB:
+                    isp--;
+                    is[isp - 1] -= is[isp];
+                    break;
+                case Bytecode.IMUL:
+                    isp--;
+                    is[isp - 1] *= is[isp];
+                    break;
+                case Bytecode.IDIV:
+                    isp--;
+                    if (is[isp] == 0) {
+                        throw new RuntimeException("Division by zero");
+                    }
+                    is[isp - 1] /= is[isp];
+                    break;
+                case Bytecode.IMOD:
+                    isp--;
+                    if (is[isp] == 0) {
+                        throw new RuntimeException("Modulo by zero");
+                    }
+                    is[isp - 1] %= is[isp];
+                    break;
+                case Bytecode.RADD:
+                    isp--;
+                    is[isp - 1] = Float.floatToRawIntBits(Float.intBitsToFloat(is[isp - 1]) + Float.intBitsToFloat(is[isp]));
+                    break;
+                case Bytecode.RSUB:
+                    isp--;
+                    is[isp - 1] = Float.floatToRawIntBits(Float.intBitsToFloat(is[isp - 1]) - Float.intBitsToFloat(is[isp]));
+                    break;
+                case Bytecode.RMUL:
+                    isp--;
+                    is[isp - 1] = Float.floatToRawIntBits(Float.intBitsToFloat(is[isp - 1]) * Float.intBitsToFloat(is[isp]));
+                    break;
+                case Bytecode.RDIV: {
+                    isp--;
+                    float divisor = Float.intBitsToFloat(is[isp]);
+                    if (divisor == 0) {
+                        throw new RuntimeException("Division by zero");
+                    }
+                    is[isp - 1] = Float.floatToRawIntBits(Float.intBitsToFloat(is[isp - 1]) / divisor);
+                    break;
+                }
+                case Bytecode.SCONCAT:
+                    osp--;
+                    os[osp - 1] = StringDataType.concat((StringDataType) os[osp - 1], (StringDataType) os[osp]);
+                    os[osp] = null;
+                    break;
+                
+                case Bytecode.IEQ:
+                    isp--;
+                    is[isp - 1] = is[isp - 1] == is[isp] ? 1 : 0;
+                    break;
+                case Bytecode.INE:
+                    isp--;
+                    is[isp - 1] = is[isp - 1] != is[isp] ? 1 : 0;
+                    break;
+                case Bytecode.ILT:
+                    isp--;
+                    is[isp - 1] = is[isp - 1] < is[isp] ? 1 : 0;
+                    break;
+                case Bytecode.ILE:
+                    isp--;
+                    is[isp - 1] = is[isp - 1] <= is[isp] ? 1 : 0;
+                    break;
+                case Bytecode.IGT:
+                    isp--;
+                    is[isp - 1] = is[isp - 1] > is[isp] ? 1 : 0;
+                    break;
+                case Bytecode.IGE:
+                    isp--;
+                    is[isp - 1] = is[isp - 1] >= is[isp] ? 1 : 0;
+                    break;
+                case Bytecode.REQ:
+                    isp--;
+                    is[isp - 1] = Float.intBitsToFloat(is[isp - 1]) == Float.intBitsToFloat(is[isp]) ? 1 : 0;
+                    break;
+                case Bytecode.RNE:
+                    isp--;
+                    is[isp - 1] = Float.intBitsToFloat(is[isp - 1]) != Float.intBitsToFloat(is[isp]) ? 1 : 0;
+                    break;
+                case Bytecode.RLT:
+                    isp--;
+                    is[isp - 1] = Float.intBitsToFloat(is[isp - 1]) < Float.intBitsToFloat(is[isp]) ? 1 : 0;
+                    break;
+                case Bytecode.RLE:
+                    isp--;
+                    is[isp - 1] = Float.intBitsToFloat(is[isp - 1]) <= Float.intBitsToFloat(is[isp]) ? 1 : 0;
+                    break;
+                case Bytecode.RGT:
+                    isp--;
+                    is[isp - 1] = Float.intBitsToFloat(is[isp - 1]) > Float.intBitsToFloat(is[isp]) ? 1 : 0;
+                    break;
+                case Bytecode.RGE:
+                    isp--;
+                    is[isp - 1] = Float.intBitsToFloat(is[isp - 1]) >= Float.intBitsToFloat(is[isp]) ? 1 : 0;
+                    break;
+                case Bytecode.SEQ:
+                    osp -= 2;
+                    is[isp++] = ((StringDataType) os[osp]).contentEquals((StringDataType) os[osp + 1]) ? 1 : 0;
+                    os[osp] = null;
+                    os[osp + 1] = null;
+                    break;
+                case Bytecode.SNE:
+                    osp -= 2;
+                    is[isp++] = ((StringDataType) os[osp]).contentEquals((StringDataType) os[osp + 1]) ? 0 : 1;
+                    os[osp] = null;
+                    os[osp + 1] = null;
+                    break;
+                
+                case Bytecode.JMP:
+                    pc = code[pc];
+                    break;
+                case Bytecode.JMPF:
+                    pc = is[--isp] == 0 ? code[pc] : pc + 1;
+                    break;
+                case Bytecode.JMPT:
+                    pc = is[--isp] != 0 ? code[pc] : pc + 1;
+                    break;
+                
+                case Bytecode.FORPREP: {
+                    // Leaves end, step and counter on the int stack for FORLOOP
+                    int end = is[isp - 1];
+                    int start = is[isp - 2];
+                    is[isp - 2] = end;
+                    is[isp - 1] = start <= end ? 1 : -1;
+                    is[isp++] = start;
+                    ((IntegerDataType) frame[code[pc++]]).setValue(start);
+                    break;
+                }
+                case Bytecode.FORLOOP:
+                    if (nextIteration(is, isp, frame, code[pc])) {
+                        pc = code[pc + 1];
+                    } else {
+                        isp -= 3;
+                        pc += 2;
+                    }
+                    break;
+                
+                case Bytecode.CALL: {
+                    BytecodeFunction.CallSite callSite = (BytecodeFunction.CallSite) pool[code[pc++]];
+                    int argumentCount = callSite.getArgumentCount();
+                    BytecodeFunction target = callSite.getTarget();
+                    
+                    // Suspend the caller
+                    ensureDepth(depth + 1);
+                    callFunctions[depth] = function;
+                    callFrames[depth] = frame;
+                    returnPcs[depth] = pc;
+                    depth++;
+                    
+                    // Every slot is written before it is read, so a frame left at this depth can be reused
+                    InterpreterDataType[] calleeFrame = spareFrames[depth];
+                    if (calleeFrame == null || calleeFrame.length < target.getSlotCount()) {
+                        calleeFrame = new InterpreterDataType[target.getSlotCount()];
+                        spareFrames[depth] = calleeFrame;
+                    }
+                    osp -= argumentCount;
+                    for (int i = 0; i < argumentCount; i++) {
+                        calleeFrame[i] = (InterpreterDataType) os[osp + i];
+                        os[osp + i] = null;
+                    }
+                    
+                    // The callee may need bigger stacks
+                    intTop = isp;
+                    objectTop = osp;
+                    ensureCapacity(target);
+                    is = intStack;
+                    os = objectStack;
+                    
+                    function = target;
+                    code = target.getCode();
+                    pool = target.getPool();
+                    frame = calleeFrame;
+                    pc = 0;
+                    break;
+                }
+                case Bytecode.TAILCALL: {
+                    BytecodeFunction.CallSite callSite = (BytecodeFunction.CallSite) pool[code[pc++]];
+                    int argumentCount = callSite.getArgumentCount();
+                    BytecodeFunction target = callSite.getTarget();
+                    
+                    // Nothing in this frame is needed any more, so the callee takes it over
+                    if (frame.length < target.getSlotCount()) {
+                        frame = new InterpreterDataType[target.getSlotCount()];
+                        if (depth > 0) {
+                            spareFrames[depth] = frame;
+                        }
+                    }
+                    osp -= argumentCount;
+                    for (int i = 0; i < argumentCount; i++) {
+                        frame[i] = (InterpreterDataType) os[osp + i];
+                        os[osp + i] = null;
+                    }
+                    
+                    intTop = isp;
+                    objectTop = osp;
+                    ensureCapacity(target);
+                    is = intStack;
+                    os = objectStack;
+                    
+                    function = target;
+                    code = target.getCode();
+                    pool = target.getPool();
+                    pc = 0;
+                    break;
+                }
+                case Bytecode.BUILTIN: {
+                    BytecodeFunction.CallSite callSite = (BytecodeFunction.CallSite) pool[code[pc++]];
+                    int argumentCount = callSite.getArgumentCount();
+                    InterpreterDataType[] arguments = new InterpreterDataType[argumentCount];
+                    osp -= argumentCount;
+                    for (int i = 0; i < argumentCount; i++) {
+                        arguments[i] = (InterpreterDataType) os[osp + i];
+                        os[osp + i] = null;
+                    }
+                    callSite.getBuiltIn().execute(arguments);
+                    
+                    // A built-in may hand back a new array in a var argument
+                    int[] copyBackSlots = callSite.getCopyBackSlots();
+                    if (copyBackSlots != null) {
+                        for (int i = 0; i < copyBackSlots.length; i++) {
+                            if (copyBackSlots[i] >= 0) {
+                                frame[copyBackSlots[i]] = arguments[i];
+                            }
+                        }
+                    }
+                    release(callSite.getCopiedArrays(), arguments);
+                    break;
+                }
+                
+                case Bytecode.IINC: {
+                    IntegerDataType variable = (IntegerDataType) frame[code[pc]];
+                    variable.setValue(variable.getValue() + code[pc + 1]);
+                    pc += 2;
+                    if (counting) {
+                        fired[Bytecode.IINC]++;
+                    }
+                    break;
+                }
+                case Bytecode.IADDTO: {
+                    IntegerDataType variable = (IntegerDataType) frame[code[pc++]];
+                    variable.setValue(variable.getValue() + is[--isp]);
+                    if (counting) {
+                        fired[Bytecode.IADDTO]++;
+                    }
+                    break;
+                }
+                case Bytecode.RADDTO: {
+                    RealDataType variable = (RealDataType) frame[code[pc++]];
+                    variable.setValue(variable.getValue() + Float.intBitsToFloat(is[--isp]));
+                    if (counting) {
+                        fired[Bytecode.RADDTO]++;
+                    }
+                    break;
+                }
+                
+                case Bytecode.JIEQ:
+                    isp -= 2;
+                    pc = is[isp] == is[isp + 1] ? code[pc] : pc + 1;
+                    if (counting) {
+                        fired[Bytecode.JIEQ]++;
+                    }
+                    break;
+                case Bytecode.JINE:
+                    isp -= 2;
+                    pc = is[isp] != is[isp + 1] ? code[pc] : pc + 1;
+                    if (counting) {
+                        fired[Bytecode.JINE]++;
+                    }
+                    break;
+                case Bytecode.JILT:
+                    isp -= 2;
+                    pc = is[isp] < is[isp + 1] ? code[pc] : pc + 1;
+                    if (counting) {
+                        fired[Bytecode.JILT]++;
+                    }
+                    break;
+                case Bytecode.JILE:
+                    isp -= 2;
+                    pc = is[isp] <= is[isp + 1] ? code[pc] : pc + 1;
+                    if (counting) {
+                        fired[Bytecode.JILE]++;
+                    }
+                    break;
+                case Bytecode.JIGT:
+                    isp -= 2;
+                    pc = is[isp] > is[isp + 1] ? code[pc] : pc + 1;
+                    if (counting) {
+                        fired[Bytecode.JIGT]++;
+                    }
+                    break;
+                case Bytecode.JIGE:
+                    isp -= 2;
+                    pc = is[isp] >= is[isp + 1] ? code[pc] : pc + 1;
+                    if (counting) {
+                        fired[Bytecode.JIGE]++;
+                    }
+                    break;
+                
+                case Bytecode.FORISTORE:
+                    ((IntegerDataType) frame[code[pc++]]).setValue(is[--isp]);
+                    if (nextIteration(is, isp, frame, code[pc])) {
+                        pc = code[pc + 1];
+                    } else {
+                        isp -= 3;
+                        pc += 2;
+                    }
+                    if (counting) {
+                        fired[Bytecode.FORISTORE]++;
+                    }
+                    break;
+                case Bytecode.FORRSTORE:
+                    ((RealDataType) frame[code[pc++]]).setValue(Float.intBitsToFloat(is[--isp]));
+                    if (nextIteration(is, isp, frame, code[pc])) {
+                        pc = code[pc + 1];
+                    } else {
+                        isp -= 3;
+                        pc += 2;
+                    }
+                    if (counting) {
+                        fired[Bytecode.FORRSTORE]++;
+                    }
+                    break;
+                case Bytecode.FORIADDTO: {
+                    IntegerDataType variable = (IntegerDataType) frame[code[pc++]];
+                    variable.setValue(variable.getValue() + is[--isp]);
+                    if (nextIteration(is, isp, frame, code[pc])) {
+                        pc = code[pc + 1];
+                    } else {
+                        isp -= 3;
+                        pc += 2;
+                    }
+                    if (counting) {
+                        fired[Bytecode.FORIADDTO]++;
+                    }
+                    break;
+                }
+                case Bytecode.FORRADDTO: {
+                    RealDataType variable = (RealDataType) frame[code[pc++]];
+                    variable.setValue(variable.getValue() + Float.intBitsToFloat(is[--isp]));
+                    if (nextIteration(is, isp, frame, code[pc])) {
+                        pc = code[pc + 1];
+                    } else {
+                        isp -= 3;
+                        pc += 2;
+                    }
+                    if (counting) {
+                        fired[Bytecode.FORRADDTO]++;
+                    }
+                    break;
+                }
+                case Bytecode.FORIINC: {
+                    IntegerDataType variable = (IntegerDataType) frame[code[pc]];
+                    variable.setValue(variable.getValue() + code[pc + 1]);
+                    pc += 2;
+                    if (nextIteration(is, isp, frame, code[pc])) {
+                        pc = code[pc + 1];
+                    } else {
+                        isp -= 3;
+                        pc += 2;
+                    }
+                    if (counting) {
+                        fired[Bytecode.FORIINC]++;
+                    }
+                    break;
+                }
+                
+                case Bytecode.IALOAD:
+                    is[isp - 1] = ((IntegerArrayDataType) frame[code[pc++]]).getInt(is[isp - 1]);
+                    break;
+                case Bytecode.RALOAD:
+                    is[isp - 1] = Float.floatToRawIntBits(((RealArrayDataType) frame[code[pc++]]).getReal(is[isp - 1]));
+                    break;
+                case Bytecode.BALOAD:
+                    is[isp - 1] = ((BooleanArrayDataType) frame[code[pc++]]).getBoolean(is[isp - 1]) ? 1 : 0;
+                    break;
+                case Bytecode.CALOAD:
+                    is[isp - 1] = ((CharacterArrayDataType) frame[code[pc++]]).getChar(is[isp - 1]);
+                    break;
+                case Bytecode.SALOAD:
+                    os[osp++] = new StringDataType(((StringArrayDataType) frame[code[pc++]]).getString(is[--isp]));
+                    break;
+                case Bytecode.IASTORE:
+                    isp -= 2;
+                    ((IntegerArrayDataType) frame[code[pc++]]).setInt(is[isp], is[isp + 1]);
+                    break;
+                case Bytecode.RASTORE:
+                    isp -= 2;
+                    ((RealArrayDataType) frame[code[pc++]]).setReal(is[isp], Float.intBitsToFloat(is[isp + 1]));
+                    break;
+                case Bytecode.BASTORE:
+                    isp -= 2;
+                    ((BooleanArrayDataType) frame[code[pc++]]).setBoolean(is[isp], is[isp + 1] != 0);
+                    break;
+                case Bytecode.CASTORE:
+                    isp -= 2;
+                    ((CharacterArrayDataType) frame[code[pc++]]).setChar(is[isp], (char) is[isp + 1]);
+                    break;
+                case Bytecode.SASTORE:
+                    ((StringArrayDataType) frame[code[pc++]]).setString(is[--isp], ((StringDataType) os[--osp]).getValue());
+                    os[osp] = null;
+                    break;
+                case Bytecode.ELEMBOX:
+                    os[osp++] = ((ArrayDataType) frame[code[pc++]]).get(is[isp - 1]);
+                    break;
+                case Bytecode.PICK:
+                    os[osp] = os[osp - 1 - code[pc++]];
+                    osp++;
+                    break;
+                case Bytecode.ELEMSTORE:
+                    ((ArrayDataType) frame[code[pc++]]).set(is[--isp], (InterpreterDataType) os[--osp]);
+                    os[osp] = null;
+                    break;
+                case Bytecode.CHECK:
+                    ((RangeCheck) pool[code[pc + 1]]).check(frame[code[pc]]);
+                    pc += 2;
+                    break;
+                
+                case Bytecode.FAIL:
+                    throw new RuntimeException((String) pool[code[pc]]);
+                case Bytecode.RETURN: {
+                    if (depth == 0) {
+                        intTop = isp;
+                        objectTop = osp;
+                        return;
+                    }
+                    
+                    // Resume the caller just after its CALL instruction
+                    InterpreterDataType[] calleeFrame = frame;
+                    depth--;
+                    function = callFunctions[depth];
+                    frame = callFrames[depth];
+                    pc = returnPcs[depth];
+                    code = function.getCode();
+                    pool = function.getPool();
+                    callFunctions[depth] = null;
+                    callFrames[depth] = null;
+                    
+                    int[] copyBackSlots = ((BytecodeFunction.CallSite) pool[code[pc - 1]]).getCopyBackSlots();
+                    if (copyBackSlots != null) {
+                        for (int i = 0; i < copyBackSlots.length; i++) {
+                            if (copyBackSlots[i] >= 0) {
+                                frame[copyBackSlots[i]] = calleeFrame[i];
+                            }
+                        }
+                    }
+                    // Functions with array parameters don't tail call, so the copies are still where the call put them
+                    release(((BytecodeFunction.CallSite) pool[code[pc - 1]]).getCopiedArrays(), calleeFrame);
+                    break;
+                }
+                default:
+                    throw new RuntimeException("Unknown opcode " + code[pc - 1] + " in " + function.getName());
+            }
+        }
+    }
+    
+    /**
+     * Advances the for loop whose end, step and counter are on top of the int stack
+     * @param is The int stack
+     * @param isp The int stack pointer
+     * @param frame The current frame
+     * @param slot The slot of the loop variable
+     * @return True to run the body again, false when the loop is done
+     */
+    private static boolean nextIteration(int[] is, int isp, InterpreterDataType[] frame, int slot) {
+        int counter = is[isp - 1];
+        if (counter == is[isp - 3]) {
+            return false;
+        }
+        counter += is[isp - 2];
+        is[isp - 1] = counter;
+        ((IntegerDataType) frame[slot]).setValue(counter);
+        return true;
+    }
+    
+    /**
+     * Copies a variable passed by value that is not a primitive
+     * @param original The original variable
+     * @return A copy of the variable
+     */
+    private InterpreterDataType copyOf(InterpreterDataType original) {
+        if (original instanceof ArrayDataType) {
+            return ((ArrayDataType) original).copy();
+        }
+        throw new RuntimeException("Unsupported data type for copying: " + original.getClass().getName());
+    }
+    
+    /**
+     * Releases the array copies a call made for its value arguments, once it has returned
+     * @param positions The positions of the copies, or null if there are none
+     * @param arguments The arguments, or the callee's frame, which starts with them
+     */
+    private static void release(int[] positions, InterpreterDataType[] arguments) {
+        if (positions != null) {
+            for (int position : positions) {
+                ((ArrayDataType) arguments[position]).release();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package Shanks;
+
+import java.util.Map;
+
+/**
+ * Checks that built-ins found through ServiceLoader can be called on every engine. Run it
+ * with test/META-INF on the class path, "java Shanks.BuiltInRegistryTest".
+ */
+public class BuiltInRegistryTest {
+    
+    public static void main(String[] args) throws Exception {
+        registeredInLowerCase();
+        mixedCaseNameCanBeCalled();
+        EngineTest.finish("BuiltInRegistryTest");
+    }
+    
+    static void registeredInLowerCase() {
+        Map<String, BuiltIn> builtIns = BuiltInRegistry.load();
+        if (!(builtIns.get("twice") instanceof TwiceBuiltIn)) {
+            EngineTest.fail("the ServiceLoader built-in Twice isn't registered as twice; is test/META-INF on the class path?");
+        }
+    }
+    
+    // Calls are looked up in lower case, whatever case the built-in or the call uses
+    static void mixedCaseNameCanBeCalled() throws Exception {
+        String source = String.join("\n",
+            "define main()",
+            "variables x : integer",
+            "    twice(21, var x)",
+            "    write(x)",
+            "    TWICE(x, var x)",
+            "    write(x)");
+        EngineTest.expectOnAll("mixed-case ServiceLoader built-in", source, "42 \n84 \n");
+    }
+}
\ No newline at end of file
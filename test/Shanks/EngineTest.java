@@ -0,0 +1,388 @@
+package Shanks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the same Shank programs on every engine and checks that they all print the same,
+ * expected output. Needs no test library: compile it with the interpreter and run
+ * "java Shanks.EngineTest", which exits with status 1 if any check fails.
+ */
+public class EngineTest {
+    static final String[] ENGINES = {"tree", "specializing", "closure", "jit", "vm"};
+    
+    private static final List<String> failures = new ArrayList<>();
+    
+    public static void main(String[] args) throws Exception {
+        varAliasing();
+        varArgumentToValueParameter();
+        arrayCopySemantics();
+        rangeViolations();
+        elementRangeViolations();
+        comparisonsAsValues();
+        seededRuns();
+        deepRecursionOnVm();
+        deepTailRecursionOnVm();
+        finish("EngineTest");
+    }
+    
+    // Writes through two var parameters that share a variable both land on it, even once jitted
+    static void varAliasing() throws Exception {
+        String source = String.join("\n",
+            "define h(var a : integer; var b : integer)",
+            "variables i : integer",
+            "    for i from 1 to 20000",
+            "        a := a + 1",
+            "        b := b + 1",
+            "",
+            "define g(var a : integer; var b : integer)",
+            "    a := a + 1",
+            "    b := b + 1",
+            "",
+            "define main()",
+            "variables x, y, k : integer",
+            "    h(var x, var x)",
+            "    write(x)",
+            "    h(var x, var y)",
+            "    write(x, y)",
+            "    x := 0",
+            "    for k from 1 to 3000",
+            "        g(var x, var x)",
+            "    write(x)");
+        expectOnAll("var aliasing", source, "40000 \n60000 20000 \n6000 \n");
+    }
+    
+    // A var argument passed where the parameter isn't var hands over a copy
+    static void varArgumentToValueParameter() throws Exception {
+        String source = String.join("\n",
+            "define bump(a : integer; var b : integer)",
+            "    a := a + 1",
+            "    b := a",
+            "",
+            "define main()",
+            "variables x, y : integer",
+            "    x := 5",
+            "    bump(var x, var y)",
+            "    write(y, x)");
+        expectOnAll("var argument to a value parameter", source, "6 5 \n");
+    }
+    
+    // Arrays passed by value are copies, however the storage is shared underneath
+    static void arrayCopySemantics() throws Exception {
+        String source = String.join("\n",
+            "define poke(a : array of integer; var s : integer)",
+            "    a[1] := 500",
+            "    s := a[1]",
+            "",
+            "define both(a : array of integer; var b : array of integer)",
+            "    b[1] := 7",
+            "",
+            "define steal(a : array of integer; var b : array of integer)",
+            "    b := a",
+            "    a[2] := 1000",
+            "",
+            "define main()",
+            "variables a, b, c : array from 1 to 3 of integer",
+            "variables s : integer",
+            "    a[1] := 1",
+            "    a[2] := 2",
+            "    poke(a, var s)",
+            "    write(s, a[1])",
+            "    b := a",
+            "    b[2] := 99",
+            "    write(a[2], b[2])",
+            "    both(a, var a)",
+            "    write(a[1])",
+            "    steal(a, var c)",
+            "    write(c[1], c[2], a[2])",
+            "    a[2] := 55",
+            "    write(c[2])",
+            "    arraycopy(var a, 1, var b, 1, 3)",
+            "    a[1] := 8",
+            "    write(b[1], b[2])");
+        expectOnAll("array copy semantics", source, "500 1 \n2 99 \n7 \n7 2 2 \n2 \n7 55 \n");
+    }
+    
+    // Stores outside a declared range fail on every engine, whatever the store looks like
+    static void rangeViolations() throws Exception {
+        String assignment = String.join("\n",
+            "define main()",
+            "variables x : integer from 1 to 10",
+            "variables i : integer",
+            "    x := 10",
+            "    write(x)",
+            "    i := 11",
+            "    x := i");
+        expectErrorOnAll("range violation by assignment", assignment, "10 \n", "out of range");
+        
+        String loop = String.join("\n",
+            "define main()",
+            "variables x : integer from 1 to 10",
+            "variables n : integer",
+            "    n := 12",
+            "    for x from 1 to n",
+            "        write(x)");
+        expectErrorOnAll("range violation by a for loop", loop, "1 \n2 \n3 \n4 \n5 \n6 \n7 \n8 \n9 \n10 \n", "out of range");
+        
+        String varArgument = String.join("\n",
+            "define set(var a : integer)",
+            "    a := 42",
+            "",
+            "define main()",
+            "variables x : integer from 1 to 10",
+            "    set(var x)");
+        expectErrorOnAll("range violation through a var argument", varArgument, "", "out of range");
+    }
+    
+    // Element ranges hold for narrowed, plain and mapped arrays alike
+    static void elementRangeViolations() throws Exception {
+        String wide = String.join("\n",
+            "define main()",
+            "variables c : array from 1 to 5 of integer from 0 to 100000",
+            "variables i : integer",
+            "    c[1] := 99999",
+            "    write(c[1])",
+            "    i := 200000",
+            "    c[2] := i");
+        expectErrorOnAll("element range too wide to narrow", wide, "99999 \n", "out of range");
+        
+        String narrow = String.join("\n",
+            "define main()",
+            "variables c : array from 1 to 5 of integer from 0 to 255",
+            "variables e : array from 1 to 5 of integer",
+            "    e[3] := 500",
+            "    arrayfill(var c, 1, 5, 7)",
+            "    write(c[5])",
+            "    arraycopy(var e, 1, var c, 1, 5)");
+        expectErrorOnAll("element range on a copy into a byte array", narrow, "7 \n", "out of range");
+        
+        Path file = Files.createTempFile("shank", ".bin");
+        try {
+            String mapped = String.join("\n",
+                "define main()",
+                "variables c : array from 1 to 5 of integer from 0 to 100",
+                "variables i : integer",
+                "    maparray(\"" + file.toString().replace("\\", "/") + "\", var c)",
+                "    c[1] := 50",
+                "    write(c[1])",
+                "    i := 300",
+                "    c[2] := i");
+            expectErrorOnAll("element range on a mapped array", mapped, "50 \n", "out of range");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    // Comparisons can be stored and passed, not only tested
+    static void comparisonsAsValues() throws Exception {
+        String source = String.join("\n",
+            "define main()",
+            "variables b : boolean",
+            "variables i : integer",
+            "    i := 11",
+            "    b := i > 10",
+            "    write(b)",
+            "    b := i = 10",
+            "    write(b)",
+            "    while i > 10",
+            "        i := i - 1",
+            "    write(i)",
+            "    repeat",
+            "        i := i + 1",
+            "    until i >= 12",
+            "    write(i)");
+        expectOnAll("comparisons as values", source, "true \nfalse \n10 \n12 \n");
+    }
+    
+    // A run's seed belongs to that run, so the same seed draws the same numbers on every engine
+    static void seededRuns() throws Exception {
+        String source = String.join("\n",
+            "define main()",
+            "variables r : real",
+            "variables a : array from 1 to 3 of real",
+            "    getrandom(var r)",
+            "    fillrandom(var a)",
+            "    write(r, a[1], a[3])");
+        String expected = run(source, "tree", 42L).output;
+        for (String engine : ENGINES) {
+            Result result = run(source, engine, 42L);
+            if (!result.output.equals(expected)) {
+                fail("seed 42 on " + engine + ": printed " + quote(result.output) + " instead of " + quote(expected));
+            }
+        }
+        if (run(source, "tree", 43L).output.equals(expected)) {
+            fail("seeds 42 and 43 drew the same numbers");
+        }
+    }
+    
+    // Calls run on the VM's own stack, so recursion isn't limited by the JVM's
+    static void deepRecursionOnVm() throws Exception {
+        String source = String.join("\n",
+            "define down(n : integer; var total : integer)",
+            "variables m : integer",
+            "    if n > 0 then",
+            "        total := total + 1",
+            "        m := n - 1",
+            "        down(m, var total)",
+            "        total := total + 0",
+            "",
+            "define main()",
+            "variables t : integer",
+            "    down(200000, var t)",
+            "    write(t)");
+        expect("deep recursion", "vm", source, "200000 \n");
+    }
+    
+    // Tail calls reuse the frame, so a million of them, mutual ones included, fit in no stack at all
+    static void deepTailRecursionOnVm() throws Exception {
+        String source = String.join("\n",
+            "define sum(n : integer; acc : integer; var result : integer)",
+            "variables m, a : integer",
+            "    if n = 0 then",
+            "        result := acc",
+            "    else",
+            "        m := n - 1",
+            "        a := acc + 1",
+            "        sum(m, a, var result)",
+            "",
+            "define iseven(n : integer; var result : boolean)",
+            "variables m : integer",
+            "    if n = 0 then",
+            "        result := true",
+            "    else",
+            "        m := n - 1",
+            "        isodd(m, var result)",
+            "",
+            "define isodd(n : integer; var result : boolean)",
+            "variables m : integer",
+            "    if n = 0 then",
+            "        result := false",
+            "    else",
+            "        m := n - 1",
+            "        iseven(m, var result)",
+            "",
+            "define main()",
+            "variables r : integer",
+            "variables b : boolean",
+            "    sum(1000000, 0, var r)",
+            "    write(r)",
+            "    iseven(1000001, var b)",
+            "    write(b)");
+        expect("deep tail recursion", "vm", source, "1000000 \nfalse \n");
+    }
+    
+    static void expectOnAll(String name, String source, String expected) throws Exception {
+        for (String engine : ENGINES) {
+            expect(name, engine, source, expected);
+        }
+    }
+    
+    static void expect(String name, String engine, String source, String expected) throws Exception {
+        Result result = run(source, engine);
+        if (result.error != null) {
+            fail(name + " on " + engine + ": failed with " + result.error);
+        } else if (!result.output.equals(expected)) {
+            fail(name + " on " + engine + ": printed " + quote(result.output) + " instead of " + quote(expected));
+        }
+    }
+    
+    static void expectErrorOnAll(String name, String source, String expectedOutput, String expectedError) throws Exception {
+        for (String engine : ENGINES) {
+            Result result = run(source, engine);
+            if (result.error == null) {
+                fail(name + " on " + engine + ": finished without an error");
+            } else if (!result.error.contains(expectedError)) {
+                fail(name + " on " + engine + ": failed with " + quote(result.error) + " instead of " + quote(expectedError));
+            } else if (!result.output.equals(expectedOutput)) {
+                fail(name + " on " + engine + ": printed " + quote(result.output) + " instead of " + quote(expectedOutput));
+            }
+        }
+    }
+    
+    static void fail(String message) {
+        failures.add(message);
+        System.out.println("FAIL " + message);
+    }
+    
+    static void finish(String suite) {
+        if (failures.isEmpty()) {
+            System.out.println(suite + ": all checks passed");
+        } else {
+            System.out.println(suite + ": " + failures.size() + " checks failed");
+            System.exit(1);
+        }
+    }
+    
+    private static String quote(String text) {
+        return "\"" + text.replace("\n", "\\n") + "\"";
+    }
+    
+    /**
+     * What a program printed, and the message of the error that stopped it, if one did
+     */
+    static class Result {
+        final String output;
+        final String error;
+        
+        Result(String output, String error) {
+            this.output = output;
+            this.error = error;
+        }
+    }
+    
+    // Runs a program with no random seed
+    static Result run(String source, String engine) throws Exception {
+        return run(source, engine, null);
+    }
+    
+    /**
+     * Lexes, parses, checks and runs a program on one engine, the way Shank does
+     * @param source The program
+     * @param engine tree, specializing, closure, jit or vm
+     * @param seed The run's random seed, or null for none
+     * @return What it printed, with \n line endings, and its error if it failed
+     */
+    static Result run(String source, String engine, Long seed) throws Exception {
+        Lexer lexer = new Lexer();
+        for (String line : source.split("\n", -1)) {
+            lexer.lex(line);
+        }
+        lexer.finishLexing();
+        ProgramNode program = new Parser(lexer.getTokens()).parse();
+        new SemanticAnalysis().analyze(program);
+        
+        Path output = Files.createTempFile("shank", ".txt");
+        OutputSink previous = BuiltInWrite.getSink();
+        BuiltInWrite.setSink(OutputSink.toFile(output));
+        String error = null;
+        try {
+            Interpreter interpreter = new Interpreter(program, seed);
+            if (engine.equals("closure") || engine.equals("jit")) {
+                new ClosureCompiler(interpreter.getFunctions(), engine.equals("jit")).compileProgram().invoke(new InterpreterDataType[0]);
+            } else if (engine.equals("vm")) {
+                new VirtualMachine().execute(new BytecodeCompiler(interpreter.getFunctions()).compileProgram());
+            } else {
+                interpreter.setSpecializing(engine.equals("specializing"));
+                interpreter.interpret();
+            }
+        } catch (RuntimeException | StackOverflowError e) {
+            error = String.valueOf(e.getMessage());
+        } finally {
+            BuiltInWrite.getSink().close();
+            BuiltInWrite.setSink(previous);
+        }
+        return new Result(readAndDelete(output), error);
+    }
+    
+    private static String readAndDelete(Path path) throws IOException {
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package Shanks;
+
+/**
+ * A built-in found through ServiceLoader, listed in test/META-INF/services/Shanks.BuiltIn.
+ * Its name has capitals, which calls must not depend on.
+ */
+public class TwiceBuiltIn implements BuiltIn {
+    
+    @Override
+    public String getName() {
+        return "Twice";
+    }
+    
+    @Override
+    public int getParameterCount() {
+        return 2;
+    }
+    
+    // The last parameter is the var result
+    @Override
+    public long getVarMask() {
+        return 0b10;
+    }
+    
+    @Override
+    public void execute(InterpreterDataType[] parameters) {
+        ((IntegerDataType) parameters[1]).setValue(((IntegerDataType) parameters[0]).getValue() * 2);
+    }
+}
\ No newline at end of file